@@ -1,31 +1,43 @@
 package it.polimi;
 
 import it.polimi.client.ChessBoardClient;
+import it.polimi.common.Log;
+import it.polimi.server.Router;
 import it.polimi.server.Server;
 
 import java.io.IOException;
 
 public class Starter {
+    private static final Log LOG = Log.getLogger(Starter.class);
+
     public static void main(String[] args) {
         if(args.length < 1) {
-            System.out.println("Usage: java Starter -s (for server) or -c (for client)");
+            System.out.println("Usage: java Starter -s (for server), -r (for router) or -c (for client)");
             return;
         }
         switch (args[0]){
             case "-s":
-                System.out.printf("Starting server");
+                LOG.info("Starting server");
                 try {
                     Server.main(args);
                 } catch (IOException e) {
                     throw new RuntimeException(e);
                 }
                 break;
+            case "-r":
+                LOG.info("Starting router");
+                try {
+                    Router.main(args);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+                break;
             case "-c":
-                System.out.printf("Starting client");
+                LOG.info("Starting client");
                 ChessBoardClient.main(args);
                 break;
             default:
-                System.out.printf("Invalid argument");
+                LOG.warn("Invalid argument: {}", args[0]);
         }
     }
 }
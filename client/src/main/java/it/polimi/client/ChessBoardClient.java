@@ -1,7 +1,12 @@
 package it.polimi.client;
 
+import it.polimi.common.BoardSnapshot;
 import it.polimi.common.Coder;
-import it.polimi.model.*;
+import it.polimi.common.GameConfig;
+import it.polimi.common.Log;
+import it.polimi.client.view.*;
+import it.polimi.model.MoveType;
+import it.polimi.model.PieceType;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.scene.Group;
@@ -21,19 +26,26 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 public class ChessBoardClient extends Application {
+    private static final Log LOG = Log.getLogger(ChessBoardClient.class);
+
     public static final int TILE_SIZE = 100;
     public static final int WIDTH = 8;
     public static final int HEIGHT = 8;
 
     private String mode = null;
+    private String matchId = null; // Partita da osservare (modalità "watch") o partita corrente
+    private String playerId = null; // Nome del giocatore per il punteggio; null = anonimo
     private final Tile[][] board = new Tile[WIDTH][HEIGHT];
 
     private final Group tileGroup = new Group();
     private final Group pieceGroup = new Group();
 
-    private Socket socket;
-    private BufferedWriter bufferedWriter;
-    private BufferedReader bufferedReader;
+    // Sostituiti da reconnect() sul thread di lettura; si scrive solo tramite send(), sotto connectionLock
+    private final Object connectionLock = new Object();
+    private volatile Socket socket;
+    private volatile BufferedWriter bufferedWriter;
+    private volatile BufferedReader bufferedReader;
+    private String sessionToken; // Token per riprendere la partita dopo una disconnessione
 
     private int player;
     private int winner = 0;
@@ -59,7 +71,8 @@ public class ChessBoardClient extends Application {
 
 
     private boolean isItMyTurn = false;
-    private boolean waitingForServerResponse = false;
+    // Letto anche dal timer della mossa e dal timer dell'orologio
+    private volatile boolean waitingForServerResponse = false;
 
     // Add separate variable for local mode turn management
     private boolean isWhiteTurn = true; // WHITE always starts first in local mode
@@ -78,7 +91,7 @@ public class ChessBoardClient extends Application {
 
     public static void main(String[] args) {
         for (String arg : args) {
-            System.out.println("Argument: " + arg);
+            LOG.debug("Argument: {}", arg);
         }
         if (args.length > 1) {
             // Se ci sono argomenti, avvia direttamente la partita
@@ -93,6 +106,14 @@ public class ChessBoardClient extends Application {
         this.mode = mode;
     }
 
+    public void setMatchId(String matchId) {
+        this.matchId = matchId;
+    }
+
+    public void setPlayerId(String playerId) {
+        this.playerId = playerId;
+    }
+
     @Override
     public void start(Stage stage) throws IOException, InterruptedException {
         this.gameStage = stage;
@@ -107,23 +128,34 @@ public class ChessBoardClient extends Application {
             }
         }
 
-        // Gestisci la connessione solo per modalità "wait" (online) o "cpu"
-        if ("wait".equals(mode) || "cpu".equals(mode)) {
+        // Gestisci la connessione solo per modalità "wait" (online), "cpu" o "watch" (spettatore)
+        if ("wait".equals(mode) || "cpu".equals(mode) || "watch".equals(mode)) {
             try {
-                socket = new Socket("localhost", 1234);
+                socket = new Socket(GameConfig.DEFAULT_HOST, GameConfig.DEFAULT_PORT);
             } catch (IOException e) {
                 Thread.sleep(5000);
-                socket = new Socket("localhost", 1234);
+                socket = new Socket(GameConfig.DEFAULT_HOST, GameConfig.DEFAULT_PORT);
             }
 
             try {
-                bufferedWriter = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream()));
-                bufferedReader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-                bufferedWriter.write(mode);
-                bufferedWriter.newLine();
-                bufferedWriter.flush();
-
-                if (bufferedReader.readLine().equals("1")) {
+                String reply = greet();
+                // Server al completo: "BUSY <secondi>", si riprova dopo l'attesa indicata
+                while (reply != null && reply.startsWith(GameConfig.BUSY_REPLY + " ")) {
+                    int seconds = Integer.parseInt(reply.substring(GameConfig.BUSY_REPLY.length() + 1).trim());
+                    LOG.info("Server busy, retrying in {} s", seconds);
+                    socket.close();
+                    Thread.sleep(seconds * 1000L);
+                    socket = new Socket(GameConfig.DEFAULT_HOST, GameConfig.DEFAULT_PORT);
+                    reply = greet();
+                }
+                if ("watch".equals(mode)) {
+                    // Gli spettatori non hanno pedine: player = 0
+                    player = 0;
+                    if (reply == null || !reply.startsWith("WATCHING")) {
+                        LOG.warn("Match {} not found", matchId);
+                        closeEverything();
+                    }
+                } else if (reply.equals("1")) {
                     player = 1;
                 } else {
                     player = 2;
@@ -344,13 +376,13 @@ public class ChessBoardClient extends Application {
 
     public void requestMove(Piece piece, int newX, int newY) {
         if (!isItMyTurn || waitingForServerResponse) {
-            System.out.println("Cannot move: myTurn=" + isItMyTurn + ", waiting=" + waitingForServerResponse);
+            LOG.debug("Cannot move: myTurn={}, waiting={}", isItMyTurn, waitingForServerResponse);
             piece.abortMove();
             return;
         }
 
         if (!isValidCoordinate(newX, newY) || !board[newX][newY].isHighlighted()) {
-            System.out.println("Invalid destination - aborting move");
+            LOG.debug("Invalid destination - aborting move");
             piece.abortMove();
             return;
         }
@@ -359,36 +391,34 @@ public class ChessBoardClient extends Application {
             int oldBoardX = Coder.pixelToBoard(piece.getOldX());
             int oldBoardY = Coder.pixelToBoard(piece.getOldY());
             String moveMessage = oldBoardX + " " + oldBoardY + " " + newX + " " + newY;
-            System.out.println("Sending move: " + moveMessage);
+            LOG.debug("Sending move: {}", moveMessage);
 
-            bufferedWriter.write(moveMessage);
-            bufferedWriter.newLine();
-            bufferedWriter.flush();
+            send(moveMessage);
 
             waitingForServerResponse = true;
             startMoveTimeout();
 
-            System.out.println("Move sent, waiting for server response...");
+            LOG.debug("Move sent, waiting for server response...");
         } catch (IOException e) {
-            System.out.println("Error sending move: " + e.getMessage());
+            LOG.error("Error sending move", e);
             piece.abortMove();
             waitingForServerResponse = false;
-            e.printStackTrace();
         }
     }
 
 
     private void startMoveTimeout() {
         if (timeoutExecutor != null) {
-            timeoutExecutor.schedule(() -> {
+            // Il controllo avviene sul thread JavaFX, che è l'unico a impostare il flag dopo una mossa
+            timeoutExecutor.schedule(() -> Platform.runLater(() -> {
                 if (waitingForServerResponse) {
-                    System.out.println("Move timeout - resetting state");
-                    Platform.runLater(() -> {
-                        waitingForServerResponse = false;
-                        // Non resettiamo isItMyTurn qui, aspettiamo il prossimo PING
-                    });
+                    LOG.info("Move timeout - resetting state");
+                    // Non resettiamo isItMyTurn qui, aspettiamo il prossimo PING
+                    waitingForServerResponse = false;
+                    // La risposta potrebbe essere andata persa: riallinea la scacchiera
+                    requestSync();
                 }
-            }, 10, TimeUnit.SECONDS);
+            }), 10, TimeUnit.SECONDS);
         }
     }
 
@@ -396,7 +426,7 @@ public class ChessBoardClient extends Application {
         MoveType moveType = moveResult.getMoveType();
         switch (moveType) {
             case NONE -> {
-                System.out.println("Move rejected - aborting");
+                LOG.debug("Move rejected - aborting");
                 piece.abortMove();
                 if (!mode.equals("local")) {
                     waitingForServerResponse = false;
@@ -418,7 +448,7 @@ public class ChessBoardClient extends Application {
                     isInMultiJump = false;
                     multiJumpPiece = null;
                     Platform.runLater(this::updateOnlineLabel); // FIX: Wrap questa chiamata
-                    System.out.println("Normal move completed - turn ended");
+                    LOG.debug("Normal move completed - turn ended");
                 }
 
                 if ((newY == 7 && piece.getPieceType() == PieceType.GRAY) || (newY == 0 && piece.getPieceType() == PieceType.WHITE)) {
@@ -453,12 +483,12 @@ public class ChessBoardClient extends Application {
                     if (!additionalCaptures.isEmpty()) {
                         isInMultiJump = true;
                         multiJumpPiece = piece;
-                        System.out.println("Potential multi-jump - waiting for server PING");
+                        LOG.debug("Potential multi-jump - waiting for server PING");
                     } else {
                         isItMyTurn = false;
                         isInMultiJump = false;
                         multiJumpPiece = null;
-                        System.out.println("No more captures - turn ended");
+                        LOG.debug("No more captures - turn ended");
                     }
                     Platform.runLater(this::updateOnlineLabel); // FIX: Wrap questa chiamata
                 }
@@ -473,6 +503,11 @@ public class ChessBoardClient extends Application {
     }
 
     private void updateOnlineLabel() {
+        if (player == 0) {
+            colorLabel.setText("Spectating match " + matchId);
+            return;
+        }
+
         String status = isItMyTurn ? "YOUR TURN" : "OPPONENT'S TURN";
         String playerColor = (player == 1) ? "GRAY" : "WHITE";
         String extra = "";
@@ -485,7 +520,9 @@ public class ChessBoardClient extends Application {
             extra = " (Must Capture!)";
         }
 
-        colorLabel.setText("You are " + playerColor + " - " + status + extra);
+        String match = matchId != null ? " | Match " + matchId : "";
+
+        colorLabel.setText("You are " + playerColor + " - " + status + extra + match);
     }
 
     /**
@@ -744,7 +781,7 @@ public class ChessBoardClient extends Application {
         ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
         executor.scheduleAtFixedRate(() -> {
             if (winner != 0) {
-                String winnerText = (winner == player) ? "YOU WON!" : "YOU LOST!";
+                String winnerText = (player == 0) ? "GAME OVER" : (winner == player) ? "YOU WON!" : "YOU LOST!";
                 Platform.runLater(() -> timer.set(winnerText)); // FIX: Wrap timer update
 
                 Platform.runLater(() -> {
@@ -775,36 +812,192 @@ public class ChessBoardClient extends Application {
                 try {
                     message = bufferedReader.readLine();
                     if (message == null) {
-                        System.out.println("Server disconnected");
+                        LOG.info("Server disconnected");
+                        if (reconnect()) {
+                            continue;
+                        }
                         break;
                     }
 
-                    System.out.println("Received from server: " + message);
+                    LOG.debug("Received from server: {}", message);
 
                     if (message.startsWith("PING")) {
                         handleServerPing();
                     } else if (message.startsWith("CHAT ")) {
                         handleChatMessage(message);
+                    } else if (message.startsWith("SESSION ")) {
+                        sessionToken = message.substring("SESSION ".length());
+                    } else if (message.startsWith("MATCH ")) {
+                        matchId = message.substring("MATCH ".length());
+                        Platform.runLater(this::updateOnlineLabel);
+                    } else if (message.startsWith("SNAPSHOT ")) {
+                        handleSnapshot(message);
                     } else {
                         handleGameMessage(message);
                     }
                 } catch (IOException e) {
-                    System.out.println("Connection lost: " + e.getMessage());
+                    LOG.info("Connection lost: {}", e.getMessage());
+                    if (reconnect()) {
+                        continue;
+                    }
                     closeEverything();
                     break;
                 } catch (NumberFormatException e) {
-                    System.out.println("Invalid message format: " + e.getMessage());
+                    LOG.warn("Invalid message format: {}", e.getMessage());
                 } catch (Exception e) {
-                    System.out.println("Unexpected error: " + e.getMessage());
-                    e.printStackTrace();
+                    LOG.error("Unexpected error", e);
                 }
             }
             closeEverything();
         }).start();
     }
 
+    /**
+     * Invia il saluto iniziale sul socket corrente e ritorna la prima risposta del server.
+     */
+    private String greet() throws IOException {
+        synchronized (connectionLock) {
+            bufferedWriter = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream()));
+            bufferedReader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+        }
+        send("watch".equals(mode) ? "watch " + matchId : playerId == null ? mode : mode + " " + playerId);
+        return bufferedReader.readLine();
+    }
+
+    /**
+     * Scrive una riga sulla connessione corrente. Mossa, SYNC e cambio di socket in reconnect()
+     * passano tutti da connectionLock, così le righe non si mescolano e nessuno scrive su un writer già chiuso.
+     */
+    private void send(String line) throws IOException {
+        synchronized (connectionLock) {
+            bufferedWriter.write(line);
+            bufferedWriter.newLine();
+            bufferedWriter.flush();
+        }
+    }
+
+    /**
+     * Prova a riprendere la partita con il token di sessione entro il periodo di grazia del server.
+     */
+    private boolean reconnect() {
+        if (sessionToken == null) {
+            return false;
+        }
+
+        long deadline = System.currentTimeMillis() + GameConfig.RECONNECT_GRACE_SECONDS * 1000L;
+        while (winner == 0 && System.currentTimeMillis() < deadline) {
+            try {
+                Socket newSocket = new Socket(GameConfig.DEFAULT_HOST, GameConfig.DEFAULT_PORT);
+                BufferedWriter newWriter = new BufferedWriter(new OutputStreamWriter(newSocket.getOutputStream()));
+                BufferedReader newReader = new BufferedReader(new InputStreamReader(newSocket.getInputStream()));
+                newWriter.write("resume " + sessionToken);
+                newWriter.newLine();
+                newWriter.flush();
+
+                String reply = newReader.readLine();
+                if (reply == null || reply.equals("EXPIRED")) {
+                    LOG.info("Session expired");
+                    newSocket.close();
+                    return false;
+                }
+
+                synchronized (connectionLock) {
+                    try {
+                        socket.close();
+                    } catch (IOException ignored) {
+                        // Il vecchio socket è già inutilizzabile
+                    }
+                    socket = newSocket;
+                    bufferedWriter = newWriter;
+                    bufferedReader = newReader;
+                }
+                LOG.info("Reconnected as player {}", reply);
+                return true;
+            } catch (IOException e) {
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Ricostruisce la scacchiera a partire da uno snapshot del server (riconnessione o SYNC).
+     * I nuovi nodi vengono preparati fuori dal thread JavaFX e sostituiti con un unico aggiornamento della scena.
+     */
+    private void handleSnapshot(String message) {
+        BoardSnapshot snapshot;
+        try {
+            snapshot = BoardSnapshot.fromMessage(message);
+        } catch (IllegalArgumentException e) {
+            LOG.warn("Invalid snapshot: {}", e.getMessage());
+            return;
+        }
+
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                board[x][y].setPiece(null);
+            }
+        }
+
+        List<Piece> pieces = new ArrayList<>();
+        isInMultiJump = false;
+        multiJumpPiece = null;
+        for (int index = 0; index < BoardSnapshot.SQUARES; index++) {
+            PieceType type = snapshot.getPieceType(index);
+            if (type == null) {
+                continue;
+            }
+
+            int x = BoardSnapshot.squareX(index);
+            int y = BoardSnapshot.squareY(index);
+            boolean isGray = type == PieceType.GRAY || type == PieceType.GRAY_SUP;
+            Piece piece = makePiece(isGray ? PieceType.GRAY : PieceType.WHITE, x, y);
+            if (type == PieceType.GRAY_SUP || type == PieceType.WHITE_SUP) {
+                piece.promote();
+            }
+            board[x][y].setPiece(piece);
+            pieces.add(piece);
+
+            if (index == snapshot.getMultiJumpSquare()) {
+                isInMultiJump = true;
+                multiJumpPiece = piece;
+            }
+        }
+
+        grayLivePieces = snapshot.countPieces(true);
+        whiteLivePieces = snapshot.countPieces(false);
+        grayKilledPieces = GameConfig.INITIAL_PIECES_PER_PLAYER - whiteLivePieces;
+        whiteKilledPieces = GameConfig.INITIAL_PIECES_PER_PLAYER - grayLivePieces;
+        movesWithoutCapture = snapshot.getMovesWithoutCapture();
+        time = (player == 1 ? snapshot.getGrayClockTenths() : snapshot.getWhiteClockTenths()) / 10f;
+        isItMyTurn = false;
+        waitingForServerResponse = false;
+
+        Platform.runLater(() -> {
+            pieceGroup.getChildren().setAll(pieces);
+            scoreDisplay.updateCounts(grayLivePieces, whiteLivePieces, grayKilledPieces, whiteKilledPieces);
+            updateOnlineLabel();
+        });
+    }
+
+    /**
+     * Chiede al server lo stato completo della partita.
+     */
+    private void requestSync() {
+        try {
+            send("SYNC");
+        } catch (IOException e) {
+            LOG.warn("Error requesting sync: {}", e.getMessage());
+        }
+    }
+
     private void handleServerPing() {
-        System.out.println("PING received - It's my turn!");
+        LOG.debug("PING received - It's my turn!");
 
         // Reset completo dello stato per nuovo turno
         isItMyTurn = true;
@@ -820,20 +1013,18 @@ public class ChessBoardClient extends Application {
 
         Platform.runLater(this::updateOnlineLabel);
 
-        System.out.println("Turn state: myTurn=" + isItMyTurn +
-                ", multiJump=" + isInMultiJump +
-                ", mustCapture=" + mustCapture);
+        LOG.debug("Turn state: myTurn={}, multiJump={}, mustCapture={}", isItMyTurn, isInMultiJump, mustCapture);
     }
 
 
     private void handleChatMessage(String message) {
-        System.out.println("Chat message ignored: " + message);
+        LOG.debug("Chat message ignored: {}", message);
     }
 
     private void handleGameMessage(String message) {
         String[] partsOfMessage = message.split(" ");
         if (partsOfMessage.length < 5) {
-            System.out.println("Invalid game message format: " + message);
+            LOG.warn("Invalid game message format: {}", message);
             return;
         }
 
@@ -845,18 +1036,18 @@ public class ChessBoardClient extends Application {
             newX = Integer.parseInt(partsOfMessage[2]);
             newY = Integer.parseInt(partsOfMessage[3]);
         } catch (NumberFormatException e) {
-            System.out.println("Invalid coordinates in message: " + message);
+            LOG.warn("Invalid coordinates in message: {}", message);
             return;
         }
 
         Piece piece = board[fromX][fromY].getPiece();
         if (piece == null) {
-            System.out.println("No piece at " + fromX + "," + fromY);
+            LOG.warn("No piece at {},{}", fromX, fromY);
             return;
         }
 
         String moveType = partsOfMessage[4];
-        System.out.println("Processing server response: " + moveType);
+        LOG.debug("Processing server response: {}", moveType);
 
         switch (moveType) {
             case "NONE" -> handleMoveRejected(piece, newX, newY);
@@ -865,23 +1056,23 @@ public class ChessBoardClient extends Application {
             case "END1" -> handleGameEnd(1, "GRAY WON!");
             case "END2" -> handleGameEnd(2, "WHITE WON!");
             case "DRAW" -> handleGameEnd(0, "DRAW - 40 moves without capture!");
-            default -> System.out.println("Unknown move type: " + moveType);
+            default -> LOG.warn("Unknown move type: {}", moveType);
         }
     }
 
     private void handleMoveRejected(Piece piece, int newX, int newY) {
-        System.out.println("Server rejected move");
+        LOG.debug("Server rejected move");
         makeMove(piece, newX, newY, new MoveResult(MoveType.NONE));
     }
 
     private void handleNormalMove(Piece piece, int newX, int newY) {
-        System.out.println("Server confirmed normal move");
+        LOG.debug("Server confirmed normal move");
         makeMove(piece, newX, newY, new MoveResult(MoveType.NORMAL));
     }
 
     private void handleKillMove(Piece piece, int newX, int newY, String[] parts) {
         if (parts.length < 7) {
-            System.out.println("Invalid KILL message format");
+            LOG.warn("Invalid KILL message format");
             return;
         }
 
@@ -891,15 +1082,15 @@ public class ChessBoardClient extends Application {
             Piece killedPiece = board[killX][killY].getPiece();
 
             if (killedPiece == null) {
-                System.out.println("No piece to kill at " + killX + "," + killY);
+                LOG.warn("No piece to kill at {},{}", killX, killY);
                 return;
             }
 
-            System.out.println("Server confirmed capture move");
+            LOG.debug("Server confirmed capture move");
             makeMove(piece, newX, newY, new MoveResult(MoveType.KILL, killedPiece));
 
         } catch (NumberFormatException e) {
-            System.out.println("Invalid kill coordinates");
+            LOG.warn("Invalid kill coordinates");
         }
     }
 
@@ -1037,7 +1228,7 @@ public class ChessBoardClient extends Application {
                 socket.close();
             }
         } catch (IOException e) {
-            e.printStackTrace();
+            LOG.warn("Error while closing the connection: {}", e.getMessage());
         }
     }
 }
\ No newline at end of file
@@ -1,17 +1,23 @@
 package it.polimi.client;
 
+import it.polimi.common.Log;
 import javafx.application.Application;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
+import javafx.scene.control.TextField;
 import javafx.scene.layout.VBox;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.stage.Stage;
 
 public class StartScreen extends Application {
+    private static final Log LOG = Log.getLogger(StartScreen.class);
+
+    private TextField playerField;
+
 
     @Override
     public void start(Stage primaryStage) {
@@ -35,9 +41,21 @@ public class StartScreen extends Application {
         Button localButton = createButton("Local");
         Button cpuButton = createButton("CPU");
         Button onlineButton = createButton("Online");
+        Button watchButton = createButton("Watch");
+
+        // Nome del giocatore, usato per il punteggio nelle partite online e contro la CPU
+        TextField playerField = new TextField();
+        playerField.setPromptText("Player name");
+        playerField.setMaxWidth(200);
+        this.playerField = playerField;
+
+        // Campo per l'id della partita da osservare
+        TextField matchIdField = new TextField();
+        matchIdField.setPromptText("Match id");
+        matchIdField.setMaxWidth(200);
 
         // Aggiunta di tutti gli elementi al layout
-        root.getChildren().addAll(titleLabel, subtitleLabel, localButton, cpuButton, onlineButton);
+        root.getChildren().addAll(titleLabel, subtitleLabel, playerField, localButton, cpuButton, onlineButton, matchIdField, watchButton);
 
         // Gestione degli eventi dei pulsanti
         localButton.setOnAction(e -> {
@@ -52,8 +70,14 @@ public class StartScreen extends Application {
             launchGame(primaryStage, "wait");
         });
 
+        watchButton.setOnAction(e -> {
+            if (!matchIdField.getText().isBlank()) {
+                launchGame(primaryStage, "watch", matchIdField.getText().trim());
+            }
+        });
+
         // Creazione della scena
-        Scene scene = new Scene(root, 400, 500);
+        Scene scene = new Scene(root, 400, 600);
 
         // Impostazione della scena sullo stage
         primaryStage.setTitle("Checkers-Main Menu");
@@ -79,14 +103,22 @@ public class StartScreen extends Application {
     }
 
     private void launchGame(Stage primaryStage, String mode) {
+        launchGame(primaryStage, mode, null);
+    }
+
+    private void launchGame(Stage primaryStage, String mode, String matchId) {
         primaryStage.close();
         String[] args = {mode};
         try {
             ChessBoardClient chessBoardClient = new ChessBoardClient();
             chessBoardClient.setMode(mode);
+            chessBoardClient.setMatchId(matchId);
+            if (playerField != null && !playerField.getText().isBlank()) {
+                chessBoardClient.setPlayerId(playerField.getText().trim());
+            }
             chessBoardClient.start(new Stage());
         } catch (Exception e) {
-            e.printStackTrace();
+            LOG.error("Cannot start the game", e);
         }
     }
 
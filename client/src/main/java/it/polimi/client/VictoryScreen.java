@@ -21,8 +21,11 @@ import javafx.stage.Stage;
 import javafx.stage.StageStyle;
 import javafx.util.Duration;
 import it.polimi.model.PieceType;
+import it.polimi.common.Log;
 
 public class VictoryScreen {
+    private static final Log LOG = Log.getLogger(VictoryScreen.class);
+
     private static final int WIDTH = 500;
     private static final int HEIGHT = 400;
 
@@ -284,11 +287,11 @@ public class VictoryScreen {
                     chessBoardClient.setMode(mode);
                     chessBoardClient.start(new Stage());
                 } catch (Exception e) {
-                    e.printStackTrace();
+                    LOG.error("Cannot start a new game", e);
                 }
             });
         } catch (Exception e) {
-            e.printStackTrace();
+            LOG.error("Cannot restart the game", e);
         }
     }
 
@@ -303,7 +306,7 @@ public class VictoryScreen {
                 StartScreen startScreen = new StartScreen();
                 startScreen.start(new Stage());
             } catch (Exception e) {
-                e.printStackTrace();
+                LOG.error("Cannot open the start screen", e);
             }
         });
     }
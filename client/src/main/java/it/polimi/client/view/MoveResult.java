@@ -0,0 +1,25 @@
+package it.polimi.client.view;
+
+import it.polimi.model.MoveType;
+
+public class MoveResult {
+    private final MoveType moveType;
+    private final Piece piece;
+
+    public MoveType getMoveType() {
+        return moveType;
+    }
+
+    public Piece getPiece() {
+        return piece;
+    }
+
+    public MoveResult(MoveType moveType) {
+        this(moveType, null);
+    }
+
+    public MoveResult(MoveType moveType, Piece piece) {
+        this.moveType = moveType;
+        this.piece = piece;
+        }
+    }
@@ -1,6 +1,7 @@
-package it.polimi.model;
+package it.polimi.client.view;
 
 import it.polimi.common.GameConfig;
+import it.polimi.model.PieceType;
 import javafx.scene.layout.StackPane;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Ellipse;
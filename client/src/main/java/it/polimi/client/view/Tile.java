@@ -1,4 +1,4 @@
-package it.polimi.model;
+package it.polimi.client.view;
 
 import it.polimi.common.GameConfig;
 import javafx.scene.paint.Color;
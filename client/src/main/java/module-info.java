@@ -1,12 +1,11 @@
 module DamaProject {
+    requires DamaServer;
     requires javafx.base;
     requires javafx.controls;
     requires javafx.graphics;
 
     opens it.polimi.client;
     exports it.polimi.client;
-    opens it.polimi.server;
-    exports it.polimi.server;
-    opens it.polimi.model;
-    exports it.polimi.model;
-}
\ No newline at end of file
+    opens it.polimi.client.view;
+    exports it.polimi.client.view;
+}
@@ -3,8 +3,8 @@ package client;
 import it.polimi.client.ChessBoardClient;
 import it.polimi.common.GameConfig;
 import javafx.application.Platform;
-import it.polimi.model.ScoreDisplay;
-import it.polimi.model.Timer;
+import it.polimi.client.view.ScoreDisplay;
+import it.polimi.client.view.Timer;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
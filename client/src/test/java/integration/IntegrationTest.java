@@ -3,6 +3,8 @@ package integration;
 import it.polimi.client.ChessBoardClient;
 import it.polimi.common.Coder;
 import it.polimi.common.GameConfig;
+import it.polimi.client.view.ScoreDisplay;
+import it.polimi.client.view.Timer;
 import it.polimi.model.*;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
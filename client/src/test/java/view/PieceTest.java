@@ -1,6 +1,6 @@
-package model;
+package view;
 
-import it.polimi.model.Piece;
+import it.polimi.client.view.Piece;
 import it.polimi.model.PieceType;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
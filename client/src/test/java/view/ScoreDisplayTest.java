@@ -1,7 +1,7 @@
-package model;
+package view;
 
 import it.polimi.client.ChessBoardClient;
-import it.polimi.model.ScoreDisplay;
+import it.polimi.client.view.ScoreDisplay;
 import javafx.application.Platform;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.DisplayName;
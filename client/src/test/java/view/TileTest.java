@@ -1,8 +1,8 @@
-package model;
+package view;
 
-import it.polimi.model.Piece;
+import it.polimi.client.view.Piece;
 import it.polimi.model.PieceType;
-import it.polimi.model.Tile;
+import it.polimi.client.view.Tile;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
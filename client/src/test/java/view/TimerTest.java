@@ -1,6 +1,6 @@
-package model;
+package view;
 
-import it.polimi.model.Timer;
+import it.polimi.client.view.Timer;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 import static org.junit.jupiter.api.Assertions.*;
@@ -0,0 +1,195 @@
+package it.polimi.common;
+
+import it.polimi.model.PieceType;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Stato completo della partita in forma compatta, usato per risincronizzare un client.
+ * Le 32 caselle scure occupano 4 bit ciascuna; seguono turno, contatori e orologi,
+ * per un totale di 29 byte (40 caratteri Base64 sul protocollo testuale).
+ */
+public final class BoardSnapshot {
+
+    public static final String MESSAGE_PREFIX = "SNAPSHOT ";
+    public static final int SQUARES = 32;
+    public static final int NO_SQUARE = -1;
+
+    private static final int ENCODED_BYTES = 29;
+    private static final PieceType[] CODES = {null, PieceType.GRAY, PieceType.WHITE, PieceType.GRAY_SUP, PieceType.WHITE_SUP};
+
+    private final PieceType[] squares;
+    private final boolean whiteToMove;
+    private final int movesWithoutCapture;
+    private final int multiJumpSquare;
+    private final int ply;
+    private final int grayClockTenths;
+    private final int whiteClockTenths;
+
+    /**
+     * Crea uno snapshot; gli orologi sono espressi in decimi di secondo.
+     */
+    public BoardSnapshot(PieceType[] squares, boolean whiteToMove, int movesWithoutCapture,
+                         int multiJumpSquare, int ply, int grayClockTenths, int whiteClockTenths) {
+        if (squares == null || squares.length != SQUARES) {
+            throw new IllegalArgumentException("Snapshot needs exactly " + SQUARES + " squares");
+        }
+        if (multiJumpSquare < NO_SQUARE || multiJumpSquare >= SQUARES) {
+            throw new IllegalArgumentException("Invalid multi-jump square: " + multiJumpSquare);
+        }
+        this.squares = squares.clone();
+        this.whiteToMove = whiteToMove;
+        this.movesWithoutCapture = movesWithoutCapture;
+        this.multiJumpSquare = multiJumpSquare;
+        this.ply = ply;
+        this.grayClockTenths = grayClockTenths;
+        this.whiteClockTenths = whiteClockTenths;
+    }
+
+    /**
+     * Indice (0-31) della casella scura alle coordinate date.
+     */
+    public static int squareIndex(int x, int y) {
+        if (!GameConfig.isValidCoordinate(x, y) || (x + y) % 2 == 0) {
+            throw new IllegalArgumentException("Not a playable square: " + x + ", " + y);
+        }
+        return y * 4 + x / 2;
+    }
+
+    public static int squareX(int index) {
+        return (index % 4) * 2 + (squareY(index) % 2 == 0 ? 1 : 0);
+    }
+
+    public static int squareY(int index) {
+        return index / 4;
+    }
+
+    public PieceType getPieceType(int index) {
+        return squares[index];
+    }
+
+    public boolean isWhiteToMove() {
+        return whiteToMove;
+    }
+
+    public int getMovesWithoutCapture() {
+        return movesWithoutCapture;
+    }
+
+    public int getMultiJumpSquare() {
+        return multiJumpSquare;
+    }
+
+    public int getPly() {
+        return ply;
+    }
+
+    public int getGrayClockTenths() {
+        return grayClockTenths;
+    }
+
+    public int getWhiteClockTenths() {
+        return whiteClockTenths;
+    }
+
+    /**
+     * Conta le pedine (dame comprese) di un colore.
+     */
+    public int countPieces(boolean gray) {
+        int count = 0;
+        for (PieceType type : squares) {
+            if (type != null && (type == PieceType.GRAY || type == PieceType.GRAY_SUP) == gray) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(ENCODED_BYTES);
+        for (int i = 0; i < SQUARES; i += 2) {
+            buffer.put((byte) (code(squares[i]) << 4 | code(squares[i + 1])));
+        }
+        buffer.put((byte) (whiteToMove ? 1 : 0));
+        buffer.put((byte) movesWithoutCapture);
+        buffer.put((byte) multiJumpSquare);
+        buffer.putShort((short) ply);
+        buffer.putInt(grayClockTenths);
+        buffer.putInt(whiteClockTenths);
+        return buffer.array();
+    }
+
+    public static BoardSnapshot fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length != ENCODED_BYTES) {
+            throw new IllegalArgumentException("Invalid snapshot length");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        PieceType[] squares = new PieceType[SQUARES];
+        for (int i = 0; i < SQUARES; i += 2) {
+            int packed = buffer.get() & 0xFF;
+            squares[i] = decode(packed >>> 4);
+            squares[i + 1] = decode(packed & 0x0F);
+        }
+        boolean whiteToMove = buffer.get() != 0;
+        int movesWithoutCapture = buffer.get() & 0xFF;
+        int multiJumpSquare = buffer.get();
+        int ply = buffer.getShort() & 0xFFFF;
+        int grayClock = buffer.getInt();
+        int whiteClock = buffer.getInt();
+        return new BoardSnapshot(squares, whiteToMove, movesWithoutCapture, multiJumpSquare, ply, grayClock, whiteClock);
+    }
+
+    /**
+     * Riga di protocollo: "SNAPSHOT " seguito dai byte in Base64.
+     */
+    public String toMessage() {
+        return MESSAGE_PREFIX + Base64.getEncoder().withoutPadding().encodeToString(toBytes());
+    }
+
+    public static BoardSnapshot fromMessage(String message) {
+        if (message == null || !message.startsWith(MESSAGE_PREFIX)) {
+            throw new IllegalArgumentException("Not a snapshot message");
+        }
+        return fromBytes(Base64.getDecoder().decode(message.substring(MESSAGE_PREFIX.length()).trim()));
+    }
+
+    private static int code(PieceType type) {
+        if (type == null) {
+            return 0;
+        }
+        return switch (type) {
+            case GRAY -> 1;
+            case WHITE -> 2;
+            case GRAY_SUP -> 3;
+            case WHITE_SUP -> 4;
+        };
+    }
+
+    private static PieceType decode(int code) {
+        if (code >= CODES.length) {
+            throw new IllegalArgumentException("Invalid square code: " + code);
+        }
+        return CODES[code];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof BoardSnapshot other)) {
+            return false;
+        }
+        return whiteToMove == other.whiteToMove && movesWithoutCapture == other.movesWithoutCapture
+                && multiJumpSquare == other.multiJumpSquare && ply == other.ply
+                && grayClockTenths == other.grayClockTenths && whiteClockTenths == other.whiteClockTenths
+                && Arrays.equals(squares, other.squares);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(squares) + Boolean.hashCode(whiteToMove) + ply;
+    }
+}
@@ -13,8 +13,25 @@ public final class GameConfig {
     public static final int DEFAULT_PORT = 1234;
     public static final int CONNECTION_TIMEOUT = 5000;
     public static final int MOVE_TIMEOUT = 10;
+    public static final int RECONNECT_GRACE_SECONDS = 30;
+    public static final int METRICS_PORT = 9404;
+    public static final int ROUTER_CONTROL_PORT = 1300;
+    public static final int HEALTH_REPORT_MILLIS = 1000;
+    public static final String RECORDS_DIR = "games";
+    public static final String RATINGS_FILE = "ratings.tsv";
+    public static final int RATINGS_SNAPSHOT_SECONDS = 60;
+    public static final String HANDOFF_DIR = "handoff";
+    public static final int DRAIN_SECONDS = 120;
+    public static final int MAX_MATCHES = 1000;
+    public static final int MAX_CPU_MATCHES = 64;
+    public static final int MAX_PENDING_MATCHES = 100;
+    public static final int MAX_HANDSHAKES = 64;
+    public static final int BUSY_RETRY_SECONDS = 10;
+    public static final String BUSY_REPLY = "BUSY";
     public static final int MAX_MOVES_WITHOUT_CAPTURE = 40;
     public static final int INITIAL_PIECES_PER_PLAYER = 12;
+    public static final int AI_SEARCH_DEPTH = 8;
+    public static final int TRANSPOSITION_TABLE_MB = 16;
     public static final String LIGHT_TILE_COLOR = "#C1A89F";
     public static final String DARK_TILE_COLOR = "#5D5364";
     public static final String HIGHLIGHT_COLOR = "#BADA55";
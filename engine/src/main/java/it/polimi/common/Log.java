@@ -0,0 +1,268 @@
+package it.polimi.common;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Logger asincrono con filtro per livello.
+ * Il thread chiamante controlla il livello e copia template e argomenti in un ring buffer
+ * preallocato; la formattazione e la scrittura avvengono su un unico thread daemon.
+ * Se il buffer è pieno il messaggio viene scartato e contato, senza mai bloccare il chiamante.
+ * A buffer vuoto il thread di scrittura dorme senza timeout e lo sveglia il primo messaggio.
+ * Il livello si imposta con la proprietà di sistema {@code dama.log.level} (default INFO).
+ * Gli argomenti vengono convertiti in stringa più tardi: vanno passati solo valori immutabili.
+ */
+public final class Log {
+
+    public enum Level { DEBUG, INFO, WARN, ERROR, OFF }
+
+    static final int CAPACITY = 8192;
+    private static final int MASK = CAPACITY - 1;
+    private static final long FLUSH_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final Entry[] RING = new Entry[CAPACITY];
+    private static final AtomicLong claimed = new AtomicLong();
+    private static final AtomicLong dropped = new AtomicLong();
+    private static volatile long consumed = 0;
+    private static volatile Level threshold = parseLevel(System.getProperty("dama.log.level"));
+    private static volatile PrintStream output = System.out;
+    // Vero mentre il drainer sta per fermarsi o è fermo: chi pubblica deve svegliarlo
+    private static volatile boolean drainerParked = false;
+    private static final Thread DRAINER = new Thread(Log::drain, "log-drainer");
+
+    static {
+        for (int i = 0; i < CAPACITY; i++) {
+            RING[i] = new Entry();
+        }
+        DRAINER.setDaemon(true);
+        DRAINER.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> flush(500), "log-shutdown"));
+    }
+
+    private final String name;
+
+    private Log(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Logger con il nome semplice della classe come sorgente.
+     */
+    public static Log getLogger(Class<?> owner) {
+        return new Log(owner.getSimpleName());
+    }
+
+    public static void setLevel(Level level) {
+        threshold = level;
+    }
+
+    public static boolean isEnabled(Level level) {
+        return level != Level.OFF && level.ordinal() >= threshold.ordinal();
+    }
+
+    /**
+     * Cambia la destinazione dei messaggi (utile nei test).
+     */
+    public static void setOutput(PrintStream stream) {
+        output = stream;
+    }
+
+    /**
+     * Numero di messaggi scartati perché il buffer era pieno.
+     */
+    public static long droppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Attende che tutti i messaggi accodati finora siano stati scritti.
+     * @return false se il tempo è scaduto prima
+     */
+    public static boolean flush(long timeoutMillis) {
+        long target = claimed.get();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (consumed < target) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            LockSupport.parkNanos(FLUSH_POLL_NANOS);
+        }
+        return true;
+    }
+
+    // I messaggi usano "{}" come segnaposto, sostituiti solo dal thread di scrittura.
+    // Gli overload a numero fisso di argomenti evitano l'array dei varargs.
+
+    public void debug(String template) {
+        log(Level.DEBUG, template, 0, null, null, null, null);
+    }
+
+    public void debug(String template, Object arg) {
+        log(Level.DEBUG, template, 1, arg, null, null, null);
+    }
+
+    public void debug(String template, Object arg1, Object arg2) {
+        log(Level.DEBUG, template, 2, arg1, arg2, null, null);
+    }
+
+    public void debug(String template, Object arg1, Object arg2, Object arg3) {
+        log(Level.DEBUG, template, 3, arg1, arg2, arg3, null);
+    }
+
+    public void info(String template) {
+        log(Level.INFO, template, 0, null, null, null, null);
+    }
+
+    public void info(String template, Object arg) {
+        log(Level.INFO, template, 1, arg, null, null, null);
+    }
+
+    public void info(String template, Object arg1, Object arg2) {
+        log(Level.INFO, template, 2, arg1, arg2, null, null);
+    }
+
+    public void warn(String template) {
+        log(Level.WARN, template, 0, null, null, null, null);
+    }
+
+    public void warn(String template, Object arg) {
+        log(Level.WARN, template, 1, arg, null, null, null);
+    }
+
+    public void warn(String template, Object arg1, Object arg2) {
+        log(Level.WARN, template, 2, arg1, arg2, null, null);
+    }
+
+    public void error(String template, Throwable error) {
+        log(Level.ERROR, template, 0, null, null, null, error);
+    }
+
+    public void error(String template, Object arg, Throwable error) {
+        log(Level.ERROR, template, 1, arg, null, null, error);
+    }
+
+    public boolean isDebugEnabled() {
+        return isEnabled(Level.DEBUG);
+    }
+
+    private void log(Level level, String template, int argCount, Object arg1, Object arg2, Object arg3, Throwable error) {
+        if (!isEnabled(level)) {
+            return;
+        }
+
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed >= CAPACITY) {
+                dropped.incrementAndGet();
+                return;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+        Entry entry = RING[(int) (sequence & MASK)];
+        entry.timestamp = System.currentTimeMillis();
+        entry.level = level;
+        entry.source = name;
+        entry.thread = Thread.currentThread().getName();
+        entry.template = template;
+        entry.argCount = argCount;
+        entry.arg1 = arg1;
+        entry.arg2 = arg2;
+        entry.arg3 = arg3;
+        entry.error = error;
+        entry.published = sequence;
+        if (drainerParked) {
+            LockSupport.unpark(DRAINER);
+        }
+    }
+
+    private static void drain() {
+        StringBuilder line = new StringBuilder(256);
+        long next = 0;
+        while (true) {
+            Entry entry = RING[(int) (next & MASK)];
+            if (entry.published != next) {
+                output.flush();
+                // Il flag si alza prima di ricontrollare lo slot: un messaggio pubblicato nel frattempo
+                // viene visto qui oppure vede il flag e sveglia il drainer, che quindi non resta fermo
+                drainerParked = true;
+                if (entry.published != next) {
+                    LockSupport.park(Log.class);
+                }
+                drainerParked = false;
+                continue;
+            }
+
+            line.setLength(0);
+            format(entry, line);
+            PrintStream stream = output;
+            stream.println(line);
+            if (entry.error != null) {
+                entry.error.printStackTrace(stream);
+            }
+
+            // Rilascia i riferimenti prima di rendere lo slot riutilizzabile
+            entry.arg1 = null;
+            entry.arg2 = null;
+            entry.arg3 = null;
+            entry.error = null;
+            entry.template = null;
+            next++;
+            consumed = next;
+        }
+    }
+
+    private static void format(Entry entry, StringBuilder line) {
+        line.append(Instant.ofEpochMilli(entry.timestamp)).append(' ')
+                .append(entry.level).append(" [").append(entry.thread).append("] ")
+                .append(entry.source).append(" - ");
+        appendMessage(line, entry.template, entry.argCount, entry.arg1, entry.arg2, entry.arg3);
+    }
+
+    /**
+     * Sostituisce i segnaposto "{}" con gli argomenti, nell'ordine.
+     */
+    static void appendMessage(StringBuilder line, String template, int argCount, Object arg1, Object arg2, Object arg3) {
+        int argIndex = 0;
+        int start = 0;
+        int placeholder;
+        while (argIndex < argCount && (placeholder = template.indexOf("{}", start)) >= 0) {
+            Object arg = argIndex == 0 ? arg1 : argIndex == 1 ? arg2 : arg3;
+            line.append(template, start, placeholder).append(arg);
+            argIndex++;
+            start = placeholder + 2;
+        }
+        line.append(template, start, template.length());
+    }
+
+    private static Level parseLevel(String value) {
+        if (value == null) {
+            return Level.INFO;
+        }
+        try {
+            return Level.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return Level.INFO;
+        }
+    }
+
+    /**
+     * Slot del ring buffer; published viene scritto per ultimo e rende visibili gli altri campi.
+     */
+    private static final class Entry {
+        private volatile long published = -1;
+        private long timestamp;
+        private Level level;
+        private String source;
+        private String thread;
+        private String template;
+        private int argCount;
+        private Object arg1;
+        private Object arg2;
+        private Object arg3;
+        private Throwable error;
+    }
+}
@@ -0,0 +1,100 @@
+package it.polimi.model;
+
+import it.polimi.common.GameConfig;
+
+/**
+ * Represents a checker piece in the game engine.
+ * This is the headless counterpart of the client's drawable piece: it keeps
+ * the type and the position (in the same pixel space the protocol uses) but
+ * has no visual components, so the server can run without JavaFX.
+ */
+public class Piece {
+
+    private PieceType pieceType;
+    private double oldX;
+    private double oldY;
+
+    /**
+     * Gets the current piece type.
+     */
+    public PieceType getPieceType() {
+        return pieceType;
+    }
+
+    /**
+     * Creates a new checker piece at the specified board position.
+     */
+    public Piece(PieceType pieceType, int x, int y) {
+        if (pieceType == null) {
+            throw new IllegalArgumentException("PieceType cannot be null");
+        }
+        if (!GameConfig.isValidCoordinate(x, y)) {
+            throw new IllegalArgumentException("Invalid coordinates: " + x + ", " + y);
+        }
+
+        this.pieceType = pieceType;
+
+        // Calculate pixel position from board coordinates using GameConfig
+        oldX = GameConfig.boardToPixelCoordinate(x);
+        oldY = GameConfig.boardToPixelCoordinate(y);
+    }
+
+    /**
+     * Checks if this piece is a king
+     */
+    public boolean isKing() {
+        return pieceType == PieceType.GRAY_SUP || pieceType == PieceType.WHITE_SUP;
+    }
+    public double getOldX() {
+        return oldX;
+    }
+    public double getOldY() {
+        return oldY;
+    }
+    public int getBoardX() {
+        return GameConfig.pixelToBoardCoordinate(oldX);
+    }
+    public int getBoardY() {
+        return GameConfig.pixelToBoardCoordinate(oldY);
+    }
+
+    public void move(int x, int y) {
+        if (!GameConfig.isValidCoordinate(x, y)) {
+            throw new IllegalArgumentException("Invalid move coordinates: " + x + ", " + y);
+        }
+
+        oldX = GameConfig.boardToPixelCoordinate(x);
+        oldY = GameConfig.boardToPixelCoordinate(y);
+    }
+
+    /**
+     * Aborts the current move. Without a drag in progress the piece is
+     * already at its previous position, so there is nothing to undo.
+     */
+    public void abortMove() {
+    }
+    public void promote() {
+        pieceType = (pieceType == PieceType.GRAY) ? PieceType.GRAY_SUP : PieceType.WHITE_SUP;
+    }
+
+    /**
+     * Returns a string representation of this piece.
+     */
+    @Override
+    public String toString() {
+        return String.format("Piece{type=%s, position=(%d,%d), isKing=%s}",
+                pieceType, getBoardX(), getBoardY(), isKing());
+    }
+
+    /**
+     * Checks if this piece can move in the given direction based on its type.
+     */
+    public boolean canMoveInDirection(int deltaY) {
+        if (isKing()) {
+            return true; // Kings can move in any direction
+        }
+
+        // Regular pieces can only move forward
+        return deltaY == pieceType.moveDir;
+    }
+}
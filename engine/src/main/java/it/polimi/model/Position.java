@@ -0,0 +1,604 @@
+package it.polimi.model;
+
+import it.polimi.common.BoardSnapshot;
+import it.polimi.common.GameConfig;
+
+import java.util.SplittableRandom;
+
+/**
+ * Mutable game position for the search: the 32 dark squares (indexed as in BoardSnapshot)
+ * are held in three bit masks, and moves are made and unmade in place.
+ * <p>
+ * A move is a single step or a single jump, exactly as the protocol sends it: after a jump
+ * that can go on, the same side moves again with the same piece (see {@link #getMultiJumpSquare()}).
+ * The rules are the server's: captures are mandatory, men move and capture forwards only,
+ * kings one square in every direction, and a man that is promoted by a jump keeps jumping as a king.
+ * <p>
+ * Moves are packed into an int (see {@link #from(int)}, {@link #to(int)}, {@link #captured(int)}).
+ * {@link #make(int)} records what it changed on a preallocated undo stack and {@link #unmake()}
+ * restores it, so searching a tree allocates nothing.
+ * Every position also carries a Zobrist {@link #key()}, kept up to date by make and unmake.
+ * A position is not thread-safe; parallel searches work on their own {@link #copy()}.
+ */
+public final class Position {
+    /** Upper bound on the moves of a single position (12 kings with 4 steps each, with room to spare). */
+    public static final int MAX_MOVES = 64;
+
+    private static final int NO_SQUARE = BoardSnapshot.NO_SQUARE;
+    private static final int INITIAL_UNDO_CAPACITY = 128;
+
+    // Directions: 0 = (-1,-1), 1 = (+1,-1), 2 = (-1,+1), 3 = (+1,+1); white men move towards y = 0
+    private static final int[] DX = {-1, 1, -1, 1};
+    private static final int[] DY = {-1, -1, 1, 1};
+    private static final int[][] STEP = new int[4][BoardSnapshot.SQUARES];
+    private static final int[][] JUMP = new int[4][BoardSnapshot.SQUARES];
+    private static final int GRAY_PROMOTION_ROW = 0xF0000000;
+    private static final int WHITE_PROMOTION_ROW = 0x0000000F;
+
+    // Move layout: from (5 bits) | to (5 bits) | capture flag | captured square (5 bits)
+    private static final int TO_SHIFT = 5;
+    private static final int CAPTURE_FLAG = 1 << 10;
+    private static final int CAPTURED_SHIFT = 11;
+
+    // Undo layout: previous multi-jump square + 1 (6 bits) | captured king | promoted | white to move | moves without capture
+    private static final int UNDO_CAPTURED_KING = 1 << 6;
+    private static final int UNDO_PROMOTED = 1 << 7;
+    private static final int UNDO_WHITE_TO_MOVE = 1 << 8;
+    private static final int UNDO_COUNTER_SHIFT = 9;
+
+    // Zobrist keys, from a fixed seed so that a key means the same position in every JVM
+    private static final long ZOBRIST_SEED = 0x5DEECE66DL;
+    private static final long[][] PIECE_KEYS = new long[4][BoardSnapshot.SQUARES];
+    private static final long[] MULTI_JUMP_KEYS = new long[BoardSnapshot.SQUARES];
+    private static final long[] COUNTER_KEYS = new long[GameConfig.MAX_MOVES_WITHOUT_CAPTURE + 1];
+    private static final long WHITE_TO_MOVE_KEY;
+
+    static {
+        for (int square = 0; square < BoardSnapshot.SQUARES; square++) {
+            int x = BoardSnapshot.squareX(square);
+            int y = BoardSnapshot.squareY(square);
+            for (int dir = 0; dir < 4; dir++) {
+                STEP[dir][square] = squareAt(x + DX[dir], y + DY[dir]);
+                JUMP[dir][square] = squareAt(x + 2 * DX[dir], y + 2 * DY[dir]);
+            }
+        }
+        SplittableRandom random = new SplittableRandom(ZOBRIST_SEED);
+        for (long[] keys : PIECE_KEYS) {
+            for (int square = 0; square < BoardSnapshot.SQUARES; square++) {
+                keys[square] = random.nextLong();
+            }
+        }
+        for (int square = 0; square < BoardSnapshot.SQUARES; square++) {
+            MULTI_JUMP_KEYS[square] = random.nextLong();
+        }
+        for (int count = 0; count < COUNTER_KEYS.length; count++) {
+            COUNTER_KEYS[count] = random.nextLong();
+        }
+        WHITE_TO_MOVE_KEY = random.nextLong();
+    }
+
+    private int gray;
+    private int white;
+    private int kings;
+    private boolean whiteToMove;
+    private int multiJumpSquare;
+    private int movesWithoutCapture;
+    private long key;
+
+    private int[] undoMoves = new int[INITIAL_UNDO_CAPACITY];
+    private int[] undoStates = new int[INITIAL_UNDO_CAPACITY];
+    private long[] undoKeys = new long[INITIAL_UNDO_CAPACITY];
+    private int undoSize;
+
+    /**
+     * Creates a position from the contents of the 32 dark squares (null for empty).
+     */
+    public Position(PieceType[] squares, boolean whiteToMove, int movesWithoutCapture, int multiJumpSquare) {
+        if (squares == null || squares.length != BoardSnapshot.SQUARES) {
+            throw new IllegalArgumentException("Position needs exactly " + BoardSnapshot.SQUARES + " squares");
+        }
+        for (int square = 0; square < BoardSnapshot.SQUARES; square++) {
+            PieceType type = squares[square];
+            if (type == null) {
+                continue;
+            }
+            int bit = 1 << square;
+            if (type == PieceType.WHITE || type == PieceType.WHITE_SUP) {
+                white |= bit;
+            } else {
+                gray |= bit;
+            }
+            if (type == PieceType.GRAY_SUP || type == PieceType.WHITE_SUP) {
+                kings |= bit;
+            }
+        }
+        if (multiJumpSquare != NO_SQUARE && ((whiteToMove ? white : gray) & (1 << multiJumpSquare)) == 0) {
+            throw new IllegalArgumentException("No piece of the side to move on multi-jump square " + multiJumpSquare);
+        }
+        this.whiteToMove = whiteToMove;
+        this.multiJumpSquare = multiJumpSquare;
+        this.movesWithoutCapture = movesWithoutCapture;
+        this.key = computeKey();
+    }
+
+    private Position(Position other) {
+        gray = other.gray;
+        white = other.white;
+        kings = other.kings;
+        whiteToMove = other.whiteToMove;
+        multiJumpSquare = other.multiJumpSquare;
+        movesWithoutCapture = other.movesWithoutCapture;
+        key = other.key;
+    }
+
+    /**
+     * The starting position: gray on rows 0-2, white on rows 5-7, white to move.
+     */
+    public static Position initial() {
+        PieceType[] squares = new PieceType[BoardSnapshot.SQUARES];
+        for (int square = 0; square < BoardSnapshot.SQUARES; square++) {
+            int y = BoardSnapshot.squareY(square);
+            if (y <= 2) {
+                squares[square] = PieceType.GRAY;
+            } else if (y >= 5) {
+                squares[square] = PieceType.WHITE;
+            }
+        }
+        return new Position(squares, true, 0, NO_SQUARE);
+    }
+
+    public static Position fromSnapshot(BoardSnapshot snapshot) {
+        PieceType[] squares = new PieceType[BoardSnapshot.SQUARES];
+        for (int square = 0; square < BoardSnapshot.SQUARES; square++) {
+            squares[square] = snapshot.getPieceType(square);
+        }
+        return new Position(squares, snapshot.isWhiteToMove(), snapshot.getMovesWithoutCapture(),
+                snapshot.getMultiJumpSquare());
+    }
+
+    /**
+     * Parses the {@link #toString()} format, e.g. the starting position
+     * "gggggggggggg........wwwwwwwwwwww w".
+     */
+    public static Position parse(String text) {
+        if (text.length() != BoardSnapshot.SQUARES + 2 || text.charAt(BoardSnapshot.SQUARES) != ' ') {
+            throw new IllegalArgumentException("Invalid position: " + text);
+        }
+        PieceType[] squares = new PieceType[BoardSnapshot.SQUARES];
+        for (int square = 0; square < BoardSnapshot.SQUARES; square++) {
+            squares[square] = switch (text.charAt(square)) {
+                case 'g' -> PieceType.GRAY;
+                case 'w' -> PieceType.WHITE;
+                case 'G' -> PieceType.GRAY_SUP;
+                case 'W' -> PieceType.WHITE_SUP;
+                case '.' -> null;
+                default -> throw new IllegalArgumentException("Invalid square '" + text.charAt(square) + "' in " + text);
+            };
+        }
+        char side = text.charAt(BoardSnapshot.SQUARES + 1);
+        if (side != 'w' && side != 'g') {
+            throw new IllegalArgumentException("Invalid side to move in " + text);
+        }
+        return new Position(squares, side == 'w', 0, NO_SQUARE);
+    }
+
+    /**
+     * Reads the pieces off a board of tiles indexed [x][y]; the board does not know the draw
+     * counter, so the caller passes the referee's.
+     */
+    public static Position fromBoard(Tile[][] board, boolean whiteToMove, int movesWithoutCapture, int multiJumpSquare) {
+        PieceType[] squares = new PieceType[BoardSnapshot.SQUARES];
+        for (int square = 0; square < BoardSnapshot.SQUARES; square++) {
+            Tile tile = board[BoardSnapshot.squareX(square)][BoardSnapshot.squareY(square)];
+            squares[square] = tile.hasPiece() ? tile.getPiece().getPieceType() : null;
+        }
+        return new Position(squares, whiteToMove, movesWithoutCapture, multiJumpSquare);
+    }
+
+    /**
+     * The pieces on a new board of tiles indexed [x][y], as {@link #fromBoard} reads them.
+     */
+    public Tile[][] toBoard() {
+        Tile[][] board = new Tile[GameConfig.BOARD_WIDTH][GameConfig.BOARD_HEIGHT];
+        for (int y = 0; y < GameConfig.BOARD_HEIGHT; y++) {
+            for (int x = 0; x < GameConfig.BOARD_WIDTH; x++) {
+                board[x][y] = new Tile((x + y) % 2 == 0, x, y);
+            }
+        }
+        for (int square = 0; square < BoardSnapshot.SQUARES; square++) {
+            PieceType type = pieceAt(square);
+            if (type != null) {
+                int x = BoardSnapshot.squareX(square);
+                int y = BoardSnapshot.squareY(square);
+                board[x][y].setPiece(new Piece(type, x, y));
+            }
+        }
+        return board;
+    }
+
+    /**
+     * An independent copy of the current state, with an empty undo stack.
+     */
+    public Position copy() {
+        return new Position(this);
+    }
+
+    public PieceType pieceAt(int square) {
+        int bit = 1 << square;
+        if ((white & bit) != 0) {
+            return (kings & bit) != 0 ? PieceType.WHITE_SUP : PieceType.WHITE;
+        }
+        if ((gray & bit) != 0) {
+            return (kings & bit) != 0 ? PieceType.GRAY_SUP : PieceType.GRAY;
+        }
+        return null;
+    }
+
+    public boolean isWhiteToMove() {
+        return whiteToMove;
+    }
+
+    /**
+     * The square of the piece that has to keep jumping, or BoardSnapshot.NO_SQUARE.
+     */
+    public int getMultiJumpSquare() {
+        return multiJumpSquare;
+    }
+
+    public int getMovesWithoutCapture() {
+        return movesWithoutCapture;
+    }
+
+    /**
+     * Zobrist hash of everything the rules look at: the pieces, the side to move, the square of a
+     * multi-jump in progress and the moves without capture, so that positions with the same key
+     * have the same legal moves and the same distance from a draw.
+     */
+    public long key() {
+        return key;
+    }
+
+    public int countMen(boolean white) {
+        return Integer.bitCount((white ? this.white : gray) & ~kings);
+    }
+
+    public int countKings(boolean white) {
+        return Integer.bitCount((white ? this.white : gray) & kings);
+    }
+
+    public int countPieces(boolean white) {
+        return Integer.bitCount(white ? this.white : gray);
+    }
+
+    /**
+     * Bit mask of the squares held by one side, bit i standing for square i.
+     */
+    public int pieces(boolean white) {
+        return white ? this.white : gray;
+    }
+
+    public int kings() {
+        return kings;
+    }
+
+    /**
+     * True when the game is drawn by the GameConfig.MAX_MOVES_WITHOUT_CAPTURE rule.
+     */
+    public boolean isDraw() {
+        return movesWithoutCapture >= GameConfig.MAX_MOVES_WITHOUT_CAPTURE;
+    }
+
+    /**
+     * Writes the legal moves into moves[offset...]: only captures when there is one, and only
+     * the jumping piece's captures during a multi-jump.
+     * @return how many moves were written, at most MAX_MOVES
+     */
+    public int generateMoves(int[] moves, int offset) {
+        int count = generateCaptures(moves, offset);
+        if (count > 0 || multiJumpSquare != NO_SQUARE) {
+            return count;
+        }
+        int own = whiteToMove ? white : gray;
+        int empty = ~(white | gray);
+        for (int pieces = own; pieces != 0; pieces &= pieces - 1) {
+            int from = Integer.numberOfTrailingZeros(pieces);
+            boolean king = (kings & (1 << from)) != 0;
+            for (int dir = firstDirection(king); dir < lastDirection(king); dir++) {
+                int to = STEP[dir][from];
+                if (to != NO_SQUARE && (empty & (1 << to)) != 0) {
+                    moves[offset + count++] = from | to << TO_SHIFT;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Writes only the captures into moves[offset...]; these are the legal moves whenever there is one.
+     * @return how many captures were written
+     */
+    public int generateCaptures(int[] moves, int offset) {
+        if (multiJumpSquare != NO_SQUARE) {
+            return addCaptures(moves, offset, multiJumpSquare);
+        }
+        int count = 0;
+        for (int pieces = whiteToMove ? white : gray; pieces != 0; pieces &= pieces - 1) {
+            count += addCaptures(moves, offset + count, Integer.numberOfTrailingZeros(pieces));
+        }
+        return count;
+    }
+
+    public boolean hasCapture() {
+        if (multiJumpSquare != NO_SQUARE) {
+            return canCapture(multiJumpSquare);
+        }
+        for (int pieces = whiteToMove ? white : gray; pieces != 0; pieces &= pieces - 1) {
+            if (canCapture(Integer.numberOfTrailingZeros(pieces))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int addCaptures(int[] moves, int offset, int from) {
+        boolean king = (kings & (1 << from)) != 0;
+        int opponent = whiteToMove ? gray : white;
+        int empty = ~(white | gray);
+        int count = 0;
+        for (int dir = firstDirection(king); dir < lastDirection(king); dir++) {
+            int over = STEP[dir][from];
+            int to = JUMP[dir][from];
+            if (to != NO_SQUARE && (opponent & (1 << over)) != 0 && (empty & (1 << to)) != 0) {
+                moves[offset + count++] = from | to << TO_SHIFT | CAPTURE_FLAG | over << CAPTURED_SHIFT;
+            }
+        }
+        return count;
+    }
+
+    private boolean canCapture(int from) {
+        boolean king = (kings & (1 << from)) != 0;
+        int opponent = whiteToMove ? gray : white;
+        int empty = ~(white | gray);
+        for (int dir = firstDirection(king); dir < lastDirection(king); dir++) {
+            int to = JUMP[dir][from];
+            if (to != NO_SQUARE && (opponent & (1 << STEP[dir][from])) != 0 && (empty & (1 << to)) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Men of the side to move use the two forward directions, kings all four
+    private int firstDirection(boolean king) {
+        return king || whiteToMove ? 0 : 2;
+    }
+
+    private int lastDirection(boolean king) {
+        return king || !whiteToMove ? 4 : 2;
+    }
+
+    /**
+     * Plays a move produced by {@link #generateMoves}; the move is not validated.
+     */
+    public void make(int move) {
+        if (undoSize == undoMoves.length) {
+            growUndo();
+        }
+        int from = from(move);
+        int to = to(move);
+        int fromBit = 1 << from;
+        int toBit = 1 << to;
+        int state = (multiJumpSquare + 1) | movesWithoutCapture << UNDO_COUNTER_SHIFT;
+        undoKeys[undoSize] = key;
+        int mover = pieceKeyIndex(whiteToMove, (kings & fromBit) != 0);
+        key ^= PIECE_KEYS[mover][from] ^ counterKey(movesWithoutCapture);
+        if (multiJumpSquare != NO_SQUARE) {
+            key ^= MULTI_JUMP_KEYS[multiJumpSquare];
+        }
+        if (whiteToMove) {
+            state |= UNDO_WHITE_TO_MOVE;
+            white ^= fromBit | toBit;
+        } else {
+            gray ^= fromBit | toBit;
+        }
+        if ((kings & fromBit) != 0) {
+            kings ^= fromBit | toBit;
+        } else if ((toBit & (whiteToMove ? WHITE_PROMOTION_ROW : GRAY_PROMOTION_ROW)) != 0) {
+            kings |= toBit;
+            state |= UNDO_PROMOTED;
+        }
+        key ^= PIECE_KEYS[pieceKeyIndex(whiteToMove, (kings & toBit) != 0)][to];
+
+        if (isCapture(move)) {
+            int capturedBit = 1 << captured(move);
+            key ^= PIECE_KEYS[pieceKeyIndex(!whiteToMove, (kings & capturedBit) != 0)][captured(move)];
+            if ((kings & capturedBit) != 0) {
+                state |= UNDO_CAPTURED_KING;
+                kings &= ~capturedBit;
+            }
+            if (whiteToMove) {
+                gray &= ~capturedBit;
+            } else {
+                white &= ~capturedBit;
+            }
+            movesWithoutCapture = 0;
+            if (canCapture(to)) {
+                multiJumpSquare = to;
+            } else {
+                multiJumpSquare = NO_SQUARE;
+                whiteToMove = !whiteToMove;
+            }
+        } else {
+            movesWithoutCapture++;
+            multiJumpSquare = NO_SQUARE;
+            whiteToMove = !whiteToMove;
+        }
+        key ^= counterKey(movesWithoutCapture);
+        if (multiJumpSquare != NO_SQUARE) {
+            key ^= MULTI_JUMP_KEYS[multiJumpSquare];
+        } else {
+            key ^= WHITE_TO_MOVE_KEY;
+        }
+        undoMoves[undoSize] = move;
+        undoStates[undoSize] = state;
+        undoSize++;
+    }
+
+    /**
+     * Takes back the last move made.
+     * @throws IllegalStateException if there is nothing to take back
+     */
+    public void unmake() {
+        if (undoSize == 0) {
+            throw new IllegalStateException("No move to unmake");
+        }
+        undoSize--;
+        int move = undoMoves[undoSize];
+        int state = undoStates[undoSize];
+        key = undoKeys[undoSize];
+        int fromBit = 1 << from(move);
+        int toBit = 1 << to(move);
+        boolean white = (state & UNDO_WHITE_TO_MOVE) != 0;
+
+        whiteToMove = white;
+        multiJumpSquare = (state & 0x3F) - 1;
+        movesWithoutCapture = state >>> UNDO_COUNTER_SHIFT;
+        if (white) {
+            this.white ^= fromBit | toBit;
+        } else {
+            gray ^= fromBit | toBit;
+        }
+        if ((state & UNDO_PROMOTED) != 0) {
+            kings &= ~toBit;
+        } else if ((kings & toBit) != 0) {
+            kings ^= fromBit | toBit;
+        }
+        if (isCapture(move)) {
+            int capturedBit = 1 << captured(move);
+            if (white) {
+                gray |= capturedBit;
+            } else {
+                this.white |= capturedBit;
+            }
+            if ((state & UNDO_CAPTURED_KING) != 0) {
+                kings |= capturedBit;
+            }
+        }
+    }
+
+    private void growUndo() {
+        int[] moves = new int[undoMoves.length * 2];
+        int[] states = new int[undoStates.length * 2];
+        long[] keys = new long[undoKeys.length * 2];
+        System.arraycopy(undoMoves, 0, moves, 0, undoSize);
+        System.arraycopy(undoStates, 0, states, 0, undoSize);
+        System.arraycopy(undoKeys, 0, keys, 0, undoSize);
+        undoMoves = moves;
+        undoStates = states;
+        undoKeys = keys;
+    }
+
+    private long computeKey() {
+        long hash = counterKey(movesWithoutCapture);
+        for (int square = 0; square < BoardSnapshot.SQUARES; square++) {
+            int bit = 1 << square;
+            if (((white | gray) & bit) != 0) {
+                hash ^= PIECE_KEYS[pieceKeyIndex((white & bit) != 0, (kings & bit) != 0)][square];
+            }
+        }
+        if (multiJumpSquare != NO_SQUARE) {
+            hash ^= MULTI_JUMP_KEYS[multiJumpSquare];
+        }
+        return whiteToMove ? hash ^ WHITE_TO_MOVE_KEY : hash;
+    }
+
+    private static int pieceKeyIndex(boolean white, boolean king) {
+        return (white ? 2 : 0) + (king ? 1 : 0);
+    }
+
+    // Counts past the draw limit all hash alike: the game is over either way
+    private static long counterKey(int movesWithoutCapture) {
+        return COUNTER_KEYS[Math.min(movesWithoutCapture, COUNTER_KEYS.length - 1)];
+    }
+
+    /**
+     * Counts the move paths of the given length, each jump of a multi-jump counting as one move.
+     * Used to check the move generator and to measure make/unmake speed.
+     */
+    public long perft(int depth) {
+        return perft(depth, new int[Math.max(1, depth) * MAX_MOVES]);
+    }
+
+    private long perft(int depth, int[] moves) {
+        if (depth == 0) {
+            return 1;
+        }
+        int offset = (depth - 1) * MAX_MOVES;
+        int count = generateMoves(moves, offset);
+        if (depth == 1) {
+            return count;
+        }
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            make(moves[offset + i]);
+            nodes += perft(depth - 1, moves);
+            unmake();
+        }
+        return nodes;
+    }
+
+    public static int from(int move) {
+        return move & 0x1F;
+    }
+
+    public static int to(int move) {
+        return move >>> TO_SHIFT & 0x1F;
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & CAPTURE_FLAG) != 0;
+    }
+
+    /**
+     * The square of the captured piece; only meaningful when {@link #isCapture(int)}.
+     */
+    public static int captured(int move) {
+        return move >>> CAPTURED_SHIFT & 0x1F;
+    }
+
+    /**
+     * The move as the protocol sends it: "fromX fromY toX toY".
+     */
+    public static String toProtocol(int move) {
+        int from = from(move);
+        int to = to(move);
+        return BoardSnapshot.squareX(from) + " " + BoardSnapshot.squareY(from) + " "
+                + BoardSnapshot.squareX(to) + " " + BoardSnapshot.squareY(to);
+    }
+
+    private static int squareAt(int x, int y) {
+        if (!GameConfig.isValidCoordinate(x, y)) {
+            return NO_SQUARE;
+        }
+        return BoardSnapshot.squareIndex(x, y);
+    }
+
+    /**
+     * One character per square, 0 to 31: g/w for men, G/W for kings, '.' for empty;
+     * then the side to move.
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(BoardSnapshot.SQUARES + 2);
+        for (int square = 0; square < BoardSnapshot.SQUARES; square++) {
+            PieceType type = pieceAt(square);
+            text.append(type == null ? '.' : switch (type) {
+                case GRAY -> 'g';
+                case WHITE -> 'w';
+                case GRAY_SUP -> 'G';
+                case WHITE_SUP -> 'W';
+            });
+        }
+        return text.append(whiteToMove ? " w" : " g").toString();
+    }
+}
@@ -0,0 +1,107 @@
+package it.polimi.model;
+
+import it.polimi.common.GameConfig;
+
+/**
+ * Represents a single square of the checkers board in the game engine.
+ * Each tile can be light or dark and may contain a piece; unlike the
+ * client's tile it has no size, colour or highlight.
+ */
+public class Tile {
+    private Piece piece;
+    private final boolean isLight;
+    private final int x, y;
+
+    /**
+     * Creates a new tile at the specified position.
+     */
+    public Tile(boolean isLight, int x, int y) {
+        if (!GameConfig.isValidCoordinate(x, y)) {
+            throw new IllegalArgumentException("Invalid tile coordinates: " + x + ", " + y);
+        }
+
+        this.isLight = isLight;
+        this.x = x;
+        this.y = y;
+    }
+
+    public int getBoardX() {
+        return x;
+    }
+    public int getBoardY() {
+        return y;
+    }
+    public boolean isLight() {
+        return isLight;
+    }
+    public boolean isDark() {
+        return !isLight;
+    }
+
+    /**
+     * Checks if this tile contains a piece.
+     */
+    public boolean hasPiece() {
+        return piece != null;
+    }
+
+    /**
+     * Gets the piece on this tile.
+     */
+    public Piece getPiece() {
+        return piece;
+    }
+
+    /**
+     * Sets the piece on this tile.
+     */
+    public void setPiece(Piece piece) {
+        this.piece = piece;
+    }
+
+    public boolean isValidSquare() {
+        return !isLight;
+    }
+
+    public boolean isEdgeTile() {
+        return x == 0 || x == GameConfig.BOARD_WIDTH - 1 ||
+                y == 0 || y == GameConfig.BOARD_HEIGHT - 1;
+    }
+
+    public boolean isCornerTile() {
+        return (x == 0 || x == GameConfig.BOARD_WIDTH - 1) &&
+                (y == 0 || y == GameConfig.BOARD_HEIGHT - 1);
+    }
+
+    /**
+     * Gets the Manhattan distance to another tile.
+     */
+    public int distanceTo(Tile other) {
+        if (other == null) {
+            throw new IllegalArgumentException("Other tile cannot be null");
+        }
+        return Math.abs(this.x - other.x) + Math.abs(this.y - other.y);
+    }
+
+    public boolean isAdjacentTo(Tile other) {
+        return distanceTo(other) == 1;
+    }
+
+    public boolean isDiagonalTo(Tile other) {
+        if (other == null) {
+            return false;
+        }
+        int deltaX = Math.abs(this.x - other.x);
+        int deltaY = Math.abs(this.y - other.y);
+        return deltaX == 1 && deltaY == 1;
+    }
+
+    /**
+     * Returns a string representation of this tile.
+     */
+    @Override
+    public String toString() {
+        return String.format("Tile{pos=(%d,%d), light=%s, piece=%s}",
+                x, y, isLight, (piece != null ? piece.getPieceType() : "none"));
+    }
+}
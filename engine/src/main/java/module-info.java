@@ -0,0 +1,6 @@
+module DamaEngine {
+    opens it.polimi.common;
+    exports it.polimi.common;
+    opens it.polimi.model;
+    exports it.polimi.model;
+}
@@ -0,0 +1,86 @@
+package common;
+
+import it.polimi.common.BoardSnapshot;
+import it.polimi.model.PieceType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per lo snapshot compatto della scacchiera.
+ */
+class BoardSnapshotTest {
+
+    private PieceType[] initialSquares() {
+        PieceType[] squares = new PieceType[BoardSnapshot.SQUARES];
+        for (int index = 0; index < BoardSnapshot.SQUARES; index++) {
+            int y = BoardSnapshot.squareY(index);
+            if (y <= 2) {
+                squares[index] = PieceType.GRAY;
+            } else if (y >= 5) {
+                squares[index] = PieceType.WHITE;
+            }
+        }
+        return squares;
+    }
+
+    @Test
+    @DisplayName("Test mappatura indici delle caselle scure")
+    void testSquareIndexMapping() {
+        for (int index = 0; index < BoardSnapshot.SQUARES; index++) {
+            int x = BoardSnapshot.squareX(index);
+            int y = BoardSnapshot.squareY(index);
+            assertEquals(1, (x + y) % 2, "La casella deve essere scura");
+            assertEquals(index, BoardSnapshot.squareIndex(x, y));
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> BoardSnapshot.squareIndex(0, 0));
+        assertThrows(IllegalArgumentException.class, () -> BoardSnapshot.squareIndex(8, 1));
+    }
+
+    @Test
+    @DisplayName("Test round trip binario e testuale")
+    void testRoundTrip() {
+        PieceType[] squares = initialSquares();
+        squares[13] = PieceType.WHITE_SUP;
+        squares[14] = PieceType.GRAY_SUP;
+        BoardSnapshot snapshot = new BoardSnapshot(squares, true, 17, 14, 321, 1234, 98765);
+
+        assertEquals(29, snapshot.toBytes().length);
+        assertEquals(snapshot, BoardSnapshot.fromBytes(snapshot.toBytes()));
+
+        String message = snapshot.toMessage();
+        assertTrue(message.startsWith("SNAPSHOT "));
+        assertTrue(message.length() < 64);
+
+        BoardSnapshot decoded = BoardSnapshot.fromMessage(message);
+        assertEquals(snapshot, decoded);
+        assertEquals(PieceType.WHITE_SUP, decoded.getPieceType(13));
+        assertTrue(decoded.isWhiteToMove());
+        assertEquals(17, decoded.getMovesWithoutCapture());
+        assertEquals(14, decoded.getMultiJumpSquare());
+        assertEquals(321, decoded.getPly());
+        assertEquals(1234, decoded.getGrayClockTenths());
+        assertEquals(98765, decoded.getWhiteClockTenths());
+    }
+
+    @Test
+    @DisplayName("Test nessun multi-jump e conteggio pedine")
+    void testNoMultiJumpAndCounts() {
+        BoardSnapshot snapshot = new BoardSnapshot(initialSquares(), false, 0, BoardSnapshot.NO_SQUARE, 1, 0, 0);
+        BoardSnapshot decoded = BoardSnapshot.fromMessage(snapshot.toMessage());
+
+        assertEquals(BoardSnapshot.NO_SQUARE, decoded.getMultiJumpSquare());
+        assertEquals(12, decoded.countPieces(true));
+        assertEquals(12, decoded.countPieces(false));
+    }
+
+    @Test
+    @DisplayName("Test snapshot non validi")
+    void testInvalidSnapshots() {
+        assertThrows(IllegalArgumentException.class, () -> new BoardSnapshot(new PieceType[10], false, 0, -1, 0, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> BoardSnapshot.fromMessage("PING"));
+        assertThrows(IllegalArgumentException.class, () -> BoardSnapshot.fromBytes(new byte[3]));
+    }
+}
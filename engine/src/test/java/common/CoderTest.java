@@ -291,4 +291,4 @@ class CoderTest {
             fail("Unexpected exception type: " + e.getClass());
         }
     }
-}
\ No newline at end of file
+}
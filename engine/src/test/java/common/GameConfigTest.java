@@ -95,6 +95,8 @@ class GameConfigTest {
     void testGameRuleConstants() {
         assertEquals(40, GameConfig.MAX_MOVES_WITHOUT_CAPTURE);
         assertEquals(12, GameConfig.INITIAL_PIECES_PER_PLAYER);
+        assertTrue(GameConfig.AI_SEARCH_DEPTH > 0);
+        assertTrue(GameConfig.TRANSPOSITION_TABLE_MB > 0);
         assertTrue(GameConfig.CONNECTION_TIMEOUT > 0);
         assertTrue(GameConfig.MOVE_TIMEOUT > 0);
     }
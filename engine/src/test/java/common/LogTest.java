@@ -0,0 +1,132 @@
+package common;
+
+import it.polimi.common.Log;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per il logger asincrono.
+ */
+class LogTest {
+
+    private static final Log LOG = Log.getLogger(LogTest.class);
+
+    private ByteArrayOutputStream captured;
+
+    @BeforeEach
+    void setUp() {
+        assertTrue(Log.flush(2000));
+        captured = new ByteArrayOutputStream();
+        Log.setOutput(new PrintStream(captured, true, StandardCharsets.UTF_8));
+        Log.setLevel(Log.Level.INFO);
+    }
+
+    @AfterEach
+    void tearDown() {
+        Log.flush(2000);
+        Log.setOutput(System.out);
+        Log.setLevel(Log.Level.INFO);
+    }
+
+    private String output() {
+        assertTrue(Log.flush(2000), "Il logger non ha svuotato il buffer in tempo");
+        return captured.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    @DisplayName("Test sostituzione dei segnaposto")
+    void testPlaceholders() {
+        LOG.info("Match {}: player {} reconnected", 7, 2);
+
+        String out = output();
+        assertTrue(out.contains("INFO"));
+        assertTrue(out.contains("LogTest - Match 7: player 2 reconnected"));
+    }
+
+    @Test
+    @DisplayName("Test filtro per livello")
+    void testLevelGating() {
+        LOG.debug("hidden {}", 1);
+        LOG.warn("shown {}", 2);
+
+        String out = output();
+        assertFalse(out.contains("hidden"));
+        assertTrue(out.contains("WARN"));
+        assertTrue(out.contains("shown 2"));
+        assertFalse(LOG.isDebugEnabled());
+
+        Log.setLevel(Log.Level.DEBUG);
+        assertTrue(LOG.isDebugEnabled());
+        Log.setLevel(Log.Level.OFF);
+        assertFalse(Log.isEnabled(Log.Level.ERROR));
+    }
+
+    @Test
+    @DisplayName("Test ordine dei messaggi da più thread")
+    void testOrderPerThread() throws InterruptedException {
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int id = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 200; i++) {
+                    LOG.info("thread {} message {}", id, i);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        String out = output();
+        for (int t = 0; t < threads.length; t++) {
+            int previous = -1;
+            for (int i = 0; i < 200; i++) {
+                int position = out.indexOf("thread " + t + " message " + i + System.lineSeparator());
+                assertTrue(position > previous, "Messaggio mancante o fuori ordine: " + t + "/" + i);
+                previous = position;
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Test stack trace degli errori")
+    void testErrorWithThrowable() {
+        LOG.error("Match {} aborted", 3, new IllegalStateException("boom"));
+
+        String out = output();
+        assertTrue(out.contains("ERROR"));
+        assertTrue(out.contains("Match 3 aborted"));
+        assertTrue(out.contains("java.lang.IllegalStateException: boom"));
+    }
+
+    @Test
+    @DisplayName("Test drainer fermo senza timeout e risvegliato dal primo messaggio")
+    void testIdleDrainerWakesUp() throws InterruptedException {
+        Thread drainer = Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals("log-drainer"))
+                .findFirst().orElseThrow();
+        long deadline = System.currentTimeMillis() + 2000;
+        while (drainer.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        // Buffer vuoto: park senza timeout, non un polling a intervalli
+        assertEquals(Thread.State.WAITING, drainer.getState());
+
+        for (int i = 0; i < 100; i++) {
+            Thread.sleep(i % 10 == 0 ? 5 : 0);
+            LOG.info("Messaggio {}", i);
+        }
+        String out = output();
+        assertTrue(out.contains("Messaggio 0"));
+        assertTrue(out.contains("Messaggio 99"));
+    }
+}
@@ -0,0 +1,247 @@
+package model;
+
+import it.polimi.common.BoardSnapshot;
+import it.polimi.model.PieceType;
+import it.polimi.model.Position;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per la generazione delle mosse e il make/unmake di Position
+ */
+class PositionTest {
+
+    @Test
+    @DisplayName("Test posizione iniziale e perft")
+    void testInitialPerft() {
+        Position position = Position.initial();
+        assertEquals("gggggggggggg........wwwwwwwwwwww w", position.toString());
+        assertEquals(12, position.countPieces(true));
+        assertEquals(12, position.countPieces(false));
+        assertEquals(7, position.perft(1));
+        assertEquals(49, position.perft(2));
+        assertEquals(302, position.perft(3));
+        assertEquals("gggggggggggg........wwwwwwwwwwww w", position.toString(), "perft leaves the position as it was");
+    }
+
+    @Test
+    @DisplayName("Test conversione da e verso il formato testuale")
+    void testParseRoundTrip() {
+        Position position = Position.initial();
+        assertEquals(position.toString(), Position.parse(position.toString()).toString());
+        assertThrows(IllegalArgumentException.class, () -> Position.parse("too short"));
+        assertThrows(IllegalArgumentException.class, () -> Position.parse("gggggggggggg........wwwwwwwwwwwx w"));
+    }
+
+    @Test
+    @DisplayName("Test cattura obbligatoria")
+    void testMandatoryCapture() {
+        Position position = position(true, white(3, 4), white(7, 6), gray(2, 3), gray(0, 1));
+        int[] moves = new int[Position.MAX_MOVES];
+        assertEquals(1, position.generateMoves(moves, 0));
+        assertTrue(Position.isCapture(moves[0]));
+        assertEquals("3 4 1 2", Position.toProtocol(moves[0]));
+        assertEquals(BoardSnapshot.squareIndex(2, 3), Position.captured(moves[0]));
+    }
+
+    @Test
+    @DisplayName("Test le pedine non catturano all'indietro")
+    void testMenDoNotCaptureBackwards() {
+        Position position = position(true, white(3, 4), gray(4, 5));
+        assertFalse(position.hasCapture());
+        int[] moves = new int[Position.MAX_MOVES];
+        int count = position.generateMoves(moves, 0);
+        assertEquals(2, count);
+        for (int i = 0; i < count; i++) {
+            assertFalse(Position.isCapture(moves[i]));
+        }
+    }
+
+    @Test
+    @DisplayName("Test presa multipla con la stessa pedina")
+    void testMultiJump() {
+        Position position = position(true, white(5, 6), white(1, 6), gray(4, 5), gray(2, 3), gray(0, 1));
+        String before = position.toString();
+        int[] moves = new int[Position.MAX_MOVES];
+        assertEquals(1, position.generateMoves(moves, 0));
+        position.make(moves[0]);
+
+        assertTrue(position.isWhiteToMove(), "the same side jumps again");
+        assertEquals(BoardSnapshot.squareIndex(3, 4), position.getMultiJumpSquare());
+        assertEquals(1, position.generateMoves(moves, 0), "only the jumping piece may move");
+        assertEquals("3 4 1 2", Position.toProtocol(moves[0]));
+
+        position.make(moves[0]);
+        assertFalse(position.isWhiteToMove());
+        assertEquals(BoardSnapshot.NO_SQUARE, position.getMultiJumpSquare());
+        assertEquals(1, position.countPieces(false));
+
+        position.unmake();
+        position.unmake();
+        assertEquals(before, position.toString());
+        assertEquals(BoardSnapshot.NO_SQUARE, position.getMultiJumpSquare());
+    }
+
+    @Test
+    @DisplayName("Test promozione durante una presa e prosecuzione come dama")
+    void testPromotionContinuesAsKing() {
+        Position position = position(true, white(3, 2), gray(4, 1), gray(6, 1), gray(0, 1));
+        int[] moves = new int[Position.MAX_MOVES];
+        assertEquals(1, position.generateMoves(moves, 0));
+        position.make(moves[0]);
+
+        assertEquals(PieceType.WHITE_SUP, position.pieceAt(BoardSnapshot.squareIndex(5, 0)));
+        assertEquals(BoardSnapshot.squareIndex(5, 0), position.getMultiJumpSquare(), "the new king captures backwards");
+        assertEquals(1, position.generateMoves(moves, 0));
+        assertEquals("5 0 7 2", Position.toProtocol(moves[0]));
+
+        position.unmake();
+        assertEquals(PieceType.WHITE, position.pieceAt(BoardSnapshot.squareIndex(3, 2)));
+        assertNull(position.pieceAt(BoardSnapshot.squareIndex(5, 0)));
+        assertEquals(PieceType.GRAY, position.pieceAt(BoardSnapshot.squareIndex(4, 1)));
+        assertEquals(0, position.countKings(true));
+    }
+
+    @Test
+    @DisplayName("Test contatore delle mosse senza cattura")
+    void testMovesWithoutCapture() {
+        Position position = position(true, whiteKing(0, 7), grayKing(7, 0));
+        String[] shuffle = {"0 7 1 6", "7 0 6 1", "1 6 0 7", "6 1 7 0"};
+        for (int ply = 0; ply < 40; ply++) {
+            assertFalse(position.isDraw());
+            play(position, shuffle[ply % shuffle.length]);
+        }
+        assertEquals(40, position.getMovesWithoutCapture());
+        assertTrue(position.isDraw());
+        position.unmake();
+        assertEquals(39, position.getMovesWithoutCapture());
+        assertFalse(position.isDraw());
+    }
+
+    @Test
+    @DisplayName("Test unmake ripristina esattamente ogni stato di una partita casuale")
+    void testRandomGameUnmake() {
+        Random random = new Random(43);
+        int[] moves = new int[Position.MAX_MOVES];
+        for (int game = 0; game < 20; game++) {
+            Position position = Position.initial();
+            List<String> states = new ArrayList<>();
+            int count;
+            while (!position.isDraw() && (count = position.generateMoves(moves, 0)) > 0) {
+                states.add(state(position));
+                assertEquals(rebuilt(position).key(), position.key(), "the key is updated incrementally");
+                int move = moves[random.nextInt(count)];
+                Position copy = position.copy();
+                position.make(move);
+                assertEquals(state(copy), states.get(states.size() - 1), "copy() is independent of the original");
+            }
+            for (int i = states.size() - 1; i >= 0; i--) {
+                position.unmake();
+                assertEquals(states.get(i), state(position));
+            }
+            assertThrows(IllegalStateException.class, position::unmake);
+        }
+    }
+
+    @Test
+    @DisplayName("Test chiave Zobrist per trasposizioni, turno e presa multipla")
+    void testKey() {
+        Position first = Position.initial();
+        Position second = Position.initial();
+        play(first, "0 5 1 4");
+        play(first, "7 2 6 3");
+        play(first, "2 5 3 4");
+        play(second, "2 5 3 4");
+        play(second, "7 2 6 3");
+        play(second, "0 5 1 4");
+        assertEquals(first.toString(), second.toString());
+        assertEquals(first.key(), second.key(), "transposed move orders give the same key");
+        assertNotEquals(first.key(), Position.parse(first.toString().replace(" g", " w")).key());
+
+        Position jumping = position(true, white(5, 6), white(1, 6), gray(4, 5), gray(2, 3), gray(0, 1));
+        play(jumping, "5 6 3 4");
+        Position after = rebuilt(jumping);
+        assertEquals(after.key(), jumping.key());
+        assertNotEquals(new Position(squares(jumping), true, 0, BoardSnapshot.NO_SQUARE).key(), jumping.key(),
+                "a multi-jump in progress is part of the key");
+    }
+
+    @Test
+    @DisplayName("Test costruzione da BoardSnapshot")
+    void testFromSnapshot() {
+        PieceType[] squares = new PieceType[BoardSnapshot.SQUARES];
+        squares[BoardSnapshot.squareIndex(3, 4)] = PieceType.WHITE;
+        squares[BoardSnapshot.squareIndex(2, 3)] = PieceType.GRAY_SUP;
+        BoardSnapshot snapshot = new BoardSnapshot(squares, true, 7, BoardSnapshot.squareIndex(3, 4), 20, 0, 0);
+        Position position = Position.fromSnapshot(snapshot);
+
+        assertTrue(position.isWhiteToMove());
+        assertEquals(7, position.getMovesWithoutCapture());
+        assertEquals(BoardSnapshot.squareIndex(3, 4), position.getMultiJumpSquare());
+        assertEquals(PieceType.GRAY_SUP, position.pieceAt(BoardSnapshot.squareIndex(2, 3)));
+        assertEquals(1, position.countKings(false));
+        assertEquals(1, position.countMen(true));
+    }
+
+    private static void play(Position position, String move) {
+        int[] moves = new int[Position.MAX_MOVES];
+        int count = position.generateMoves(moves, 0);
+        for (int i = 0; i < count; i++) {
+            if (Position.toProtocol(moves[i]).equals(move)) {
+                position.make(moves[i]);
+                return;
+            }
+        }
+        fail(move + " is not legal in " + position);
+    }
+
+    private static String state(Position position) {
+        return position + " " + position.getMultiJumpSquare() + " " + position.getMovesWithoutCapture() + " "
+                + position.key();
+    }
+
+    private static Position rebuilt(Position position) {
+        return new Position(squares(position), position.isWhiteToMove(), position.getMovesWithoutCapture(),
+                position.getMultiJumpSquare());
+    }
+
+    private static PieceType[] squares(Position position) {
+        PieceType[] squares = new PieceType[BoardSnapshot.SQUARES];
+        for (int square = 0; square < BoardSnapshot.SQUARES; square++) {
+            squares[square] = position.pieceAt(square);
+        }
+        return squares;
+    }
+
+    private static Position position(boolean whiteToMove, int[]... pieces) {
+        char[] squares = new char[BoardSnapshot.SQUARES];
+        Arrays.fill(squares, '.');
+        for (int[] piece : pieces) {
+            squares[BoardSnapshot.squareIndex(piece[0], piece[1])] = (char) piece[2];
+        }
+        return Position.parse(new String(squares) + (whiteToMove ? " w" : " g"));
+    }
+
+    private static int[] white(int x, int y) {
+        return new int[]{x, y, 'w'};
+    }
+
+    private static int[] whiteKing(int x, int y) {
+        return new int[]{x, y, 'W'};
+    }
+
+    private static int[] gray(int x, int y) {
+        return new int[]{x, y, 'g'};
+    }
+
+    private static int[] grayKing(int x, int y) {
+        return new int[]{x, y, 'G'};
+    }
+}
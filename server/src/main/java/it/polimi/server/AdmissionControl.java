@@ -0,0 +1,224 @@
+package it.polimi.server;
+
+import it.polimi.common.GameConfig;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Caps the matches a server runs at once. A new match starts right away while there is room,
+ * waits in a bounded FIFO queue when the server is full, and is turned away once the queue is
+ * full too, so a connection flood costs a queue slot and a "BUSY" line instead of a thread.
+ * CPU matches have their own, lower cap on top of the global one, since every CPU move is a
+ * search on the server. A queued CPU match does not block the human matches behind it.
+ * Connections that have not sent their first line yet are capped as well, so clients that
+ * connect and stay silent cannot tie up the threads that read it.
+ */
+public class AdmissionControl {
+
+    public enum Decision {STARTED, QUEUED, REJECTED}
+
+    private final int maxMatches;
+    private final int maxCpuMatches;
+    private final int maxPending;
+    private final int retrySeconds;
+    private final int maxHandshakes;
+    private final ServerMetrics metrics;
+
+    private final Object lock = new Object();
+    private final LinkedList<Pending> pending = new LinkedList<>();
+    private int matches = 0;
+    private int cpuMatches = 0;
+    private int handshakes = 0;
+    private boolean closed = false;
+
+    /**
+     * @param enqueuedAt System.nanoTime() when the match joined the queue
+     */
+    private record Pending(boolean cpu, Runnable start, Runnable reject, long enqueuedAt) {
+    }
+
+    /**
+     * @param maxPending   matches allowed to wait for a slot; also the number of players allowed
+     *                     to wait for an opponent
+     * @param retrySeconds the wait suggested to rejected clients
+     */
+    public AdmissionControl(int maxMatches, int maxCpuMatches, int maxPending, int retrySeconds, ServerMetrics metrics) {
+        this(maxMatches, maxCpuMatches, maxPending, retrySeconds, GameConfig.MAX_HANDSHAKES, metrics);
+    }
+
+    /**
+     * @param maxHandshakes connections allowed to be waiting for their first line at once
+     */
+    public AdmissionControl(int maxMatches, int maxCpuMatches, int maxPending, int retrySeconds, int maxHandshakes,
+                            ServerMetrics metrics) {
+        if (maxMatches < 1 || maxCpuMatches < 1 || maxPending < 0 || maxHandshakes < 1) {
+            throw new IllegalArgumentException("Invalid limits: " + maxMatches + "/" + maxCpuMatches + "/" + maxPending
+                    + "/" + maxHandshakes);
+        }
+        this.maxMatches = maxMatches;
+        this.maxCpuMatches = maxCpuMatches;
+        this.maxPending = maxPending;
+        this.retrySeconds = retrySeconds;
+        this.maxHandshakes = maxHandshakes;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Limits from dama.max.matches, dama.max.cpu.matches, dama.max.pending,
+     * dama.busy.retry.seconds and dama.max.handshakes, with the GameConfig defaults.
+     */
+    public static AdmissionControl fromSystemProperties() {
+        return new AdmissionControl(
+                Integer.getInteger("dama.max.matches", GameConfig.MAX_MATCHES),
+                Integer.getInteger("dama.max.cpu.matches", GameConfig.MAX_CPU_MATCHES),
+                Integer.getInteger("dama.max.pending", GameConfig.MAX_PENDING_MATCHES),
+                Integer.getInteger("dama.busy.retry.seconds", GameConfig.BUSY_RETRY_SECONDS),
+                Integer.getInteger("dama.max.handshakes", GameConfig.MAX_HANDSHAKES),
+                ServerMetrics.global());
+    }
+
+    /**
+     * Runs {@code start} now if there is room, or later from {@link #finished(boolean)}.
+     * Every started match must be paired with one call to finished, also when it fails to start.
+     * Both callbacks run outside the lock, on the calling thread.
+     * @param reject tells the players to come back later; run instead of start when the queue
+     *               is full, or when a queued match is flushed by {@link #rejectPending()}
+     */
+    public Decision submit(boolean cpu, Runnable start, Runnable reject) {
+        Decision decision;
+        synchronized (lock) {
+            if (!closed && hasRoom(cpu)) {
+                take(cpu);
+                decision = Decision.STARTED;
+            } else if (!closed && pending.size() < maxPending) {
+                pending.add(new Pending(cpu, start, reject, System.nanoTime()));
+                metrics.pendingMatches(pending.size());
+                return Decision.QUEUED;
+            } else {
+                metrics.matchRejected();
+                decision = Decision.REJECTED;
+            }
+        }
+        if (decision == Decision.STARTED) {
+            start.run();
+        } else {
+            reject.run();
+        }
+        return decision;
+    }
+
+    /**
+     * Accounts for a match that must run regardless of the limits, such as one taken over
+     * from a drained server.
+     */
+    public void admit(boolean cpu) {
+        synchronized (lock) {
+            take(cpu);
+        }
+    }
+
+    /**
+     * Frees the slot of a finished match and starts the queued matches that now fit.
+     */
+    public void finished(boolean cpu) {
+        List<Runnable> toStart = new ArrayList<>();
+        synchronized (lock) {
+            matches--;
+            if (cpu) {
+                cpuMatches--;
+            }
+            long now = System.nanoTime();
+            Iterator<Pending> queued = pending.iterator();
+            while (queued.hasNext() && matches < maxMatches) {
+                Pending next = queued.next();
+                if (hasRoom(next.cpu())) {
+                    queued.remove();
+                    take(next.cpu());
+                    metrics.queueWaited(now - next.enqueuedAt());
+                    toStart.add(next.start());
+                }
+            }
+            metrics.pendingMatches(pending.size());
+        }
+        toStart.forEach(Runnable::run);
+    }
+
+    /**
+     * Turns away the queued matches and every later one; used when the server drains.
+     * @return the number of queued matches rejected
+     */
+    public int rejectPending() {
+        List<Pending> rejected;
+        synchronized (lock) {
+            closed = true;
+            rejected = new ArrayList<>(pending);
+            pending.clear();
+            metrics.pendingMatches(0);
+        }
+        rejected.forEach(match -> match.reject().run());
+        return rejected.size();
+    }
+
+    /**
+     * Takes a slot for reading the first line of a new connection.
+     * @return false when too many connections are already being read; the caller replies BUSY
+     */
+    public boolean startHandshake() {
+        synchronized (lock) {
+            if (closed || handshakes >= maxHandshakes) {
+                return false;
+            }
+            handshakes++;
+            return true;
+        }
+    }
+
+    /**
+     * Frees the slot taken by {@link #startHandshake()}, whatever the first line turned out to be.
+     */
+    public void handshakeFinished() {
+        synchronized (lock) {
+            handshakes--;
+        }
+    }
+
+    /**
+     * Whether another player may join the queue of players waiting for an opponent.
+     */
+    public boolean lobbyHasRoom(int waiting) {
+        return waiting < maxPending;
+    }
+
+    /**
+     * The line sent to a rejected client: "BUSY &lt;seconds&gt;".
+     */
+    public String busyReply() {
+        return GameConfig.BUSY_REPLY + " " + retrySeconds;
+    }
+
+    public int runningMatches() {
+        synchronized (lock) {
+            return matches;
+        }
+    }
+
+    public int pendingMatches() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    private boolean hasRoom(boolean cpu) {
+        return matches < maxMatches && (!cpu || cpuMatches < maxCpuMatches);
+    }
+
+    private void take(boolean cpu) {
+        matches++;
+        if (cpu) {
+            cpuMatches++;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package it.polimi.server;
+
+import it.polimi.common.GameConfig;
+import it.polimi.model.Position;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds an opening book for {@link PositionStore}: every position reachable from the start
+ * within the given number of plies is searched once and stored with its best move.
+ * <pre>
+ *   BookBuilder &lt;file&gt; [plies] [depth]
+ * </pre>
+ * Plies default to 6 and depth to GameConfig.AI_SEARCH_DEPTH; the server plays from the book
+ * when started with -Ddama.book.file=&lt;file&gt;.
+ */
+public final class BookBuilder {
+    private static final int DEFAULT_PLIES = 6;
+
+    private BookBuilder() {
+        throw new UnsupportedOperationException("BookBuilder is a utility class and cannot be instantiated");
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: BookBuilder <file> [plies] [depth]");
+            System.exit(2);
+        }
+        Path file = Path.of(args[0]);
+        int plies = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PLIES;
+        int depth = args.length > 2 ? Integer.parseInt(args[2]) : GameConfig.AI_SEARCH_DEPTH;
+
+        long start = System.nanoTime();
+        List<PositionStore.Entry> entries = build(plies, depth);
+        PositionStore.write(file, entries);
+        System.out.printf("%d positions up to %d plies searched to depth %d in %.1f s, written to %s%n",
+                entries.size(), plies, depth, (System.nanoTime() - start) / 1e9, file);
+    }
+
+    /**
+     * Searches every distinct position within plies of the start; each jump of a multi-jump is a ply.
+     */
+    public static List<PositionStore.Entry> build(int plies, int depth) {
+        List<PositionStore.Entry> entries = new ArrayList<>();
+        collect(Position.initial(), plies, depth, new TranspositionTable(GameConfig.TRANSPOSITION_TABLE_MB),
+                new HashMap<>(), entries, new int[(plies + 1) * Position.MAX_MOVES]);
+        return entries;
+    }
+
+    private static void collect(Position position, int plies, int depth, TranspositionTable table, Map<Long, Integer> expanded,
+                                List<PositionStore.Entry> entries, int[] moves) {
+        // CheckersAI reads its position off the board with the referee's draw counter, so the book keys it the same way
+        Position lookup = Position.fromBoard(position.toBoard(), position.isWhiteToMove(),
+                position.getMovesWithoutCapture(), position.getMultiJumpSquare());
+        // A transposition reached in fewer plies is expanded again, but searched only once
+        Integer previous = expanded.put(lookup.key(), plies);
+        if (previous != null && previous >= plies) {
+            expanded.put(lookup.key(), previous);
+            return;
+        }
+        int offset = plies * Position.MAX_MOVES;
+        int count = position.generateMoves(moves, offset);
+        if (count == 0) {
+            return;
+        }
+        if (previous == null) {
+            CheckersAI ai = new CheckersAI(position.toBoard(), position.isWhiteToMove(), depth, table);
+            ai.setBook(null);
+            SearchResult result = ai.search(position.getMultiJumpSquare(), position.getMovesWithoutCapture());
+            for (int i = 0; i < count; i++) {
+                if (Position.toProtocol(moves[offset + i]).equals(result.move())) {
+                    entries.add(new PositionStore.Entry(lookup.key(), moves[offset + i], result.depth(), result.score()));
+                }
+            }
+        }
+        if (plies == 0) {
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            position.make(moves[offset + i]);
+            collect(position, plies - 1, depth, table, expanded, entries, moves);
+            position.unmake();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package it.polimi.server;
+
+import it.polimi.common.BoardSnapshot;
+import it.polimi.common.GameConfig;
+import it.polimi.model.MoveType;
+import it.polimi.model.Piece;
+import it.polimi.model.PieceType;
+import it.polimi.model.Tile;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.lang.management.ManagementFactory;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Training workload for the server's AppCDS archive: starts a server on an ephemeral port,
+ * plays a match between two connected players and a few plies against the CPU, then exits.
+ * Run with -XX:ArchiveClassesAtExit so the classes loaded on the way (Server, Matchmaker,
+ * ClientHandler, CheckersAI, the protocol) end up in the archive:
+ * <pre>
+ *   CdsTraining [plies]
+ * </pre>
+ * With 0 plies it only waits for the first seat assignment, which makes it a startup benchmark:
+ * the time from JVM start to the first answered connection is printed either way.
+ */
+public final class CdsTraining {
+    private static final int DEFAULT_PLIES = 24;
+    private static final int CPU_PLIES = 2;
+    private static final int READ_TIMEOUT_MILLIS = 5000;
+
+    private CdsTraining() {
+        throw new UnsupportedOperationException("CdsTraining is a utility class and cannot be instantiated");
+    }
+
+    public static void main(String[] args) throws Exception {
+        int plies = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PLIES;
+        ServerSocket serverSocket = Server.bind(0);
+        Server server = new Server(serverSocket);
+        Thread serverThread = new Thread(server::startServer, "cds-server");
+        serverThread.setDaemon(true);
+        serverThread.start();
+        int port = serverSocket.getLocalPort();
+
+        try (Player gray = new Player(port, "wait"); Player white = new Player(port, "wait")) {
+            gray.awaitSeat();
+            System.out.println("First seat assigned " + ManagementFactory.getRuntimeMXBean().getUptime()
+                    + " ms after JVM start");
+            if (plies > 0) {
+                white.awaitSeat();
+                Thread grayThread = new Thread(() -> gray.play(plies), "cds-player-1");
+                grayThread.start();
+                white.play(plies);
+                grayThread.join();
+            }
+        }
+        if (plies > 0) {
+            try (Player human = new Player(port, "cpu")) {
+                human.awaitSeat();
+                human.play(CPU_PLIES);
+            }
+        }
+        server.closeServerSocket();
+        // The match threads are waiting for the players to reconnect; nothing left worth loading
+        System.exit(0);
+    }
+
+    /**
+     * A scripted client that asks for the position whenever it is prompted and answers with the
+     * move CheckersAI picks for its side.
+     */
+    private static final class Player implements AutoCloseable {
+        private final Socket socket;
+        private final BufferedReader reader;
+        private final BufferedWriter writer;
+        private int seat;
+
+        Player(int port, String hello) throws IOException {
+            socket = new Socket("localhost", port);
+            socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+            reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+            send(hello);
+        }
+
+        void awaitSeat() throws IOException {
+            seat = Integer.parseInt(reader.readLine().trim());
+        }
+
+        /**
+         * Plays until it has sent the given number of moves, the match ends or the server stops
+         * talking to it.
+         */
+        void play(int plies) {
+            int moves = 0;
+            try {
+                String line;
+                while (moves < plies && (line = reader.readLine()) != null) {
+                    if (line.equals("PING")) {
+                        send("SYNC");
+                    } else if (line.startsWith(BoardSnapshot.MESSAGE_PREFIX)) {
+                        BoardSnapshot position = BoardSnapshot.fromMessage(line);
+                        if (position.isWhiteToMove() == (seat == 2)) {
+                            send(new CheckersAI(board(position), seat == 2)
+                                    .generateBestMove(position.getMultiJumpSquare(), position.getMovesWithoutCapture()));
+                            moves++;
+                        }
+                    } else if (line.contains(" " + MoveType.KILL)) {
+                        // After a capture the same piece may have to jump again, with no PING
+                        send("SYNC");
+                    }
+                }
+            } catch (SocketTimeoutException e) {
+                // The match stalled (rejected move or game over): training ends here
+            } catch (IOException e) {
+                // Closed by the server
+            }
+        }
+
+        private void send(String message) throws IOException {
+            writer.write(message);
+            writer.newLine();
+            writer.flush();
+        }
+
+        private static Tile[][] board(BoardSnapshot position) {
+            Tile[][] board = new Tile[GameConfig.BOARD_WIDTH][GameConfig.BOARD_HEIGHT];
+            for (int y = 0; y < GameConfig.BOARD_HEIGHT; y++) {
+                for (int x = 0; x < GameConfig.BOARD_WIDTH; x++) {
+                    board[x][y] = new Tile((x + y) % 2 == 0, x, y);
+                }
+            }
+            for (int index = 0; index < BoardSnapshot.SQUARES; index++) {
+                PieceType type = position.getPieceType(index);
+                if (type != null) {
+                    int x = BoardSnapshot.squareX(index);
+                    int y = BoardSnapshot.squareY(index);
+                    board[x][y].setPiece(new Piece(type, x, y));
+                }
+            }
+            return board;
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
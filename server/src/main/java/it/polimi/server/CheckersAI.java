@@ -0,0 +1,456 @@
+package it.polimi.server;
+
+import it.polimi.common.BoardSnapshot;
+import it.polimi.common.Coder;
+import it.polimi.common.GameConfig;
+import it.polimi.model.PieceType;
+import it.polimi.model.Position;
+import it.polimi.model.Tile;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * AI implementation for the CPU player in the checkers game.
+ * The legal moves are ordered by a strategic priority and then searched with iterative deepening
+ * alpha-beta over a {@link Position}; among equally scored moves the higher priority wins.
+ * Inside the search, captures come first, then the two killer moves of the ply, then the rest
+ * by their history score. At the horizon, pending captures are played out by a quiescence search
+ * before the position is evaluated, since stopping halfway through a forced exchange misjudges it.
+ * Positions found in the configured {@link PositionStore} book are played from it without a search.
+ * The root moves, their priorities and the lines of the best ones live in arrays preallocated per
+ * instance, like the searcher's own move stack; only the chosen move becomes a protocol string.
+ */
+public class CheckersAI {
+    private static final int[][] KING_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+    private final Tile[][] board;
+    private final PieceType aiColor;
+    private final int depth;
+    private final Random random = new Random();
+    private final TranspositionTable table;
+    private final Searcher searcher;
+    // Root of the last search: legal moves by descending priority, then the best scored ones with their lines
+    private final int[] rootMoves = new int[Position.MAX_MOVES];
+    private final int[] rootPriorities = new int[Position.MAX_MOVES];
+    private final int[] bestMoves = new int[Position.MAX_MOVES];
+    private final int[] bestPriorities = new int[Position.MAX_MOVES];
+    private final int[][] bestLines = new int[Position.MAX_MOVES][Searcher.MAX_PLY + 1];
+    private final int[] bestLineLengths = new int[Position.MAX_MOVES];
+    private boolean moveOrdering = true;
+    private PositionStore book = PositionStore.configured();
+
+    /**
+     * Creates a new CheckersAI with the specified color and board state.
+     */
+    public CheckersAI(Tile[][] board, boolean isWhite) {
+        this(board, isWhite, GameConfig.AI_SEARCH_DEPTH);
+    }
+
+    /**
+     * Creates a new CheckersAI that searches the given number of plies; each jump counts as one.
+     */
+    public CheckersAI(Tile[][] board, boolean isWhite, int depth) {
+        this(board, isWhite, depth, TranspositionTable.shared());
+    }
+
+    /**
+     * Creates a new CheckersAI that keeps its search results in the given table instead of the shared one.
+     */
+    public CheckersAI(Tile[][] board, boolean isWhite, int depth, TranspositionTable table) {
+        if (depth < 1 || depth >= Searcher.MAX_PLY) {
+            throw new IllegalArgumentException("Search depth must be between 1 and " + (Searcher.MAX_PLY - 1) + ": " + depth);
+        }
+        this.board = board;
+        this.depth = depth;
+        this.table = table;
+        this.searcher = new Searcher(table);
+        this.aiColor = isWhite ? PieceType.WHITE : PieceType.GRAY;
+    }
+
+    /**
+     * Generates the best move based on current board state.
+     */
+    public String generateBestMove() {
+        return generateBestMove(BoardSnapshot.NO_SQUARE);
+    }
+
+    /**
+     * Generates the best move while the piece on multiJumpSquare has to keep jumping
+     * (BoardSnapshot.NO_SQUARE when no multi-jump is in progress).
+     */
+    public String generateBestMove(int multiJumpSquare) {
+        return generateBestMove(multiJumpSquare, 0);
+    }
+
+    /**
+     * Generates the best move when movesWithoutCapture moves have been played since the last capture,
+     * so the search sees the draw coming.
+     */
+    public String generateBestMove(int multiJumpSquare, int movesWithoutCapture) {
+        SearchResult result = search(multiJumpSquare, movesWithoutCapture);
+        // No moves possible - game should be over, but return a random move to avoid crash
+        return result.move() != null ? result.move() : Coder.generateMove();
+    }
+
+    /**
+     * Searches the current board as if no move had been played since the last capture.
+     * @see #search(int, int)
+     */
+    public SearchResult search(int multiJumpSquare) {
+        return search(multiJumpSquare, 0);
+    }
+
+    /**
+     * Searches the current board and reports the chosen move with its score, principal variation
+     * and search statistics; the move is null when the side has no legal move.
+     * @param multiJumpSquare the square of the piece that has to keep jumping, or BoardSnapshot.NO_SQUARE
+     * @param movesWithoutCapture the referee's draw counter, which the board alone does not carry
+     */
+    public SearchResult search(int multiJumpSquare, int movesWithoutCapture) {
+        long searchStart = System.nanoTime();
+        searcher.setMoveOrdering(moveOrdering);
+        searcher.reset();
+
+        Position position = Position.fromBoard(board, aiColor == PieceType.WHITE, movesWithoutCapture, multiJumpSquare);
+        int count = rootMoves(position, rootMoves, rootPriorities);
+        if (count == 0) {
+            return new SearchResult(null, -SearchResult.WIN_SCORE, 0, 0, System.nanoTime() - searchStart, List.of(),
+                    0, 0, 0);
+        }
+        SearchResult bookMove = bookMove(position, count, searchStart);
+        return bookMove != null ? bookMove : searchRoot(position, count, searchStart);
+    }
+
+    /**
+     * Multi-PV analysis for post-game review: every legal move gets its own full-window search, so
+     * its score is exact, and the best lines are returned first. The root moves are split over the
+     * given number of threads, each with its own searcher and copy of the position, so K lines take
+     * about the wall time of one on a host with K free cores.
+     * @param multiJumpSquare the square of the piece that has to keep jumping, or BoardSnapshot.NO_SQUARE
+     * @param lines how many lines to return at most
+     * @return one result per line, best first; moves scoring the same keep their priority order
+     */
+    public List<SearchResult> analyze(int multiJumpSquare, int lines, int threads) throws InterruptedException {
+        return analyze(multiJumpSquare, 0, lines, threads);
+    }
+
+    /**
+     * Multi-PV analysis of a position reached movesWithoutCapture moves after the last capture.
+     * @see #analyze(int, int, int)
+     */
+    public List<SearchResult> analyze(int multiJumpSquare, int movesWithoutCapture, int lines, int threads)
+            throws InterruptedException {
+        Position position = Position.fromBoard(board, aiColor == PieceType.WHITE, movesWithoutCapture, multiJumpSquare);
+        // The analysis threads read the moves while this instance may search again, so they get their own arrays
+        int[] moves = new int[Position.MAX_MOVES];
+        int count = rootMoves(position, moves, new int[Position.MAX_MOVES]);
+        if (count == 0 || lines < 1) {
+            return List.of();
+        }
+
+        ThreadLocal<Searcher> searchers = ThreadLocal.withInitial(() -> {
+            Searcher searcher = new Searcher(table);
+            searcher.setMoveOrdering(moveOrdering);
+            return searcher;
+        });
+        List<Callable<SearchResult>> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int rootMove = moves[i];
+            Position copy = position.copy();
+            tasks.add(() -> searchLine(searchers.get(), copy, rootMove));
+        }
+
+        List<SearchResult> results = new ArrayList<>(tasks.size());
+        try (ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, tasks.size())),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "ai-analysis");
+                    thread.setDaemon(true);
+                    return thread;
+                })) {
+            for (Future<SearchResult> result : pool.invokeAll(tasks)) {
+                try {
+                    results.add(result.get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Analysis search failed", e.getCause());
+                }
+            }
+        }
+        results.sort(Comparator.comparingInt(SearchResult::score).reversed());
+        return List.copyOf(results.subList(0, Math.min(lines, results.size())));
+    }
+
+    /**
+     * Plays from the given book (or tablebase) whenever it has the position; null searches every move.
+     */
+    public void setBook(PositionStore book) {
+        this.book = book;
+    }
+
+    /**
+     * Switches the killer and history ordering on or off, to measure what it saves.
+     */
+    public void setMoveOrdering(boolean moveOrdering) {
+        this.moveOrdering = moveOrdering;
+    }
+
+    /**
+     * Nodes visited by the last search, quiescence nodes included.
+     */
+    public long getNodes() {
+        return searcher.getNodes();
+    }
+
+    /**
+     * Nodes of the last search spent resolving captures beyond the nominal depth.
+     */
+    public long getQuiescenceNodes() {
+        return searcher.getQuiescenceNodes();
+    }
+
+    /**
+     * Beta cutoffs in the last search.
+     */
+    public long getBetaCutoffs() {
+        return searcher.getBetaCutoffs();
+    }
+
+    /**
+     * Beta cutoffs in the last search that came from the first move tried.
+     */
+    public long getFirstMoveCutoffs() {
+        return searcher.getFirstMoveCutoffs();
+    }
+
+    /**
+     * Transposition table lookups in the last search.
+     */
+    public long getTableProbes() {
+        return searcher.getTableProbes();
+    }
+
+    /**
+     * Lookups of the last search that found an entry for the position.
+     */
+    public long getTableHits() {
+        return searcher.getTableHits();
+    }
+
+    /**
+     * Lookups of the last search that found the slot taken by another position, or torn.
+     */
+    public long getTableCollisions() {
+        return searcher.getTableCollisions();
+    }
+
+    /**
+     * Share of the last search's cutoffs produced by the first move tried, the usual measure
+     * of move ordering quality; 0 when there was no cutoff.
+     */
+    public double getFirstMoveCutoffRate() {
+        long cutoffs = searcher.getBetaCutoffs();
+        return cutoffs == 0 ? 0 : (double) searcher.getFirstMoveCutoffs() / cutoffs;
+    }
+
+    /**
+     * Fills moves with the legal moves of the position, only those of the jumping piece during a
+     * multi-jump, by descending priority: equal priorities keep the generation order.
+     * @return the number of moves
+     */
+    private int rootMoves(Position position, int[] moves, int[] priorities) {
+        int count = position.generateMoves(moves, 0);
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int priority = priority(position, move);
+            // Insertion sort: a handful of moves, and stable
+            int j = i;
+            while (j > 0 && priorities[j - 1] < priority) {
+                moves[j] = moves[j - 1];
+                priorities[j] = priorities[j - 1];
+                j--;
+            }
+            moves[j] = move;
+            priorities[j] = priority;
+        }
+        return count;
+    }
+
+    /**
+     * The book's move for the position, or null when there is no book, the position is not in it
+     * or the stored move is not legal here.
+     */
+    private SearchResult bookMove(Position position, int count, long searchStart) {
+        if (book == null) {
+            return null;
+        }
+        long index = book.find(position.key());
+        if (index < 0) {
+            return null;
+        }
+        int move = book.move(index);
+        for (int i = 0; i < count; i++) {
+            if (rootMoves[i] == move) {
+                String found = Position.toProtocol(move);
+                return new SearchResult(found, book.score(index), book.depth(index), 0,
+                        System.nanoTime() - searchStart, List.of(found), 0, 0, 0);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Searches the root moves one ply deeper per iteration and picks a random one among the best
+     * scored moves of the deepest iteration that share the highest priority.
+     */
+    private SearchResult searchRoot(Position position, int count, long searchStart) {
+        int bestCount = 0;
+        int bestScore = -Searcher.INFINITY;
+        for (int iteration = 1; iteration <= depth; iteration++) {
+            ServerEvents.AiSearch searchEvent = new ServerEvents.AiSearch();
+            searchEvent.begin();
+            long iterationStart = searcher.getNodes();
+            long hitsBefore = searcher.getTableHits();
+            long collisionsBefore = searcher.getTableCollisions();
+            bestScore = -Searcher.INFINITY;
+            bestCount = 0;
+            int firstBest = 0;
+            for (int i = 0; i < count; i++) {
+                // A window just below the best score keeps the scores of equally good moves exact
+                int score = searcher.searchMove(position, rootMoves[i], iteration - 1, bestScore - 1, Searcher.INFINITY);
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestCount = 0;
+                    firstBest = i;
+                }
+                if (score == bestScore) {
+                    bestMoves[bestCount] = rootMoves[i];
+                    bestPriorities[bestCount] = rootPriorities[i];
+                    bestLineLengths[bestCount] = searcher.copyLine(rootMoves[i], bestLines[bestCount]);
+                    bestCount++;
+                }
+            }
+            if (searchEvent.shouldCommit()) {
+                searchEvent.iteration = iteration;
+                searchEvent.depth = iteration;
+                searchEvent.nodes = searcher.getNodes() - iterationStart;
+                searchEvent.tableHits = searcher.getTableHits() - hitsBefore;
+                searchEvent.tableCollisions = searcher.getTableCollisions() - collisionsBefore;
+                searchEvent.commit();
+            }
+            // The next iteration searches the current best move first
+            moveToFront(firstBest);
+        }
+
+        // Select a random move from the best options
+        int highestPriority = Integer.MIN_VALUE;
+        for (int i = 0; i < bestCount; i++) {
+            highestPriority = Math.max(highestPriority, bestPriorities[i]);
+        }
+        int candidates = 0;
+        for (int i = 0; i < bestCount; i++) {
+            if (bestPriorities[i] == highestPriority) {
+                candidates++;
+            }
+        }
+        int selected = random.nextInt(candidates);
+        int chosen = 0;
+        while (bestPriorities[chosen] != highestPriority || selected-- > 0) {
+            chosen++;
+        }
+        return result(searcher, Position.toProtocol(bestMoves[chosen]), bestScore, depth, searchStart,
+                Searcher.toProtocol(bestLines[chosen], bestLineLengths[chosen]));
+    }
+
+    private void moveToFront(int index) {
+        if (index > 0) {
+            int move = rootMoves[index];
+            int priority = rootPriorities[index];
+            System.arraycopy(rootMoves, 0, rootMoves, 1, index);
+            System.arraycopy(rootPriorities, 0, rootPriorities, 1, index);
+            rootMoves[0] = move;
+            rootPriorities[0] = priority;
+        }
+    }
+
+    /**
+     * One analysis line: iterative deepening on a single root move with a full window.
+     */
+    private SearchResult searchLine(Searcher lineSearcher, Position position, int rootMove) {
+        long start = System.nanoTime();
+        lineSearcher.reset();
+        int score = 0;
+        for (int iteration = 1; iteration <= depth; iteration++) {
+            score = lineSearcher.searchMove(position, rootMove, iteration - 1, -Searcher.INFINITY, Searcher.INFINITY);
+        }
+        return result(lineSearcher, Position.toProtocol(rootMove), score, depth, start, lineSearcher.line(rootMove));
+    }
+
+    private static SearchResult result(Searcher searcher, String move, int score, int depth, long start,
+                                       List<String> line) {
+        return new SearchResult(move, score, depth, searcher.getNodes(), System.nanoTime() - start, line,
+                searcher.getTableProbes(), searcher.getTableHits(), searcher.getTableCollisions());
+    }
+
+    /**
+     * The strategic priority of a legal move for the side to move: captures first, with a bonus for
+     * taking a king and for promoting, then promotions, then men by how far they advance, then kings,
+     * a little more when they move next to an opponent's piece.
+     */
+    private int priority(Position position, int move) {
+        int to = Position.to(move);
+        int targetY = BoardSnapshot.squareY(to);
+        boolean isKing = isKing(position.pieceAt(Position.from(move)));
+        boolean white = aiColor == PieceType.WHITE;
+        boolean promotes = !isKing && targetY == (white ? 0 : GameConfig.BOARD_HEIGHT - 1);
+
+        if (Position.isCapture(move)) {
+            // Captures are highest priority (10), with a bonus for capturing kings (+2) and for promoting (+1)
+            int priority = 10;
+            if (isKing(position.pieceAt(Position.captured(move)))) {
+                priority += 2;
+            }
+            return promotes ? priority + 1 : priority;
+        }
+        if (promotes) {
+            return 8; // Almost as good as a capture
+        }
+        if (!isKing) {
+            // Higher priority as the man gets closer to the promotion row
+            return white ? 5 - targetY : targetY;
+        }
+        // Kings get moderate priority, more when they move toward enemy pieces
+        return hasNearbyOpponentPieces(position, BoardSnapshot.squareX(to), targetY) ? 4 : 3;
+    }
+
+    /**
+     * Checks if there are opponent pieces diagonally next to the given square.
+     */
+    private boolean hasNearbyOpponentPieces(Position position, int x, int y) {
+        for (int[] dir : KING_DIRECTIONS) {
+            int nearX = x + dir[0];
+            int nearY = y + dir[1];
+            if (GameConfig.isValidCoordinate(nearX, nearY)) {
+                PieceType type = position.pieceAt(BoardSnapshot.squareIndex(nearX, nearY));
+                if (type != null && type != aiColor && type != king(aiColor)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isKing(PieceType type) {
+        return type == PieceType.WHITE_SUP || type == PieceType.GRAY_SUP;
+    }
+
+    private static PieceType king(PieceType man) {
+        return man == PieceType.WHITE ? PieceType.WHITE_SUP : PieceType.GRAY_SUP;
+    }
+}
@@ -0,0 +1,1047 @@
+package it.polimi.server;
+
+import it.polimi.common.BoardSnapshot;
+import it.polimi.common.Coder;
+import it.polimi.common.GameConfig;
+import it.polimi.common.Log;
+import it.polimi.model.*;
+
+import java.io.*;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ClientHandler implements Runnable {
+    private static final Log LOG = Log.getLogger(ClientHandler.class);
+
+    private final ServerMetrics metrics = ServerMetrics.global();
+
+    private final Tile[][] board = new Tile[GameConfig.BOARD_WIDTH][GameConfig.BOARD_HEIGHT];
+
+    // I socket possono essere sostituiti quando un giocatore si riconnette
+    private Socket socket1;
+    private BufferedWriter bufferedWriter1;
+    private BufferedReader bufferedReader1;
+    private Socket socket2;
+    private BufferedWriter bufferedWriter2;
+    private BufferedReader bufferedReader2;
+
+    // Sessioni per la riconnessione (indice = posto 1 o 2)
+    private final SessionRegistry sessions;
+    private final String[] sessionTokens = new String[3];
+    private final boolean[] disconnected = new boolean[3];
+    private final Object seatLock = new Object();
+    private boolean finished = false;
+    // Cartella in cui consegnare la partita al processo che sostituisce questo (drain)
+    private Path handoffDirectory = null;
+    private boolean handedOff = false;
+
+    // Messaggi del turno in attesa di invio, scritti con un solo flush per socket
+    private final OutboundBatch outbound = new OutboundBatch(2);
+
+    // Partita osservabile dagli spettatori
+    private final MatchRegistry matches;
+
+    // Archivio delle partite concluse (null se non persistente)
+    private final GameRecordStore records;
+    private final RatingService ratings;
+    // Identità dei giocatori per posto (indice 1 o 2)
+    private final String[] players = new String[3];
+    private final long startedAt;
+    private final List<GameRecord.Ply> plies = new ArrayList<>();
+    private final int matchId;
+    private final SpectatorHub spectators = new SpectatorHub(() -> {
+        synchronized (seatLock) {
+            return currentSnapshot().toMessage();
+        }
+    });
+
+    private int grayPieces = 0;
+    private int whitePieces = 0;
+
+    // Add AI for CPU mode
+    private CheckersAI ai;
+    private boolean isCpuMode = false;
+
+    // Aggiungiamo un parametro per il ritardo della CPU (in millisecondi)
+    private final long cpuMoveDelay = 1000; // 1 secondo di ritardo
+
+    private boolean mustCapture = false;
+    private boolean isInMultiJump = false;
+    private int currentPlayer = -1; // -1 = GRAY turn, 1 = WHITE turn
+    private Piece multiJumpPiece = null;
+    private int movesWithoutCapture = 0;
+    private final int MAX_MOVES_WITHOUT_CAPTURE = 40;
+    private int turn = 1;
+    private String result = null; // END1, END2 o DRAW quando la partita è decisa
+
+    // Tempo di riflessione accumulato per posto (millisecondi)
+    private final long[] clockMillis = new long[3];
+
+    public ClientHandler(Socket socket1, Socket socket2) throws IOException {
+        this(socket1, socket2, ServerContext.inMemory());
+    }
+
+    public ClientHandler(Socket socket1, Socket socket2, ServerContext context) throws IOException {
+        this(socket1, RatingService.ANONYMOUS, socket2, socket2 == null ? RatingService.CPU : RatingService.ANONYMOUS, context);
+    }
+
+    /**
+     * Partita tra due giocatori identificati; con socket2 null il secondo posto è la CPU.
+     */
+    public ClientHandler(Socket socket1, String player1, Socket socket2, String player2, ServerContext context) throws IOException {
+        this.sessions = context.sessions();
+        this.matches = context.matches();
+        this.records = context.records();
+        this.ratings = context.ratings();
+        // La scacchiera esiste prima che la partita sia visibile agli spettatori
+        createContent();
+        this.startedAt = System.currentTimeMillis();
+        this.players[1] = player1;
+        this.players[2] = player2;
+        this.matchId = matches.register(this);
+        try {
+            this.socket1 = socket1;
+            bufferedWriter1 = new BufferedWriter(new OutputStreamWriter(socket1.getOutputStream()));
+            bufferedReader1 = new BufferedReader(new InputStreamReader(socket1.getInputStream()));
+            sessionTokens[1] = sessions.register(this, 1);
+            bufferedWriter1.write("1");
+            bufferedWriter1.newLine();
+            bufferedWriter1.write("SESSION " + sessionTokens[1]);
+            bufferedWriter1.newLine();
+            bufferedWriter1.write("MATCH " + matchId);
+            bufferedWriter1.newLine();
+            bufferedWriter1.flush();
+
+            this.socket2 = socket2;
+            if (socket2 != null) {
+                bufferedWriter2 = new BufferedWriter(new OutputStreamWriter(socket2.getOutputStream()));
+                bufferedReader2 = new BufferedReader(new InputStreamReader(socket2.getInputStream()));
+                sessionTokens[2] = sessions.register(this, 2);
+                bufferedWriter2.write("2");
+                bufferedWriter2.newLine();
+                bufferedWriter2.write("SESSION " + sessionTokens[2]);
+                bufferedWriter2.newLine();
+                bufferedWriter2.write("MATCH " + matchId);
+                bufferedWriter2.newLine();
+                bufferedWriter2.flush();
+            } else {
+                bufferedWriter2 = null;
+                bufferedReader2 = null;
+                // This is CPU mode if socket2 is null
+                isCpuMode = true;
+            }
+        } catch (IOException e) {
+            sessions.remove(sessionTokens[1]);
+            sessions.remove(sessionTokens[2]);
+            matches.remove(matchId);
+            closeEverything();
+            throw e;
+        }
+    }
+
+    /**
+     * Riprende una partita sospesa da un altro processo durante un drain.
+     * I posti restano disconnessi finché i giocatori non si ricollegano con il loro token;
+     * se non lo fanno entro RECONNECT_GRACE_SECONDS la partita va a chi è tornato.
+     */
+    ClientHandler(MatchHandoff handoff, ServerContext context) {
+        this.sessions = context.sessions();
+        this.matches = context.matches();
+        this.records = context.records();
+        this.ratings = context.ratings();
+        BoardSnapshot position = handoff.position();
+        GameRecord game = handoff.game();
+        restoreContent(position);
+        this.startedAt = game.startedAt();
+        this.players[1] = game.grayPlayer();
+        this.players[2] = game.whitePlayer();
+        plies.addAll(game.moves());
+        clockMillis[1] = position.getGrayClockTenths() * 100L;
+        clockMillis[2] = position.getWhiteClockTenths() * 100L;
+        movesWithoutCapture = position.getMovesWithoutCapture();
+        turn = position.getPly();
+        currentPlayer = isInMultiJump ? (position.isWhiteToMove() ? 1 : -1) : turn % 2 * 2 - 1;
+        isCpuMode = handoff.isCpuMatch();
+        disconnected[1] = true;
+        disconnected[2] = !isCpuMode;
+        this.matchId = matches.register(this);
+        sessionTokens[1] = sessions.adopt(handoff.grayToken(), this, 1);
+        if (!isCpuMode) {
+            sessionTokens[2] = sessions.adopt(handoff.whiteToken(), this, 2);
+        }
+    }
+
+    @Override
+    public void run() {
+        metrics.matchStarted();
+        if (isCpuMode) {
+            metrics.cpuMatchStarted();
+        }
+        try {
+            playMatch();
+        } finally {
+            metrics.matchEnded();
+            if (isCpuMode) {
+                metrics.cpuMatchEnded();
+                // Finita l'ultima partita contro la CPU, la tabella delle trasposizioni riparte vuota
+                if (metrics.getActiveCpuMatches() == 0) {
+                    TranspositionTable.shared().clear();
+                }
+            }
+        }
+    }
+
+    private void playMatch() {
+        // Initialize AI if in CPU mode
+        if (isCpuMode) {
+            // CPU is always player 2 (WHITE)
+            ai = new CheckersAI(board, true);
+        }
+
+        // In una partita ripresa i socket restano null finché i giocatori non si ricollegano
+        while ((socket1 == null || socket1.isConnected()) && (socket2 == null || socket2.isConnected()) && whitePieces * grayPieces > 0 && movesWithoutCapture < MAX_MOVES_WITHOUT_CAPTURE) {
+            try {
+                // Se un giocatore è caduto, attendi che si riconnetta
+                if (!awaitReconnect()) {
+                    closeEverything();
+                    break;
+                }
+
+                // Calcola il giocatore corrente
+                if (!isInMultiJump) {
+                    currentPlayer = turn % 2 * 2 - 1; // -1 for GRAY, 1 for WHITE
+                    updateMustCapture();
+                }
+
+                LOG.debug("Turn {}, Player: {}, Multi-jump: {}", turn, currentPlayer == -1 ? "GRAY" : "WHITE", isInMultiJump);
+                if (mustCapture) {
+                    LOG.debug("Capture is mandatory");
+                }
+
+                ServerEvents.Turn turnEvent = new ServerEvents.Turn();
+                turnEvent.begin();
+                boolean moveProcessed = processMove(currentPlayer);
+                if (turnEvent.shouldCommit()) {
+                    turnEvent.matchId = matchId;
+                    turnEvent.turn = turn;
+                    turnEvent.player = currentPlayer == -1 ? "GRAY" : "WHITE";
+                    turnEvent.multiJump = isInMultiJump;
+                    turnEvent.applied = moveProcessed;
+                    turnEvent.commit();
+                }
+
+                if (moveProcessed && !isInMultiJump) {
+                    turn++; // Incrementa solo se la mossa è stata processata e non siamo in multi-jump
+                } else if (!moveProcessed && !isInMultiJump) {
+                    // Aggiungi un piccolo delay per evitare loop infiniti
+                    Thread.sleep(100);
+                }
+            } catch (IOException e) {
+                closeEverything();
+                LOG.error("Match {} aborted", matchId, e);
+                break;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        // Check for draw condition
+        if (movesWithoutCapture >= MAX_MOVES_WITHOUT_CAPTURE) {
+            String drawMessage = "1 2 3 4 DRAW";
+            result = "DRAW";
+            send(1, drawMessage);
+            send(2, drawMessage);
+            spectators.publish(drawMessage);
+        }
+        flushOutbound();
+
+        endSessions();
+    }
+
+    private void createContent() {
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 8; x++) {
+                Tile tile = new Tile((x + y) % 2 == 0, x, y);
+                board[x][y] = tile;
+
+                Piece piece = null;
+                if (y <= 2 && (x + y) % 2 != 0) {
+                    piece = new Piece(PieceType.GRAY, x, y);
+                    grayPieces++;
+                } else if (y >= 5 && (x + y) % 2 != 0) {
+                    piece = new Piece(PieceType.WHITE, x, y);
+                    whitePieces++;
+                }
+
+                if (piece != null) {
+                    tile.setPiece(piece);
+                }
+            }
+        }
+    }
+
+    /**
+     * Ricostruisce la scacchiera e il salto multiplo in corso da uno snapshot.
+     */
+    private void restoreContent(BoardSnapshot position) {
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 8; x++) {
+                board[x][y] = new Tile((x + y) % 2 == 0, x, y);
+            }
+        }
+        for (int index = 0; index < BoardSnapshot.SQUARES; index++) {
+            PieceType type = position.getPieceType(index);
+            if (type == null) {
+                continue;
+            }
+            int x = BoardSnapshot.squareX(index);
+            int y = BoardSnapshot.squareY(index);
+            Piece piece = new Piece(type, x, y);
+            board[x][y].setPiece(piece);
+            if (GameReplay.isWhite(type)) {
+                whitePieces++;
+            } else {
+                grayPieces++;
+            }
+            if (index == position.getMultiJumpSquare()) {
+                isInMultiJump = true;
+                multiJumpPiece = piece;
+            }
+        }
+    }
+
+    private MoveResult tryMove(Piece piece, int newX, int newY) {
+        if (board[newX][newY].hasPiece() || (newX + newY) % 2 == 0) {
+            return new MoveResult(MoveType.NONE);
+        }
+
+        int oldX = Coder.pixelToBoard(piece.getOldX());
+        int oldY = Coder.pixelToBoard(piece.getOldY());
+
+        // Regole per pedine normali
+        if (piece.getPieceType() == PieceType.GRAY || piece.getPieceType() == PieceType.WHITE) {
+            // Mossa normale (una casella in diagonale)
+            if (Math.abs(newX - oldX) == 1 && newY - oldY == piece.getPieceType().moveDir) {
+                return new MoveResult(MoveType.NORMAL);
+            }
+            // Mossa di cattura (due caselle in diagonale)
+            else if (Math.abs(newX - oldX) == 2 && Math.abs(newY - oldY) == 2) {
+                int middleX = oldX + (newX - oldX) / 2;
+                int middleY = oldY + (newY - oldY) / 2;
+
+                if (board[middleX][middleY].hasPiece()) {
+                    Piece middlePiece = board[middleX][middleY].getPiece();
+                    // Verifica che sia una pedina avversaria
+                    if (isOpponentPiece(piece, middlePiece)) {
+                        return new MoveResult(MoveType.KILL, middlePiece);
+                    }
+                }
+            }
+        }
+        // Regole per le dame
+        else if (piece.getPieceType() == PieceType.GRAY_SUP || piece.getPieceType() == PieceType.WHITE_SUP) {
+            // Le dame possono muoversi in tutte le direzioni diagonali
+            if (Math.abs(newX - oldX) == 1 && Math.abs(newY - oldY) == 1) {
+                return new MoveResult(MoveType.NORMAL);
+            }
+            // Cattura per le dame
+            else if (Math.abs(newX - oldX) == 2 && Math.abs(newY - oldY) == 2) {
+                int middleX = oldX + (newX - oldX) / 2;
+                int middleY = oldY + (newY - oldY) / 2;
+
+                if (board[middleX][middleY].hasPiece()) {
+                    Piece middlePiece = board[middleX][middleY].getPiece();
+                    if (isOpponentPiece(piece, middlePiece)) {
+                        return new MoveResult(MoveType.KILL, middlePiece);
+                    }
+                }
+            }
+        }
+
+        return new MoveResult(MoveType.NONE);
+    }
+
+    private List<MoveResult> findAllPossibleCaptures(int moveDir) {
+        List<MoveResult> allCaptures = new ArrayList<>();
+
+        for (int y = 0; y < GameConfig.BOARD_HEIGHT; y++) {
+            for (int x = 0; x < GameConfig.BOARD_WIDTH; x++) {
+                if (board[x][y].hasPiece()) {
+                    Piece piece = board[x][y].getPiece();
+                    // Controlla se la pedina appartiene al giocatore corrente
+                    boolean belongsToCurrentPlayer = false;
+                    if (moveDir == -1) { // Turno GRAY
+                        belongsToCurrentPlayer = (piece.getPieceType() == PieceType.GRAY || piece.getPieceType() == PieceType.GRAY_SUP);
+                    } else { // Turno WHITE
+                        belongsToCurrentPlayer = (piece.getPieceType() == PieceType.WHITE || piece.getPieceType() == PieceType.WHITE_SUP);
+                    }
+
+                    if (belongsToCurrentPlayer) {
+                        allCaptures.addAll(findPossibleCaptures(piece));
+                    }
+                }
+            }
+        }
+
+        return allCaptures;
+    }
+
+    /**
+     * Trova tutte le catture possibili per una pedina specifica
+     */
+    private List<MoveResult> findPossibleCaptures(Piece piece) {
+        List<MoveResult> captures = new ArrayList<>();
+        int x = Coder.pixelToBoard(piece.getOldX());
+        int y = Coder.pixelToBoard(piece.getOldY());
+
+        // Direzioni da controllare in base al tipo di pedina
+        int[][] directions;
+        if (piece.getPieceType() == PieceType.GRAY_SUP || piece.getPieceType() == PieceType.WHITE_SUP) {
+
+            directions = new int[][]{{-1, -1}, {-1, 1}, {1, -1}, {1, 1}};
+        } else {
+
+            int moveDir = piece.getPieceType().moveDir;
+            directions = new int[][]{{-1, moveDir}, {1, moveDir}};
+        }
+
+        for (int[] dir : directions) {
+            int middleX = x + dir[0];
+            int middleY = y + dir[1];
+            int destX = x + dir[0] * 2;
+            int destY = y + dir[1] * 2;
+
+            if (destX >= 0 && destX < GameConfig.BOARD_WIDTH && destY >= 0 && destY < GameConfig.BOARD_HEIGHT &&
+                    middleX >= 0 && middleX < GameConfig.BOARD_WIDTH && middleY >= 0 && middleY < GameConfig.BOARD_HEIGHT &&
+                    !board[destX][destY].hasPiece() && board[middleX][middleY].hasPiece()) {
+
+                Piece middlePiece = board[middleX][middleY].getPiece();
+                if (isOpponentPiece(piece, middlePiece)) {
+                    captures.add(new MoveResult(MoveType.KILL, middlePiece));
+                }
+            }
+        }
+
+        return captures;
+    }
+
+    /**
+     * Verifica se una pedina è avversaria
+     */
+    private boolean isOpponentPiece(Piece piece, Piece otherPiece) {
+        PieceType pieceType = piece.getPieceType();
+        PieceType otherType = otherPiece.getPieceType();
+
+        boolean isGrayPiece = (pieceType == PieceType.GRAY || pieceType == PieceType.GRAY_SUP);
+        boolean isOtherGray = (otherType == PieceType.GRAY || otherType == PieceType.GRAY_SUP);
+
+        return isGrayPiece != isOtherGray;
+    }
+
+    /**
+     * Aggiorna la variabile mustCapture
+     */
+    private void updateMustCapture() {
+        if (isInMultiJump && multiJumpPiece != null) {
+            // Durante multi-jump, controlla solo la pedina che sta saltando
+            List<MoveResult> captures = findPossibleCaptures(multiJumpPiece);
+            mustCapture = !captures.isEmpty();
+        } else {
+            // Normale controllo per tutte le pedine del giocatore corrente
+            List<MoveResult> possibleCaptures = findAllPossibleCaptures(currentPlayer);
+            mustCapture = !possibleCaptures.isEmpty();
+        }
+    }
+
+    public boolean processMove(int moveDir) throws IOException {
+        try {
+            // Posto 1 = GRAY, posto 2 = WHITE
+            int fromSeat = moveDir == -1 ? 1 : 2;
+            int toSeat = 3 - fromSeat;
+            boolean fromIsHuman = fromSeat == 1 || !isCpuMode;
+
+            // Invia PING solo se non siamo in multi-jump
+            if (!isInMultiJump && fromIsHuman) {
+                send(fromSeat, "PING");
+            }
+
+            String messageFrom;
+            long thinkStart = System.currentTimeMillis();
+            if (fromIsHuman) {
+                // Per i giocatori umani, attendi l'input solo se non siamo in multi-jump o se è il giocatore giusto
+                if (isInMultiJump) {
+                    // Durante multi-jump, solo il giocatore con multiJumpPiece può muovere
+                    boolean isCorrectPlayerForMultiJump = false;
+                    if (moveDir == -1 && (multiJumpPiece.getPieceType() == PieceType.GRAY || multiJumpPiece.getPieceType() == PieceType.GRAY_SUP)) {
+                        isCorrectPlayerForMultiJump = true;
+                    } else if (moveDir == 1 && (multiJumpPiece.getPieceType() == PieceType.WHITE || multiJumpPiece.getPieceType() == PieceType.WHITE_SUP)) {
+                        isCorrectPlayerForMultiJump = true;
+                    }
+
+                    if (!isCorrectPlayerForMultiJump) {
+                        return false; // Non è il turno di questo giocatore durante multi-jump
+                    }
+                }
+
+                messageFrom = readFrom(fromSeat);
+                if (messageFrom == null) {
+                    return false;
+                }
+            } else {
+                // Modalità CPU
+                if (isInMultiJump) {
+                    // Durante multi-jump, solo il giocatore con multiJumpPiece può muovere
+                    boolean isCpuPieceInMultiJump = (multiJumpPiece.getPieceType() == PieceType.WHITE || multiJumpPiece.getPieceType() == PieceType.WHITE_SUP);
+                    if (!isCpuPieceInMultiJump) {
+                        return false; // Non è il turno del CPU durante multi-jump
+                    }
+                }
+
+                // L'avversario deve vedere la sua mossa prima che la CPU inizi a pensare
+                flushOutbound();
+                try {
+                    LOG.debug("CPU sta pensando...");
+                    Thread.sleep(cpuMoveDelay);
+                    LOG.debug("CPU sta eseguendo la mossa");
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    LOG.warn("La pausa della CPU è stata interrotta");
+                    return false;
+                }
+
+                // Aggiorna l'AI con lo stato corrente del board
+                if (ai != null) {
+                    // Durante un multi-jump l'AI deve continuare con la stessa pedina
+                    SearchResult search = ai.search(isInMultiJump && multiJumpPiece != null
+                            ? BoardSnapshot.squareIndex(multiJumpPiece.getBoardX(), multiJumpPiece.getBoardY())
+                            : BoardSnapshot.NO_SQUARE, movesWithoutCapture);
+                    metrics.aiSearched(search);
+                    LOG.debug("Partita {}, ricerca CPU: {}", matchId, search);
+                    messageFrom = search.move() != null ? search.move() : Coder.generateMove();
+                } else {
+                    messageFrom = Coder.generateMove();
+                }
+            }
+
+            long thinkMillis = System.currentTimeMillis() - thinkStart;
+            clockMillis[fromSeat] += thinkMillis;
+            long processStart = System.nanoTime();
+
+            LOG.debug("Received move: {}", messageFrom);
+
+            // Verifica se è un messaggio di chat
+            if (messageFrom.startsWith("CHAT ")) {
+                // Inoltra il messaggio di chat all'altro giocatore
+                send(toSeat, messageFrom);
+                return false; // Non è una mossa, quindi ritorna false
+            }
+
+            // Il client chiede lo stato completo della partita
+            if (messageFrom.equals("SYNC")) {
+                synchronized (seatLock) {
+                    send(fromSeat, currentSnapshot().toMessage());
+                }
+                return false;
+            }
+
+            String[] parts = messageFrom.split(" ");
+            if (parts.length < 4) {
+                LOG.debug("Invalid move format: {}", messageFrom);
+                return false;
+            }
+
+            int fromX = Integer.parseInt(parts[0]);
+            int fromY = Integer.parseInt(parts[1]);
+            int newX = Integer.parseInt(parts[2]);
+            int newY = Integer.parseInt(parts[3]);
+
+            if (board[fromX][fromY].getPiece() == null) {
+                LOG.debug("No piece at source position");
+                return false;
+            }
+
+            Piece piece = board[fromX][fromY].getPiece();
+
+            // Verifica se è il turno corretto
+            boolean isCorrectPlayer = false;
+            if (moveDir == -1) { // Turno GRAY
+                isCorrectPlayer = (piece.getPieceType() == PieceType.GRAY || piece.getPieceType() == PieceType.GRAY_SUP);
+            } else { // Turno WHITE
+                isCorrectPlayer = (piece.getPieceType() == PieceType.WHITE || piece.getPieceType() == PieceType.WHITE_SUP);
+            }
+
+            if (!isCorrectPlayer) {
+                LOG.debug("Wrong player turn");
+                moveRejected("Wrong player turn");
+                send(fromSeat, Coder.encode(piece, newX, newY, new MoveResult(MoveType.NONE)));
+                return false;
+            }
+
+            // Verifica se è in multi-jump e la pedina è quella corretta
+            if (isInMultiJump && piece != multiJumpPiece) {
+                LOG.debug("Must continue multi-jump with the same piece");
+                moveRejected("Must continue multi-jump with the same piece");
+                send(fromSeat, Coder.encode(piece, newX, newY, new MoveResult(MoveType.NONE)));
+                return false;
+            }
+
+            long validationStart = System.nanoTime();
+            MoveResult moveResult = tryMove(piece, newX, newY);
+            metrics.moveValidated(System.nanoTime() - validationStart);
+            LOG.debug("Move result: {}", moveResult.getMoveType());
+
+            // Verifica mangiata obbligatoria solo se non siamo in multi-jump
+            if (mustCapture && moveResult.getMoveType() == MoveType.NORMAL) {
+                LOG.debug("Must capture when capture is available");
+                moveRejected("Must capture when capture is available");
+                send(fromSeat, Coder.encode(piece, newX, newY, new MoveResult(MoveType.NONE)));
+                return false;
+            }
+
+            // Se la mossa non è valida, rifiutala
+            if (moveResult.getMoveType() == MoveType.NONE) {
+                LOG.debug("Invalid move");
+                moveRejected("Invalid move");
+                send(fromSeat, Coder.encode(piece, newX, newY, moveResult));
+                return false;
+            }
+
+            String toMessage = Coder.encode(piece, newX, newY, moveResult);
+            boolean shouldChangeTurn = true;
+
+            // Lo stato viene aggiornato sotto lock, così uno snapshot di riconnessione è sempre coerente
+            synchronized (seatLock) {
+                makeMove(piece, newX, newY, moveResult);
+                plies.add(new GameRecord.Ply(BoardSnapshot.squareIndex(fromX, fromY),
+                        BoardSnapshot.squareIndex(newX, newY), (int) (thinkMillis / 100)));
+
+                // Gestisci multi-jump
+                if (moveResult.getMoveType() == MoveType.KILL) {
+                    movesWithoutCapture = 0; // Reset contatore
+
+                    // Controlla se ci sono altre catture possibili con la stessa pedina
+                    List<MoveResult> additionalCaptures = findPossibleCaptures(piece);
+                    if (!additionalCaptures.isEmpty()) {
+                        LOG.debug("Multi-jump continues");
+                        ServerEvents.MultiJump multiJumpEvent = new ServerEvents.MultiJump();
+                        if (multiJumpEvent.shouldCommit()) {
+                            multiJumpEvent.matchId = matchId;
+                            multiJumpEvent.turn = turn;
+                            multiJumpEvent.commit();
+                        }
+                        isInMultiJump = true;
+                        multiJumpPiece = piece;
+                        shouldChangeTurn = false; // Non cambiare turno
+                    } else {
+                        LOG.debug("Multi-jump ended");
+                        isInMultiJump = false;
+                        multiJumpPiece = null;
+                    }
+                } else {
+                    movesWithoutCapture++;
+                    isInMultiJump = false;
+                    multiJumpPiece = null;
+                }
+                // Pubblicato sotto lock: uno spettatore appena iscritto non riceve due volte la stessa mossa
+                spectators.publish(toMessage);
+            }
+
+            // Invia il messaggio ai client
+            send(toSeat, toMessage);
+            send(fromSeat, toMessage);
+
+            // Controlla condizioni di fine partita
+            if (whitePieces == 0 || grayPieces == 0 || movesWithoutCapture >= MAX_MOVES_WITHOUT_CAPTURE) {
+                String endOfGameMessage;
+                if (movesWithoutCapture >= MAX_MOVES_WITHOUT_CAPTURE) {
+                    endOfGameMessage = "1 2 3 4 DRAW";
+                } else if (whitePieces == 0) {
+                    endOfGameMessage = "1 2 3 4 END1";
+                } else {
+                    endOfGameMessage = "1 2 3 4 END2";
+                }
+                result = endOfGameMessage.substring("1 2 3 4 ".length());
+
+                send(toSeat, endOfGameMessage);
+                send(fromSeat, endOfGameMessage);
+                spectators.publish(endOfGameMessage);
+            }
+
+            metrics.moveProcessed(System.nanoTime() - processStart);
+            return shouldChangeTurn;
+        } catch (NumberFormatException e) {
+            LOG.debug("Invalid move format: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void moveRejected(String reason) {
+        metrics.moveRejected();
+        ServerEvents.MoveRejected event = new ServerEvents.MoveRejected();
+        if (event.shouldCommit()) {
+            event.matchId = matchId;
+            event.turn = turn;
+            event.reason = reason;
+            event.commit();
+        }
+    }
+
+    public void makeMove(Piece piece, int newX, int newY, MoveResult moveResult) {
+        MoveType moveType = moveResult.getMoveType();
+        switch (moveType) {
+            case NONE -> piece.abortMove();
+            case NORMAL -> {
+                board[Coder.pixelToBoard(piece.getOldX())][Coder.pixelToBoard(piece.getOldY())].setPiece(null);
+                piece.move(newX, newY);
+                board[newX][newY].setPiece(piece);
+                if ((newY == 7 && piece.getPieceType() == PieceType.GRAY) || (newY == 0 && piece.getPieceType() == PieceType.WHITE)) {
+                    piece.promote();
+                }
+            }
+            case KILL -> {
+                board[Coder.pixelToBoard(piece.getOldX())][Coder.pixelToBoard(piece.getOldY())].setPiece(null);
+                piece.move(newX, newY);
+                board[newX][newY].setPiece(piece);
+
+                // Aggiorna il conteggio delle pedine
+                if (piece.getPieceType() == PieceType.GRAY || piece.getPieceType() == PieceType.GRAY_SUP) {
+                    whitePieces--;
+                } else {
+                    grayPieces--;
+                }
+
+                Piece otherPiece = moveResult.getPiece();
+                board[Coder.pixelToBoard(otherPiece.getOldX())][Coder.pixelToBoard(otherPiece.getOldY())].setPiece(null);
+
+                // Promuovi se necessario
+                if ((newY == 7 && piece.getPieceType() == PieceType.GRAY) || (newY == 0 && piece.getPieceType() == PieceType.WHITE)) {
+                    piece.promote();
+                }
+            }
+        }
+    }
+
+    /**
+     * Accoda una riga per il giocatore seduto al posto indicato.
+     * Le righe vengono spedite da flushOutbound, prima di mettersi in attesa.
+     */
+    private void send(int seat, String message) {
+        synchronized (seatLock) {
+            BufferedWriter writer = seat == 1 ? bufferedWriter1 : bufferedWriter2;
+            if (writer == null || disconnected[seat]) {
+                return;
+            }
+            outbound.add(seat, message);
+        }
+    }
+
+    /**
+     * Scrive a ogni giocatore le righe accodate, con un solo flush per socket.
+     * Un errore di scrittura non chiude la partita: il posto viene marcato come disconnesso.
+     */
+    private void flushOutbound() {
+        synchronized (seatLock) {
+            for (int seat = 1; seat <= 2; seat++) {
+                BufferedWriter writer = seat == 1 ? bufferedWriter1 : bufferedWriter2;
+                if (writer == null || disconnected[seat]) {
+                    outbound.discard(seat);
+                    continue;
+                }
+                try {
+                    outbound.flush(seat, writer);
+                } catch (IOException e) {
+                    LOG.info("Match {}: player {} disconnected while writing", matchId, seat);
+                    metrics.socketError();
+                    disconnected[seat] = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Legge la prossima riga dal giocatore; ritorna null se la connessione è caduta.
+     */
+    private String readFrom(int seat) {
+        flushOutbound();
+
+        BufferedReader reader;
+        Socket socket;
+        synchronized (seatLock) {
+            if (disconnected[seat]) {
+                return null;
+            }
+            reader = seat == 1 ? bufferedReader1 : bufferedReader2;
+            socket = seat == 1 ? socket1 : socket2;
+        }
+
+        try {
+            String line = reader.readLine();
+            if (line == null) {
+                markDisconnected(seat, socket);
+            }
+            return line;
+        } catch (IOException e) {
+            markDisconnected(seat, socket);
+            return null;
+        }
+    }
+
+    /**
+     * Marca il posto come disconnesso, a meno che il socket non sia già stato sostituito da una riconnessione.
+     */
+    private void markDisconnected(int seat, Socket socket) {
+        synchronized (seatLock) {
+            Socket current = seat == 1 ? socket1 : socket2;
+            if (current == socket && !disconnected[seat]) {
+                LOG.info("Match {}: player {} disconnected", matchId, seat);
+                metrics.socketError();
+                disconnected[seat] = true;
+            }
+        }
+    }
+
+    /**
+     * Attende fino a RECONNECT_GRACE_SECONDS che i giocatori disconnessi si ricolleghino.
+     * Se il tempo scade, la partita viene assegnata a chi è rimasto.
+     * @return true se la partita può continuare
+     */
+    private boolean awaitReconnect() throws InterruptedException {
+        // Chi è rimasto connesso riceve subito le righe del turno appena giocato
+        flushOutbound();
+
+        String forfeitMessage;
+        synchronized (seatLock) {
+            if (handoffDirectory != null) {
+                handOff();
+                return false;
+            }
+            if (!disconnected[1] && !disconnected[2]) {
+                return true;
+            }
+
+            LOG.info("Match {}: waiting for player to reconnect...", matchId);
+            long deadline = System.currentTimeMillis() + GameConfig.RECONNECT_GRACE_SECONDS * 1000L;
+            long remaining = deadline - System.currentTimeMillis();
+            while ((disconnected[1] || disconnected[2]) && remaining > 0 && handoffDirectory == null) {
+                seatLock.wait(remaining);
+                remaining = deadline - System.currentTimeMillis();
+            }
+
+            if (handoffDirectory != null) {
+                handOff();
+                return false;
+            }
+
+            if (!disconnected[1] && !disconnected[2]) {
+                return true;
+            }
+
+            finished = true;
+            forfeitMessage = disconnected[1] ? "1 2 3 4 END2" : "1 2 3 4 END1";
+            result = forfeitMessage.substring("1 2 3 4 ".length());
+        }
+
+        LOG.info("Match {}: reconnect grace period expired", matchId);
+        send(1, forfeitMessage);
+        send(2, forfeitMessage);
+        flushOutbound();
+        spectators.publish(forfeitMessage);
+        return false;
+    }
+
+    /**
+     * Chiede alla partita di farsi consegnare a un altro processo: i socket dei giocatori
+     * vengono chiusi e il thread della partita, al prossimo inizio turno, scrive lo stato
+     * nella cartella e termina senza assegnare la vittoria. I client si ricollegano da soli
+     * con "resume" e trovano la partita nel nuovo processo.
+     * @return false se la partita è già terminata
+     */
+    boolean suspend(Path directory) {
+        synchronized (seatLock) {
+            if (finished) {
+                return false;
+            }
+            handoffDirectory = directory;
+            // Chiude solo i socket: il reader è bloccato in lettura nel thread della partita
+            closeSocket(socket1);
+            closeSocket(socket2);
+            seatLock.notifyAll();
+            return true;
+        }
+    }
+
+    /**
+     * Scrive la partita nella cartella di consegna; va chiamato sotto seatLock a inizio turno,
+     * quando turno, giocatore corrente e scacchiera sono coerenti.
+     */
+    private void handOff() {
+        finished = true;
+        if (!isInMultiJump) {
+            currentPlayer = turn % 2 * 2 - 1;
+        }
+        GameRecord game = new GameRecord(0, startedAt, GameRecord.ABORTED, players[1], players[2],
+                (int) (clockMillis[1] / 100), (int) (clockMillis[2] / 100), plies);
+        MatchHandoff handoff = new MatchHandoff(currentSnapshot(), sessionTokens[1], sessionTokens[2], game);
+        try {
+            handoff.write(handoffDirectory);
+            handedOff = true;
+            LOG.info("Match {} handed off at turn {}", matchId, turn);
+        } catch (IOException e) {
+            LOG.error("Match {} could not be handed off", matchId, e);
+        }
+    }
+
+    /**
+     * Ricollega un giocatore al suo posto e gli invia lo stato corrente della partita.
+     * @return false se la partita è già terminata
+     */
+    boolean resumeSeat(int seat, Socket socket) throws IOException {
+        synchronized (seatLock) {
+            if (finished || (seat == 2 && isCpuMode)) {
+                return false;
+            }
+
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream()));
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            writer.write(String.valueOf(seat));
+            writer.newLine();
+            writer.write(currentSnapshot().toMessage());
+            writer.newLine();
+            if (currentPlayer == (seat == 1 ? -1 : 1)) {
+                writer.write("PING");
+                writer.newLine();
+            }
+            writer.flush();
+
+            // Lo snapshot sostituisce le righe rimaste in coda
+            outbound.discard(seat);
+            // Solo il socket: chiudere il reader aspetterebbe il thread della partita fermo in readLine,
+            // che riceve l'IOException e abbandona da sé i vecchi stream
+            closeSocket(seat == 1 ? socket1 : socket2);
+            if (seat == 1) {
+                socket1 = socket;
+                bufferedWriter1 = writer;
+                bufferedReader1 = reader;
+            } else {
+                socket2 = socket;
+                bufferedWriter2 = writer;
+                bufferedReader2 = reader;
+            }
+            disconnected[seat] = false;
+            LOG.info("Match {}: player {} reconnected", matchId, seat);
+            seatLock.notifyAll();
+            return true;
+        }
+    }
+
+    /**
+     * Fotografa lo stato corrente della partita; va chiamato sotto seatLock.
+     */
+    private BoardSnapshot currentSnapshot() {
+        PieceType[] squares = new PieceType[BoardSnapshot.SQUARES];
+        int multiJumpSquare = BoardSnapshot.NO_SQUARE;
+        for (int index = 0; index < BoardSnapshot.SQUARES; index++) {
+            Piece piece = board[BoardSnapshot.squareX(index)][BoardSnapshot.squareY(index)].getPiece();
+            if (piece != null) {
+                squares[index] = piece.getPieceType();
+                if (piece == multiJumpPiece) {
+                    multiJumpSquare = index;
+                }
+            }
+        }
+        return new BoardSnapshot(squares, currentPlayer == 1, movesWithoutCapture, multiJumpSquare, turn,
+                (int) (clockMillis[1] / 100), (int) (clockMillis[2] / 100));
+    }
+
+    /**
+     * Aggiunge uno spettatore alla partita.
+     * @return false se la partita è già terminata
+     */
+    boolean addSpectator(Socket socket) throws IOException {
+        synchronized (seatLock) {
+            if (finished) {
+                return false;
+            }
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+            out.write(("WATCHING " + matchId + "\n").getBytes(StandardCharsets.UTF_8));
+            spectators.subscribe(out, socket);
+            return true;
+        }
+    }
+
+    public int getMatchId() {
+        return matchId;
+    }
+
+    private void endSessions() {
+        synchronized (seatLock) {
+            finished = true;
+        }
+        ServerEvents.GameEnd gameEnd = new ServerEvents.GameEnd();
+        if (gameEnd.shouldCommit()) {
+            gameEnd.matchId = matchId;
+            gameEnd.result = handedOff ? "HANDED_OFF" : result == null ? "ABORTED" : result;
+            gameEnd.turns = turn;
+            gameEnd.commit();
+        }
+        sessions.remove(sessionTokens[1]);
+        sessions.remove(sessionTokens[2]);
+        matches.remove(matchId);
+        spectators.close();
+        if (handedOff) {
+            // La partita continua nel nuovo processo, che la archivierà alla fine
+            return;
+        }
+        storeRecord();
+        if (ratings != null) {
+            ratings.recordGame(players[1], players[2], result);
+        }
+    }
+
+    /**
+     * Accoda la partita all'archivio; la scrittura su disco avviene in background.
+     */
+    private void storeRecord() {
+        if (records == null) {
+            return;
+        }
+        GameRecord record;
+        synchronized (seatLock) {
+            record = new GameRecord(records.nextGameId(), startedAt, result == null ? GameRecord.ABORTED : result,
+                    players[1], players[2],
+                    (int) (clockMillis[1] / 100), (int) (clockMillis[2] / 100), plies);
+        }
+        try {
+            records.append(record).whenComplete((ignored, error) -> {
+                if (error != null) {
+                    LOG.error("Match {} could not be stored", matchId, error);
+                }
+            });
+        } catch (IllegalStateException e) {
+            LOG.warn("Match {} not stored: {}", matchId, e.getMessage());
+        }
+    }
+
+    private static void closeSocket(Socket socket) {
+        if (socket == null) {
+            return;
+        }
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Già chiuso
+        }
+    }
+
+    private void closeEverything() {
+        synchronized (seatLock) {
+            // Chiudere il socket chiude anche i suoi stream, senza bloccarsi su un peer mezzo aperto
+            closeSocket(socket1);
+            closeSocket(socket2);
+        }
+    }
+}
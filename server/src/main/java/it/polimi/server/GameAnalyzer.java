@@ -0,0 +1,263 @@
+package it.polimi.server;
+
+import it.polimi.common.BoardSnapshot;
+import it.polimi.common.GameConfig;
+import it.polimi.common.Log;
+import it.polimi.model.MoveType;
+import it.polimi.model.Piece;
+import it.polimi.model.PieceType;
+import it.polimi.model.Position;
+import it.polimi.model.Tile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Post-match review: replays a stored game and runs CheckersAI's multi-PV analysis before every
+ * move, which gives each legal move an exact score at full depth. A move that scores at least
+ * BLUNDER_THRESHOLD below the best line is flagged, with that line as the suggestion; a sound
+ * sacrifice the search scores as good as the best move is not. The analysis breaks no ties at
+ * random, so the same game always gets the same report.
+ * An instance reuses one board and is meant for a single thread; the batch methods
+ * give each worker thread its own.
+ */
+public class GameAnalyzer {
+    private static final Log LOG = Log.getLogger(GameAnalyzer.class);
+
+    /** Score loss, in hundredths of a man, from which a move is a blunder. */
+    public static final int BLUNDER_THRESHOLD = 100;
+
+    private final Tile[][] board = new Tile[GameConfig.BOARD_WIDTH][GameConfig.BOARD_HEIGHT];
+    private final CheckersAI whiteAI;
+    private final CheckersAI grayAI;
+
+    /**
+     * @param ply index of the first ply of the move
+     * @param played   the move in PDN notation
+     * @param suggested the first move of the best line in PDN notation
+     * @param scoreLost how much worse the played move scores than the best line, in hundredths of a man
+     * @param bestLine the best line's principal variation, one PDN move per entry
+     */
+    public record Blunder(long gameId, int ply, boolean white, String played, String suggested, int scoreLost,
+                          List<String> bestLine) {
+    }
+
+    public record Analysis(long gameId, int plies, List<Blunder> blunders) {
+    }
+
+    public GameAnalyzer() {
+        for (int y = 0; y < GameConfig.BOARD_HEIGHT; y++) {
+            for (int x = 0; x < GameConfig.BOARD_WIDTH; x++) {
+                board[x][y] = new Tile((x + y) % 2 == 0, x, y);
+            }
+        }
+        whiteAI = new CheckersAI(board, true);
+        grayAI = new CheckersAI(board, false);
+    }
+
+    /**
+     * Command line review of one day of games:
+     * <pre>
+     *   GameAnalyzer &lt;records dir&gt; [yyyy-mm-dd]
+     * </pre>
+     * The day is in UTC and defaults to today.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1 || args.length > 2) {
+            System.out.println("Usage: GameAnalyzer <records dir> [yyyy-mm-dd]");
+            return;
+        }
+        LocalDate day = args.length == 2 ? LocalDate.parse(args[1]) : LocalDate.now(ZoneOffset.UTC);
+        try (GameRecordStore store = GameRecordStore.open(Path.of(args[0]))) {
+            List<Analysis> analyses = analyzeDay(store, day, ZoneOffset.UTC, Runtime.getRuntime().availableProcessors());
+            int blunders = 0;
+            for (Analysis analysis : analyses) {
+                for (Blunder blunder : analysis.blunders()) {
+                    System.out.println("Game " + blunder.gameId() + " ply " + blunder.ply() + " ("
+                            + (blunder.white() ? "White" : "Black") + "): played " + blunder.played()
+                            + ", better " + String.join(" ", blunder.bestLine())
+                            + String.format(" (-%.2f men)", blunder.scoreLost() / 100.0));
+                    blunders++;
+                }
+            }
+            System.out.println(analyses.size() + " games analysed, " + blunders + " blunders");
+        }
+    }
+
+    /**
+     * Analyses the games started on the given day, spread over the given number of threads.
+     */
+    public static List<Analysis> analyzeDay(GameRecordStore store, LocalDate day, ZoneId zone, int threads)
+            throws IOException, InterruptedException {
+        long from = day.atStartOfDay(zone).toInstant().toEpochMilli();
+        long to = day.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        List<GameRecord> games = new ArrayList<>();
+        store.forEach(record -> {
+            if (record.startedAt() >= from && record.startedAt() < to) {
+                games.add(record);
+            }
+        });
+        return analyzeAll(games, threads);
+    }
+
+    /**
+     * Analyses the games in parallel; games that cannot be replayed are logged and left out.
+     * @return one analysis per game, in input order
+     */
+    public static List<Analysis> analyzeAll(List<GameRecord> games, int threads) throws InterruptedException {
+        ThreadLocal<GameAnalyzer> analyzers = ThreadLocal.withInitial(GameAnalyzer::new);
+        List<Callable<Analysis>> tasks = new ArrayList<>(games.size());
+        for (GameRecord game : games) {
+            tasks.add(() -> analyzers.get().analyze(game));
+        }
+
+        List<Analysis> analyses = new ArrayList<>(games.size());
+        try (ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "game-analyzer");
+            thread.setDaemon(true);
+            return thread;
+        })) {
+            List<Future<Analysis>> results = pool.invokeAll(tasks);
+            for (int i = 0; i < results.size(); i++) {
+                try {
+                    analyses.add(results.get(i).get());
+                } catch (ExecutionException e) {
+                    LOG.warn("Cannot analyse game {}: {}", games.get(i).gameId(), e.getCause().getMessage());
+                }
+            }
+        }
+        return analyses;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the game cannot be replayed
+     */
+    public Analysis analyze(GameRecord record) {
+        GameReplay replay = new GameReplay(record);
+        List<GameRecord.Ply> plies = record.moves();
+        List<Blunder> blunders = new ArrayList<>();
+        PieceType[] squares = GameReplay.initialSquares();
+        // The draw counter as the referee kept it, so the searches see the same positions as the live game
+        int movesWithoutCapture = 0;
+
+        int ply = 0;
+        while (ply < plies.size()) {
+            int end = ply + 1;
+            while (end < plies.size() && replay.isContinuation(end)) {
+                end++;
+            }
+            boolean white = GameReplay.isWhite(squares[plies.get(ply).fromSquare()]);
+
+            List<Integer> played = new ArrayList<>();
+            played.add(plies.get(ply).fromSquare() + 1);
+            for (int i = ply; i < end; i++) {
+                played.add(plies.get(i).toSquare() + 1);
+            }
+
+            List<SearchResult> lines = lines(squares, white, movesWithoutCapture);
+            String playedMove = protocol(plies.get(ply));
+            SearchResult playedLine = lines.stream().filter(line -> line.move().equals(playedMove))
+                    .findFirst().orElse(null);
+            // A move the server's rules would not have allowed has no score to compare
+            if (playedLine != null) {
+                SearchResult best = lines.get(0);
+                int lost = best.score() - playedLine.score();
+                if (!best.move().equals(playedMove) && lost >= BLUNDER_THRESHOLD) {
+                    List<String> bestLine = pdnMoves(best.principalVariation());
+                    blunders.add(new Blunder(record.gameId(), ply, white, notation(played), bestLine.get(0),
+                            lost, bestLine));
+                }
+            }
+
+            for (int i = ply; i < end; i++) {
+                movesWithoutCapture = GameReplay.apply(squares, plies.get(i), i) ? 0 : movesWithoutCapture + 1;
+            }
+            ply = end;
+        }
+        return new Analysis(record.gameId(), plies.size(), blunders);
+    }
+
+    /**
+     * Every legal move of the side with its exact score and line, best first; moves scoring the
+     * same keep CheckersAI's priority order, so the best line does not depend on chance.
+     */
+    private List<SearchResult> lines(PieceType[] squares, boolean white, int movesWithoutCapture) {
+        load(squares);
+        try {
+            return (white ? whiteAI : grayAI).analyze(BoardSnapshot.NO_SQUARE, movesWithoutCapture,
+                    Position.MAX_MOVES, 1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Analysis interrupted", e);
+        }
+    }
+
+    /**
+     * Puts the position on the shared board, creating pieces only where the square changed.
+     */
+    private void load(PieceType[] squares) {
+        for (int index = 0; index < BoardSnapshot.SQUARES; index++) {
+            int x = BoardSnapshot.squareX(index);
+            int y = BoardSnapshot.squareY(index);
+            Tile tile = board[x][y];
+            PieceType type = squares[index];
+            if (type == null) {
+                if (tile.hasPiece()) {
+                    tile.setPiece(null);
+                }
+            } else if (!tile.hasPiece() || tile.getPiece().getPieceType() != type) {
+                tile.setPiece(new Piece(type, x, y));
+            }
+        }
+    }
+
+    private static String protocol(GameRecord.Ply ply) {
+        return BoardSnapshot.squareX(ply.fromSquare()) + " " + BoardSnapshot.squareY(ply.fromSquare()) + " "
+                + BoardSnapshot.squareX(ply.toSquare()) + " " + BoardSnapshot.squareY(ply.toSquare());
+    }
+
+    /**
+     * A line of protocol plies in PDN, one entry per move: the jumps of a multi-capture are joined.
+     */
+    private static List<String> pdnMoves(List<String> line) {
+        List<String> moves = new ArrayList<>();
+        List<Integer> move = new ArrayList<>();
+        for (String ply : line) {
+            String[] coordinates = ply.split(" ");
+            int from = BoardSnapshot.squareIndex(Integer.parseInt(coordinates[0]), Integer.parseInt(coordinates[1])) + 1;
+            int to = BoardSnapshot.squareIndex(Integer.parseInt(coordinates[2]), Integer.parseInt(coordinates[3])) + 1;
+            // The same piece jumping again from where its capture landed continues the move
+            if (!move.isEmpty() && move.get(move.size() - 1) == from && isCapture(move)
+                    && isCapture(List.of(from, to))) {
+                move.add(to);
+                continue;
+            }
+            if (!move.isEmpty()) {
+                moves.add(notation(move));
+            }
+            move = new ArrayList<>(List.of(from, to));
+        }
+        if (!move.isEmpty()) {
+            moves.add(notation(move));
+        }
+        return moves;
+    }
+
+    private static boolean isCapture(List<Integer> squares) {
+        return Math.abs(BoardSnapshot.squareY(squares.get(1) - 1) - BoardSnapshot.squareY(squares.get(0) - 1)) == 2;
+    }
+
+    private static String notation(List<Integer> squares) {
+        return new PdnGame.Move(squares, isCapture(squares) ? MoveType.KILL : MoveType.NORMAL).toString();
+    }
+}
@@ -0,0 +1,129 @@
+package it.polimi.server;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A finished (or abandoned) match: players, result, clocks and the move list.
+ * Squares are the 0-31 indexes of BoardSnapshot; each ply takes two bytes for
+ * the squares plus a varint for the thinking time, so a typical game fits in a few hundred bytes.
+ * A match handed off during a drain is stored by the process that finishes it, not as HANDED_OFF.
+ *
+ * @param result END1, END2, DRAW or ABORTED, as sent on the protocol
+ */
+public record GameRecord(long gameId, long startedAt, String result, String grayPlayer, String whitePlayer,
+                         int grayClockTenths, int whiteClockTenths, List<Ply> moves) {
+
+    public static final String ABORTED = "ABORTED";
+    private static final String[] RESULTS = {ABORTED, "END1", "END2", "DRAW"};
+    private static final byte FORMAT_VERSION = 1;
+
+    /**
+     * One applied move; each jump of a multi-capture is its own ply.
+     */
+    public record Ply(int fromSquare, int toSquare, int thinkTenths) {
+        public Ply {
+            if (fromSquare < 0 || fromSquare >= 32 || toSquare < 0 || toSquare >= 32) {
+                throw new IllegalArgumentException("Invalid squares: " + fromSquare + " -> " + toSquare);
+            }
+        }
+    }
+
+    public GameRecord {
+        resultCode(result);
+        moves = List.copyOf(moves);
+    }
+
+    public byte[] encode() {
+        byte[] gray = grayPlayer.getBytes(StandardCharsets.UTF_8);
+        byte[] white = whitePlayer.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(64 + gray.length + white.length + moves.size() * 7);
+        buffer.put(FORMAT_VERSION);
+        buffer.putLong(gameId);
+        buffer.putLong(startedAt);
+        buffer.put((byte) resultCode(result));
+        putVarint(buffer, gray.length);
+        buffer.put(gray);
+        putVarint(buffer, white.length);
+        buffer.put(white);
+        putVarint(buffer, grayClockTenths);
+        putVarint(buffer, whiteClockTenths);
+        putVarint(buffer, moves.size());
+        for (Ply ply : moves) {
+            buffer.putShort((short) (ply.fromSquare() << 5 | ply.toSquare()));
+            putVarint(buffer, ply.thinkTenths());
+        }
+        byte[] encoded = new byte[buffer.position()];
+        buffer.flip().get(encoded);
+        return encoded;
+    }
+
+    public static GameRecord decode(ByteBuffer buffer) {
+        try {
+            byte version = buffer.get();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unknown record version: " + version);
+            }
+            long gameId = buffer.getLong();
+            long startedAt = buffer.getLong();
+            int code = buffer.get();
+            if (code < 0 || code >= RESULTS.length) {
+                throw new IllegalArgumentException("Unknown result code: " + code);
+            }
+            String gray = getString(buffer);
+            String white = getString(buffer);
+            int grayClock = getVarint(buffer);
+            int whiteClock = getVarint(buffer);
+            int count = getVarint(buffer);
+            List<Ply> moves = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int squares = buffer.getShort();
+                moves.add(new Ply(squares >>> 5 & 0x1F, squares & 0x1F, getVarint(buffer)));
+            }
+            return new GameRecord(gameId, startedAt, RESULTS[code], gray, white, grayClock, whiteClock, moves);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated game record", e);
+        }
+    }
+
+    private static int resultCode(String result) {
+        for (int i = 0; i < RESULTS.length; i++) {
+            if (RESULTS[i].equals(result)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown result: " + result);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[getVarint(buffer)];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void putVarint(ByteBuffer buffer, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value: " + value);
+        }
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static int getVarint(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+}
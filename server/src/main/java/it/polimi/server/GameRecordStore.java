@@ -0,0 +1,410 @@
+package it.polimi.server;
+
+import it.polimi.common.Log;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only store of finished games, split into numbered segment files.
+ * Each entry is [length][crc32c][GameRecord bytes]. Appends are handed to a single writer
+ * thread that writes whatever has queued up with one gathering write and one fsync,
+ * so the match threads never wait on the disk.
+ * The index by game id and by player lives in memory and is rebuilt by scanning the
+ * segments on open; a torn entry at the end of a segment is cut off.
+ */
+public class GameRecordStore implements Closeable {
+    private static final Log LOG = Log.getLogger(GameRecordStore.class);
+
+    public static final long DEFAULT_SEGMENT_BYTES = 16L * 1024 * 1024;
+    private static final Pattern SEGMENT_NAME = Pattern.compile("games-(\\d{6})\\.log");
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_BATCH = 256;
+    // Queued by close(): the writer stops after the entries ahead of it
+    private static final Pending END_OF_QUEUE = new Pending(null, null, null);
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final Map<Long, Location> byGameId = new ConcurrentHashMap<>();
+    private final Map<String, GameIds> byPlayer = new ConcurrentHashMap<>();
+    private final Map<Integer, FileChannel> readers = new ConcurrentHashMap<>();
+    private final AtomicLong nextGameId = new AtomicLong(1);
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean closed = false;
+
+    private int segment;
+    private FileChannel output;
+
+    private record Location(int segment, long offset, int length) {
+    }
+
+    private record Pending(GameRecord record, byte[] payload, CompletableFuture<Void> done) {
+    }
+
+    private GameRecordStore(Path directory, long segmentBytes) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(directory);
+
+        List<Integer> segments = listSegments();
+        for (int number : segments) {
+            recover(number);
+        }
+        segment = segments.isEmpty() ? 1 : segments.get(segments.size() - 1);
+        output = openForAppend(segment);
+
+        writer = new Thread(this::writeLoop, "game-record-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public static GameRecordStore open(Path directory) throws IOException {
+        return new GameRecordStore(directory, DEFAULT_SEGMENT_BYTES);
+    }
+
+    /**
+     * @param segmentBytes size after which a new segment is started
+     */
+    public static GameRecordStore open(Path directory, long segmentBytes) throws IOException {
+        return new GameRecordStore(directory, segmentBytes);
+    }
+
+    /**
+     * Id for a new game, unique across restarts of the same store.
+     */
+    public long nextGameId() {
+        return nextGameId.getAndIncrement();
+    }
+
+    /**
+     * Queues a game for writing.
+     * @return completes once the record is on disk and visible to lookups
+     */
+    public CompletableFuture<Void> append(GameRecord record) {
+        if (closed) {
+            throw new IllegalStateException("Game record store is closed");
+        }
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        queue.add(new Pending(record, record.encode(), done));
+        return done;
+    }
+
+    public Optional<GameRecord> find(long gameId) throws IOException {
+        Location location = byGameId.get(gameId);
+        if (location == null) {
+            return Optional.empty();
+        }
+        ByteBuffer payload = ByteBuffer.allocate(location.length());
+        FileChannel channel = reader(location.segment());
+        long position = location.offset() + HEADER_BYTES;
+        while (payload.hasRemaining()) {
+            int read = channel.read(payload, position);
+            if (read < 0) {
+                throw new IOException("Game " + gameId + " is cut short");
+            }
+            position += read;
+        }
+        return Optional.of(GameRecord.decode(payload.flip()));
+    }
+
+    /**
+     * Ids of the games played by the given player, oldest first. The shared names of anonymous
+     * players, the CPU and PDN games without players are not indexed and have no games.
+     */
+    public List<Long> gamesOf(String player) {
+        GameIds ids = byPlayer.get(player);
+        return ids == null ? List.of() : ids.toList();
+    }
+
+    public int size() {
+        return byGameId.size();
+    }
+
+    /**
+     * Streams every durable game in the order it was written, one record in memory at a time.
+     */
+    public void forEach(Consumer<GameRecord> action) throws IOException {
+        for (int number : listSegments()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segmentPath(number)), 1 << 16))) {
+                long position = 0;
+                while (true) {
+                    int length;
+                    try {
+                        length = in.readInt();
+                        in.readInt();
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    byte[] payload = new byte[length];
+                    in.readFully(payload);
+                    Location location = new Location(number, position, length);
+                    position += HEADER_BYTES + length;
+                    GameRecord record = GameRecord.decode(ByteBuffer.wrap(payload));
+                    // Entries still waiting for their fsync are not part of the store yet
+                    if (location.equals(byGameId.get(record.gameId()))) {
+                        action.accept(record);
+                    }
+                }
+            } catch (EOFException e) {
+                // Tail being written right now
+            }
+        }
+    }
+
+    /**
+     * Writes what is still queued, then closes the files.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        queue.add(END_OF_QUEUE);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        output.close();
+        for (FileChannel channel : readers.values()) {
+            channel.close();
+        }
+    }
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>(MAX_BATCH);
+        boolean running = true;
+        while (running) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            queue.drainTo(batch, MAX_BATCH - 1);
+            running = !batch.remove(END_OF_QUEUE);
+            if (batch.isEmpty()) {
+                continue;
+            }
+
+            int startSegment = segment;
+            long startPosition = -1;
+            try {
+                startPosition = output.size();
+                writeBatch(batch);
+                for (Pending pending : batch) {
+                    pending.done().complete(null);
+                }
+            } catch (IOException e) {
+                LOG.error("Cannot write {} game records", batch.size(), e);
+                discardPartialWrite(startSegment, startPosition);
+                for (Pending pending : batch) {
+                    pending.done().completeExceptionally(e);
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Cuts off a half-written batch, so that later entries are not hidden behind torn data on recovery.
+     */
+    private void discardPartialWrite(int startSegment, long startPosition) {
+        if (segment != startSegment || startPosition < 0) {
+            return;
+        }
+        try {
+            output.truncate(startPosition);
+        } catch (IOException e) {
+            LOG.warn("Cannot discard partial write: {}", e.getMessage());
+        }
+    }
+
+    private void writeBatch(List<Pending> batch) throws IOException {
+        List<ByteBuffer> buffers = new ArrayList<>(batch.size() * 2);
+        List<Location> locations = new ArrayList<>(batch.size());
+        long position = output.size();
+
+        for (Pending pending : batch) {
+            int length = pending.payload().length;
+            if (position > 0 && position + HEADER_BYTES + length > segmentBytes) {
+                flush(buffers);
+                rollSegment();
+                position = 0;
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(pending.payload());
+            buffers.add(ByteBuffer.allocate(HEADER_BYTES).putInt(length).putInt((int) crc.getValue()).flip());
+            buffers.add(ByteBuffer.wrap(pending.payload()));
+            locations.add(new Location(segment, position, length));
+            position += HEADER_BYTES + length;
+        }
+        flush(buffers);
+        output.force(false);
+
+        // Indexed only once durable, so a lookup never returns a game that could still be lost
+        for (int i = 0; i < batch.size(); i++) {
+            index(batch.get(i).record(), locations.get(i));
+        }
+    }
+
+    private void flush(List<ByteBuffer> buffers) throws IOException {
+        ByteBuffer[] array = buffers.toArray(new ByteBuffer[0]);
+        long remaining = 0;
+        for (ByteBuffer buffer : array) {
+            remaining += buffer.remaining();
+        }
+        while (remaining > 0) {
+            remaining -= output.write(array);
+        }
+        buffers.clear();
+    }
+
+    private void rollSegment() throws IOException {
+        output.force(false);
+        output.close();
+        segment++;
+        output = openForAppend(segment);
+    }
+
+    private void index(GameRecord record, Location location) {
+        byGameId.put(record.gameId(), location);
+        indexPlayer(record.grayPlayer(), record.gameId());
+        if (!record.whitePlayer().equals(record.grayPlayer())) {
+            indexPlayer(record.whitePlayer(), record.gameId());
+        }
+        nextGameId.accumulateAndGet(record.gameId() + 1, Math::max);
+    }
+
+    /**
+     * Indexes every complete entry of a segment and truncates anything after the last one.
+     */
+    private void recover(int number) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(number), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            long position = 0;
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (position + HEADER_BYTES <= size) {
+                header.clear();
+                channel.read(header, position);
+                int length = header.getInt(0);
+                int checksum = header.getInt(4);
+                if (length <= 0 || position + HEADER_BYTES + length > size) {
+                    break;
+                }
+                ByteBuffer payload = ByteBuffer.allocate(length);
+                channel.read(payload, position + HEADER_BYTES);
+                CRC32C crc = new CRC32C();
+                crc.update(payload.array());
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                GameRecord record;
+                try {
+                    record = GameRecord.decode(payload.flip());
+                } catch (IllegalArgumentException e) {
+                    break;
+                }
+                index(record, new Location(number, position, length));
+                position += HEADER_BYTES + length;
+            }
+            if (position < size) {
+                LOG.warn("Truncating {} bytes of torn data in {}", size - position, segmentPath(number).getFileName());
+                channel.truncate(position);
+            }
+        }
+    }
+
+    private List<Integer> listSegments() throws IOException {
+        List<Integer> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    segments.add(Integer.parseInt(matcher.group(1)));
+                }
+            });
+        }
+        segments.sort(null);
+        return segments;
+    }
+
+    private void indexPlayer(String player, long gameId) {
+        // Names shared by everyone would collect most of the store under one key
+        if (player.equals(RatingService.ANONYMOUS) || player.equals(RatingService.CPU)
+                || player.equals(PdnGame.UNKNOWN_PLAYER)) {
+            return;
+        }
+        byPlayer.computeIfAbsent(player, name -> new GameIds()).add(gameId);
+    }
+
+    private FileChannel openForAppend(int number) throws IOException {
+        return FileChannel.open(segmentPath(number), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    private FileChannel reader(int number) throws IOException {
+        FileChannel channel = readers.get(number);
+        if (channel == null) {
+            FileChannel opened = FileChannel.open(segmentPath(number), StandardOpenOption.READ);
+            channel = readers.putIfAbsent(number, opened);
+            if (channel == null) {
+                channel = opened;
+            } else {
+                opened.close();
+            }
+        }
+        return channel;
+    }
+
+    private Path segmentPath(int number) {
+        return directory.resolve(String.format("games-%06d.log", number));
+    }
+
+    /**
+     * Game ids of one player in a growable array: appends are amortised O(1) and readers copy.
+     */
+    private static final class GameIds {
+        private long[] ids = new long[4];
+        private int size;
+
+        synchronized void add(long gameId) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = gameId;
+        }
+
+        synchronized List<Long> toList() {
+            Long[] boxed = new Long[size];
+            for (int i = 0; i < size; i++) {
+                boxed[i] = ids[i];
+            }
+            return List.of(boxed);
+        }
+    }
+}
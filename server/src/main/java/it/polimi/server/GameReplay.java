@@ -0,0 +1,154 @@
+package it.polimi.server;
+
+import it.polimi.common.BoardSnapshot;
+import it.polimi.model.PieceType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Headless replay of a stored game: rebuilds the position after any number of plies
+ * without JavaFX objects. The whole game is walked once up front, keeping a copy of the
+ * board every {@code snapshotInterval} plies, so {@link #positionAt(int)} only re-applies
+ * the few plies after the nearest checkpoint.
+ */
+public class GameReplay {
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 16;
+
+    private final GameRecord record;
+    private final int snapshotInterval;
+    private final List<Checkpoint> checkpoints = new ArrayList<>();
+
+    private record Checkpoint(PieceType[] squares, int movesWithoutCapture) {
+    }
+
+    public GameReplay(GameRecord record) {
+        this(record, DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    /**
+     * @throws IllegalArgumentException if a ply moves from an empty square or lands on an occupied one
+     */
+    public GameReplay(GameRecord record, int snapshotInterval) {
+        if (snapshotInterval <= 0) {
+            throw new IllegalArgumentException("Snapshot interval must be positive: " + snapshotInterval);
+        }
+        this.record = record;
+        this.snapshotInterval = snapshotInterval;
+
+        PieceType[] squares = initialSquares();
+        int movesWithoutCapture = 0;
+        List<GameRecord.Ply> plies = record.moves();
+        for (int ply = 0; ply <= plies.size(); ply++) {
+            if (ply % snapshotInterval == 0) {
+                checkpoints.add(new Checkpoint(squares.clone(), movesWithoutCapture));
+            }
+            if (ply < plies.size()) {
+                movesWithoutCapture = apply(squares, plies.get(ply), ply) ? 0 : movesWithoutCapture + 1;
+            }
+        }
+    }
+
+    public GameRecord getRecord() {
+        return record;
+    }
+
+    public int plyCount() {
+        return record.moves().size();
+    }
+
+    /**
+     * Position after the first {@code ply} plies; 0 is the starting position.
+     * Clocks are not replayed and come back as zero.
+     */
+    public BoardSnapshot positionAt(int ply) {
+        List<GameRecord.Ply> plies = record.moves();
+        if (ply < 0 || ply > plies.size()) {
+            throw new IllegalArgumentException("Ply " + ply + " out of range 0-" + plies.size());
+        }
+        Checkpoint checkpoint = checkpoints.get(ply / snapshotInterval);
+        PieceType[] squares = checkpoint.squares().clone();
+        int movesWithoutCapture = checkpoint.movesWithoutCapture();
+        for (int i = ply / snapshotInterval * snapshotInterval; i < ply; i++) {
+            movesWithoutCapture = apply(squares, plies.get(i), i) ? 0 : movesWithoutCapture + 1;
+        }
+
+        boolean whiteToMove;
+        int multiJumpSquare = BoardSnapshot.NO_SQUARE;
+        if (ply < plies.size()) {
+            whiteToMove = isWhite(squares[plies.get(ply).fromSquare()]);
+            if (isContinuation(ply)) {
+                multiJumpSquare = plies.get(ply).fromSquare();
+            }
+        } else {
+            whiteToMove = ply == 0 || !isWhite(squares[plies.get(ply - 1).toSquare()]);
+        }
+        return new BoardSnapshot(squares, whiteToMove, movesWithoutCapture, multiJumpSquare, ply, 0, 0);
+    }
+
+    /**
+     * True if the ply is a further jump of the piece that captured on the previous ply.
+     */
+    public boolean isContinuation(int ply) {
+        if (ply == 0) {
+            return false;
+        }
+        GameRecord.Ply previous = record.moves().get(ply - 1);
+        GameRecord.Ply current = record.moves().get(ply);
+        return isCapture(previous) && isCapture(current) && current.fromSquare() == previous.toSquare();
+    }
+
+    public static PieceType[] initialSquares() {
+        PieceType[] squares = new PieceType[BoardSnapshot.SQUARES];
+        for (int index = 0; index < BoardSnapshot.SQUARES; index++) {
+            int y = BoardSnapshot.squareY(index);
+            if (y <= 2) {
+                squares[index] = PieceType.GRAY;
+            } else if (y >= 5) {
+                squares[index] = PieceType.WHITE;
+            }
+        }
+        return squares;
+    }
+
+    public static boolean isCapture(GameRecord.Ply ply) {
+        return Math.abs(BoardSnapshot.squareY(ply.toSquare()) - BoardSnapshot.squareY(ply.fromSquare())) == 2;
+    }
+
+    public static boolean isWhite(PieceType type) {
+        return type == PieceType.WHITE || type == PieceType.WHITE_SUP;
+    }
+
+    /**
+     * Applies one ply with the same rules as ClientHandler.makeMove: the jumped piece is removed
+     * and a man reaching the last row is promoted.
+     * @param index position of the ply in the game, for the error message
+     * @return true if the ply was a capture
+     */
+    static boolean apply(PieceType[] squares, GameRecord.Ply ply, int index) {
+        PieceType piece = squares[ply.fromSquare()];
+        if (piece == null) {
+            throw new IllegalArgumentException("Ply " + index + ": no piece on square " + ply.fromSquare());
+        }
+        if (squares[ply.toSquare()] != null) {
+            throw new IllegalArgumentException("Ply " + index + ": square " + ply.toSquare() + " is occupied");
+        }
+        squares[ply.fromSquare()] = null;
+
+        int toY = BoardSnapshot.squareY(ply.toSquare());
+        if (piece == PieceType.GRAY && toY == 7) {
+            piece = PieceType.GRAY_SUP;
+        } else if (piece == PieceType.WHITE && toY == 0) {
+            piece = PieceType.WHITE_SUP;
+        }
+        squares[ply.toSquare()] = piece;
+
+        boolean capture = isCapture(ply);
+        if (capture) {
+            int midX = (BoardSnapshot.squareX(ply.fromSquare()) + BoardSnapshot.squareX(ply.toSquare())) / 2;
+            int midY = (BoardSnapshot.squareY(ply.fromSquare()) + toY) / 2;
+            squares[BoardSnapshot.squareIndex(midX, midY)] = null;
+        }
+        return capture;
+    }
+}
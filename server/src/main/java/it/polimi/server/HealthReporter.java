@@ -0,0 +1,91 @@
+package it.polimi.server;
+
+import it.polimi.common.GameConfig;
+import it.polimi.common.Log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Keeps a backend game server registered with the router: connects to the router's control
+ * port and sends one line every HEALTH_REPORT_MILLIS,
+ * <pre>
+ *   HEALTH &lt;backend id&gt; &lt;game port&gt; &lt;active matches&gt; &lt;active CPU matches&gt;
+ * </pre>
+ * reconnecting whenever the router goes away.
+ */
+public class HealthReporter implements Closeable {
+    private static final Log LOG = Log.getLogger(HealthReporter.class);
+
+    private final String backendId;
+    private final int gamePort;
+    private final InetSocketAddress router;
+    private final ServerMetrics metrics;
+    private final Thread thread;
+    private volatile boolean closed = false;
+    private volatile Socket socket;
+
+    public HealthReporter(String backendId, int gamePort, InetSocketAddress router, ServerMetrics metrics) {
+        this.backendId = backendId;
+        this.gamePort = gamePort;
+        this.router = router;
+        this.metrics = metrics;
+        thread = new Thread(this::run, "health-reporter");
+        thread.setDaemon(true);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    /**
+     * Stops reporting; the router drops this backend as soon as the control connection closes.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        thread.interrupt();
+        Socket current = socket;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException ignored) {
+                // Closing anyway
+            }
+        }
+    }
+
+    private void run() {
+        while (!closed) {
+            try (Socket connection = new Socket()) {
+                connection.connect(router, GameConfig.CONNECTION_TIMEOUT);
+                socket = connection;
+                LOG.info("Backend {} reporting to router {}", backendId, router);
+                OutputStream out = connection.getOutputStream();
+                while (!closed) {
+                    String line = "HEALTH " + backendId + " " + gamePort + " " + metrics.getActiveMatches()
+                            + " " + metrics.getActiveCpuMatches() + "\n";
+                    out.write(line.getBytes(StandardCharsets.US_ASCII));
+                    out.flush();
+                    Thread.sleep(GameConfig.HEALTH_REPORT_MILLIS);
+                }
+            } catch (IOException e) {
+                if (!closed) {
+                    LOG.warn("Router {} unreachable: {}", router, e.getMessage());
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+            socket = null;
+            try {
+                Thread.sleep(GameConfig.HEALTH_REPORT_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+}
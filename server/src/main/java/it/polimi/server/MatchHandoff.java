@@ -0,0 +1,126 @@
+package it.polimi.server;
+
+import it.polimi.common.BoardSnapshot;
+import it.polimi.common.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A match suspended by a draining server, written to a directory shared with the process
+ * that replaces it. The new process claims the file, rebuilds the match from the position
+ * and keeps the players' session tokens, so the clients' automatic "resume" lands on the
+ * same game.
+ * One file per match, {@code <gray token>.handoff}:
+ * [magic][snapshot length][BoardSnapshot bytes][gray token][white token or ""][record length][GameRecord bytes].
+ *
+ * @param position   position at a turn boundary, clocks included
+ * @param whiteToken null when the white seat is the CPU
+ * @param game       players, start time and the plies played so far; the result is ABORTED
+ */
+public record MatchHandoff(BoardSnapshot position, String grayToken, String whiteToken, GameRecord game) {
+    private static final Log LOG = Log.getLogger(MatchHandoff.class);
+
+    private static final int MAGIC = 0x44484F31; // "DHO1"
+    private static final String SUFFIX = ".handoff";
+    private static final String CLAIMED_SUFFIX = ".claimed";
+
+    public boolean isCpuMatch() {
+        return whiteToken == null;
+    }
+
+    public byte[] encode() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            byte[] snapshot = position.toBytes();
+            out.writeShort(snapshot.length);
+            out.write(snapshot);
+            out.writeUTF(grayToken);
+            out.writeUTF(whiteToken == null ? "" : whiteToken);
+            byte[] record = game.encode();
+            out.writeInt(record.length);
+            out.write(record);
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot encode in memory", e);
+        }
+    }
+
+    public static MatchHandoff decode(InputStream input) throws IOException {
+        DataInputStream in = new DataInputStream(input);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a match handoff");
+        }
+        byte[] snapshot = new byte[in.readUnsignedShort()];
+        in.readFully(snapshot);
+        String grayToken = in.readUTF();
+        String whiteToken = in.readUTF();
+        byte[] record = new byte[in.readInt()];
+        in.readFully(record);
+        try {
+            return new MatchHandoff(BoardSnapshot.fromBytes(snapshot), grayToken,
+                    whiteToken.isEmpty() ? null : whiteToken, GameRecord.decode(ByteBuffer.wrap(record)));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupted match handoff", e);
+        }
+    }
+
+    /**
+     * Writes the handoff into the directory; the file appears atomically, so a process
+     * scanning the directory never reads half of it.
+     */
+    public Path write(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve(grayToken + SUFFIX);
+        Path temporary = directory.resolve(grayToken + ".tmp");
+        Files.write(temporary, encode());
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+        return file;
+    }
+
+    /**
+     * Takes every handoff left in the directory. Each file is renamed before being read,
+     * so when several processes share the directory every match is restored exactly once.
+     */
+    public static List<MatchHandoff> claimAll(Path directory) {
+        List<MatchHandoff> claimed = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return claimed;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                Path mine = file.resolveSibling(file.getFileName() + CLAIMED_SUFFIX);
+                try {
+                    Files.move(file, mine, StandardCopyOption.ATOMIC_MOVE);
+                } catch (NoSuchFileException | AtomicMoveNotSupportedException e) {
+                    // Claimed by another process in the meantime
+                    continue;
+                }
+                try (InputStream in = Files.newInputStream(mine)) {
+                    claimed.add(decode(in));
+                } catch (IOException e) {
+                    LOG.error("Discarding unreadable handoff {}", file.getFileName(), e);
+                }
+                Files.deleteIfExists(mine);
+            }
+        } catch (IOException e) {
+            LOG.error("Cannot scan the handoff directory {}", directory, e);
+        }
+        return claimed;
+    }
+}
@@ -0,0 +1,42 @@
+package it.polimi.server;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Assigns an id to every running match so that spectators can find it.
+ */
+public class MatchRegistry {
+    private final Map<Integer, ClientHandler> matches = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger(1);
+
+    public int register(ClientHandler handler) {
+        int id = nextId.getAndIncrement();
+        matches.put(id, handler);
+        return id;
+    }
+
+    /**
+     * Returns the match with the given id, or null if it is unknown or already over.
+     */
+    public ClientHandler find(int id) {
+        return matches.get(id);
+    }
+
+    public void remove(int id) {
+        matches.remove(id);
+    }
+
+    /**
+     * The matches running right now.
+     */
+    public List<ClientHandler> all() {
+        return List.copyOf(matches.values());
+    }
+
+    public int size() {
+        return matches.size();
+    }
+}
@@ -0,0 +1,165 @@
+package it.polimi.server;
+
+import it.polimi.common.Log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Queue of players waiting for an online opponent, paired by rating.
+ * Two players are matched when their ratings differ by no more than a window that starts at
+ * BASE_WINDOW and widens by WINDOW_GROWTH for every second the longer-waiting of the two
+ * has been queued, so nobody waits forever for a close opponent. A background sweep
+ * re-checks the queue as the windows widen.
+ */
+public class Matchmaker implements Closeable {
+    private static final Log LOG = Log.getLogger(Matchmaker.class);
+
+    public static final double BASE_WINDOW = 150;
+    public static final double WINDOW_GROWTH = 50;
+    private static final long SWEEP_MILLIS = 1000;
+
+    private final RatingService ratings;
+    private final BiConsumer<Waiting, Waiting> onPaired;
+    private final LongSupplier nanoTime;
+    private final List<Waiting> queue = new ArrayList<>();
+    private final ScheduledExecutorService sweeper;
+
+    /**
+     * @param since System.nanoTime() when the player joined the queue
+     */
+    public record Waiting(Socket socket, String player, double rating, long since) {
+    }
+
+    /**
+     * @param onPaired starts the match; the player who waited longer comes first and takes seat 1
+     */
+    public Matchmaker(RatingService ratings, BiConsumer<Waiting, Waiting> onPaired) {
+        this(ratings, onPaired, System::nanoTime, true);
+    }
+
+    /**
+     * @param sweep false to leave re-checking the queue to explicit {@link #sweep()} calls
+     */
+    public Matchmaker(RatingService ratings, BiConsumer<Waiting, Waiting> onPaired, LongSupplier nanoTime, boolean sweep) {
+        this.ratings = ratings;
+        this.onPaired = onPaired;
+        this.nanoTime = nanoTime;
+        if (sweep) {
+            sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "matchmaker");
+                thread.setDaemon(true);
+                return thread;
+            });
+            sweeper.scheduleWithFixedDelay(this::sweep, SWEEP_MILLIS, SWEEP_MILLIS, TimeUnit.MILLISECONDS);
+        } else {
+            sweeper = null;
+        }
+    }
+
+    /**
+     * Queues a player, or pairs them right away with the closest-rated player in range.
+     */
+    public void offer(Socket socket, String player) {
+        Waiting arrived = new Waiting(socket, player, ratings.get(player).rating(), nanoTime.getAsLong());
+        Waiting opponent = null;
+        synchronized (queue) {
+            long now = nanoTime.getAsLong();
+            double bestGap = Double.MAX_VALUE;
+            for (Waiting waiting : queue) {
+                double gap = Math.abs(waiting.rating() - arrived.rating());
+                if (gap <= window(waiting, now) && gap < bestGap) {
+                    opponent = waiting;
+                    bestGap = gap;
+                }
+            }
+            if (opponent == null) {
+                queue.add(arrived);
+                return;
+            }
+            queue.remove(opponent);
+        }
+        start(opponent, arrived);
+    }
+
+    /**
+     * Pairs the waiting players whose windows have widened enough, oldest first,
+     * and drops the ones whose socket has been closed.
+     */
+    public void sweep() {
+        List<Waiting[]> pairs = new ArrayList<>();
+        synchronized (queue) {
+            queue.removeIf(waiting -> waiting.socket().isClosed());
+            long now = nanoTime.getAsLong();
+            int i = 0;
+            while (i < queue.size()) {
+                Waiting first = queue.get(i);
+                Waiting opponent = null;
+                double bestGap = Double.MAX_VALUE;
+                for (int j = i + 1; j < queue.size(); j++) {
+                    double gap = Math.abs(queue.get(j).rating() - first.rating());
+                    if (gap <= window(first, now) && gap < bestGap) {
+                        opponent = queue.get(j);
+                        bestGap = gap;
+                    }
+                }
+                if (opponent == null) {
+                    i++;
+                } else {
+                    queue.remove(opponent);
+                    queue.remove(i);
+                    pairs.add(new Waiting[]{first, opponent});
+                }
+            }
+        }
+        for (Waiting[] pair : pairs) {
+            start(pair[0], pair[1]);
+        }
+    }
+
+    public int waitingCount() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    /**
+     * Stops the sweep and disconnects whoever is still waiting.
+     */
+    @Override
+    public void close() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+        synchronized (queue) {
+            for (Waiting waiting : queue) {
+                try {
+                    waiting.socket().close();
+                } catch (IOException ignored) {
+                    // Closing anyway
+                }
+            }
+            queue.clear();
+        }
+    }
+
+    private double window(Waiting waiting, long now) {
+        return BASE_WINDOW + WINDOW_GROWTH * TimeUnit.NANOSECONDS.toSeconds(now - waiting.since());
+    }
+
+    private void start(Waiting first, Waiting second) {
+        try {
+            onPaired.accept(first, second);
+        } catch (RuntimeException e) {
+            LOG.error("Cannot start the match of {}", first.player() + " vs " + second.player(), e);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package it.polimi.server;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Collects the lines produced during a turn for each seat, so that every socket
+ * receives them with a single write and a single flush instead of one per line.
+ * Not thread-safe: the owner guards it with its own lock.
+ */
+public class OutboundBatch {
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private final StringBuilder[] pending;
+
+    /**
+     * @param seats number of seats; seats are numbered from 1
+     */
+    public OutboundBatch(int seats) {
+        pending = new StringBuilder[seats + 1];
+        for (int seat = 1; seat <= seats; seat++) {
+            pending[seat] = new StringBuilder();
+        }
+    }
+
+    public void add(int seat, String line) {
+        pending[seat].append(line).append(LINE_SEPARATOR);
+    }
+
+    public boolean hasPending(int seat) {
+        return pending[seat].length() > 0;
+    }
+
+    /**
+     * Writes everything queued for the seat and flushes once.
+     * The queue is emptied even if the write fails, since the connection is gone anyway.
+     * @return false if there was nothing to send
+     */
+    public boolean flush(int seat, Writer writer) throws IOException {
+        StringBuilder lines = pending[seat];
+        if (lines.length() == 0) {
+            return false;
+        }
+        try {
+            writer.append(lines);
+            writer.flush();
+        } finally {
+            lines.setLength(0);
+        }
+        return true;
+    }
+
+    /**
+     * Drops what is queued for the seat, e.g. when a reconnecting player is sent a snapshot instead.
+     */
+    public void discard(int seat) {
+        pending[seat].setLength(0);
+    }
+}
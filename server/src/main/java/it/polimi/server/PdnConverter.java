@@ -0,0 +1,97 @@
+package it.polimi.server;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Command line bulk conversion between the game record store and PDN files:
+ * <pre>
+ *   export &lt;records dir&gt; &lt;file.pdn&gt;
+ *   import &lt;file.pdn&gt; &lt;records dir&gt;
+ * </pre>
+ * Both directions stream, so the size of the input does not matter.
+ */
+public final class PdnConverter {
+    private static final int IMPORT_WINDOW = 1024;
+
+    private PdnConverter() {
+        throw new UnsupportedOperationException("PdnConverter is a utility class and cannot be instantiated");
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 3 || !(args[0].equals("export") || args[0].equals("import"))) {
+            System.out.println("Usage: PdnConverter export <records dir> <file.pdn> | import <file.pdn> <records dir>");
+            return;
+        }
+        if (args[0].equals("export")) {
+            try (GameRecordStore store = GameRecordStore.open(Path.of(args[1]));
+                 Writer out = Files.newBufferedWriter(Path.of(args[2]), StandardCharsets.UTF_8)) {
+                System.out.println(exportAll(store, out) + " games exported");
+            }
+        } else {
+            try (GameRecordStore store = GameRecordStore.open(Path.of(args[2]));
+                 Reader in = Files.newBufferedReader(Path.of(args[1]), StandardCharsets.UTF_8)) {
+                System.out.println(importAll(in, store) + " games imported");
+            }
+        }
+    }
+
+    /**
+     * @return number of games written
+     */
+    public static int exportAll(GameRecordStore store, Writer out) throws IOException {
+        PdnWriter writer = new PdnWriter(out);
+        try {
+            store.forEach(record -> {
+                try {
+                    writer.write(record);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        return writer.getWritten();
+    }
+
+    /**
+     * Appends every game of the PDN input to the store, with fresh game ids.
+     * At most IMPORT_WINDOW games wait for the disk at any time.
+     * @return number of games imported
+     */
+    public static int importAll(Reader in, GameRecordStore store) throws IOException {
+        PdnReader reader = new PdnReader(in);
+        List<CompletableFuture<Void>> window = new ArrayList<>(IMPORT_WINDOW);
+        int imported = 0;
+        PdnGame game;
+        while ((game = reader.next()) != null) {
+            window.add(store.append(game.toRecord(store.nextGameId())));
+            imported++;
+            if (window.size() == IMPORT_WINDOW) {
+                await(window);
+            }
+        }
+        await(window);
+        return imported;
+    }
+
+    private static void await(List<CompletableFuture<Void>> window) throws IOException {
+        try {
+            CompletableFuture.allOf(window.toArray(new CompletableFuture[0])).join();
+        } catch (RuntimeException e) {
+            throw new IOException("Cannot store imported games", e.getCause());
+        } finally {
+            window.clear();
+        }
+    }
+}
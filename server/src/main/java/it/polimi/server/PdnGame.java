@@ -0,0 +1,152 @@
+package it.polimi.server;
+
+import it.polimi.common.BoardSnapshot;
+import it.polimi.model.MoveType;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A game in Portable Draughts Notation terms: tag pairs, moves and result.
+ * PDN squares are numbered 1-32 row by row from the top-left of the server board
+ * (GRAY's side), i.e. BoardSnapshot index + 1; White (our WHITE) moves first.
+ */
+public record PdnGame(Map<String, String> tags, List<Move> moves, String result) {
+
+    public static final String GAME_TYPE_ITALIAN = "22";
+    /** Player name used when a PDN game has no Black or White tag. */
+    public static final String UNKNOWN_PLAYER = "?";
+    private static final DateTimeFormatter PDN_DATE = DateTimeFormatter.ofPattern("yyyy.MM.dd");
+
+    /**
+     * A whole move; a multi-capture lists every landing square.
+     */
+    public record Move(List<Integer> squares, MoveType type) {
+        public Move {
+            if (squares.size() < 2 || (type == MoveType.NORMAL && squares.size() != 2) || type == MoveType.NONE) {
+                throw new IllegalArgumentException("Invalid PDN move: " + squares + " " + type);
+            }
+            for (int square : squares) {
+                if (square < 1 || square > BoardSnapshot.SQUARES) {
+                    throw new IllegalArgumentException("Invalid PDN square: " + square);
+                }
+            }
+            squares = List.copyOf(squares);
+        }
+
+        /**
+         * Board x of the n-th square of the move.
+         */
+        public int x(int n) {
+            return BoardSnapshot.squareX(squares.get(n) - 1);
+        }
+
+        public int y(int n) {
+            return BoardSnapshot.squareY(squares.get(n) - 1);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            char separator = type == MoveType.KILL ? 'x' : '-';
+            for (int i = 0; i < squares.size(); i++) {
+                if (i > 0) {
+                    text.append(separator);
+                }
+                text.append(squares.get(i));
+            }
+            return text.toString();
+        }
+    }
+
+    public PdnGame {
+        tags = new LinkedHashMap<>(tags);
+        moves = List.copyOf(moves);
+    }
+
+    /**
+     * Converts a stored game, joining the jumps of each multi-capture into one move.
+     */
+    public static PdnGame fromRecord(GameRecord record) {
+        Map<String, String> tags = new LinkedHashMap<>();
+        tags.put("Event", "Dama online");
+        tags.put("Date", PDN_DATE.format(Instant.ofEpochMilli(record.startedAt()).atZone(ZoneOffset.UTC)));
+        tags.put("White", record.whitePlayer());
+        tags.put("Black", record.grayPlayer());
+        tags.put("GameType", GAME_TYPE_ITALIAN);
+        tags.put("GameId", String.valueOf(record.gameId()));
+
+        List<Move> moves = new ArrayList<>();
+        List<GameRecord.Ply> plies = record.moves();
+        int i = 0;
+        while (i < plies.size()) {
+            GameRecord.Ply ply = plies.get(i);
+            List<Integer> squares = new ArrayList<>();
+            squares.add(ply.fromSquare() + 1);
+            squares.add(ply.toSquare() + 1);
+            boolean capture = GameReplay.isCapture(ply);
+            i++;
+            // The same piece keeps jumping: the next ply starts where this one landed
+            while (capture && i < plies.size() && GameReplay.isCapture(plies.get(i))
+                    && plies.get(i).fromSquare() == plies.get(i - 1).toSquare()) {
+                squares.add(plies.get(i).toSquare() + 1);
+                i++;
+            }
+            moves.add(new Move(squares, capture ? MoveType.KILL : MoveType.NORMAL));
+        }
+        String result = toPdnResult(record.result());
+        tags.put("Result", result);
+        return new PdnGame(tags, moves, result);
+    }
+
+    /**
+     * Converts back to a stored game; clocks and think times are not part of PDN and come back as zero.
+     */
+    public GameRecord toRecord(long gameId) {
+        List<GameRecord.Ply> plies = new ArrayList<>();
+        for (Move move : moves) {
+            for (int i = 1; i < move.squares().size(); i++) {
+                plies.add(new GameRecord.Ply(move.squares().get(i - 1) - 1, move.squares().get(i) - 1, 0));
+            }
+        }
+        long startedAt = 0;
+        String date = tags.get("Date");
+        if (date != null) {
+            try {
+                startedAt = LocalDate.parse(date, PDN_DATE).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+            } catch (DateTimeParseException ignored) {
+                // Dates like "????.??.??" are allowed by PDN
+            }
+        }
+        return new GameRecord(gameId, startedAt, fromPdnResult(result),
+                tags.getOrDefault("Black", UNKNOWN_PLAYER), tags.getOrDefault("White", UNKNOWN_PLAYER), 0, 0, plies);
+    }
+
+    /**
+     * END2 means the second seat (WHITE, first to move) won.
+     */
+    static String toPdnResult(String result) {
+        return switch (result) {
+            case "END2" -> "1-0";
+            case "END1" -> "0-1";
+            case "DRAW" -> "1/2-1/2";
+            default -> "*";
+        };
+    }
+
+    static String fromPdnResult(String result) {
+        return switch (result) {
+            case "1-0", "2-0" -> "END2";
+            case "0-1", "0-2" -> "END1";
+            case "1/2-1/2", "1-1" -> "DRAW";
+            default -> GameRecord.ABORTED;
+        };
+    }
+}
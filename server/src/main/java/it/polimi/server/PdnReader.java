@@ -0,0 +1,201 @@
+package it.polimi.server;
+
+import it.polimi.model.MoveType;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Streaming PDN parser: {@link #next()} returns one game at a time, so files of any size
+ * can be converted with constant memory.
+ * Comments, move numbers, annotation glyphs (! ?) and variations in parentheses are skipped.
+ */
+public class PdnReader implements Closeable {
+    private static final Set<String> RESULTS = Set.of("1-0", "0-1", "1/2-1/2", "*", "2-0", "0-2", "1-1", "0-0");
+
+    private final Reader in;
+    private int peeked = -2;
+    private int line = 1;
+
+    public PdnReader(Reader in) {
+        this.in = in instanceof BufferedReader ? in : new BufferedReader(in);
+    }
+
+    /**
+     * Reads the next game.
+     * @return null at end of input
+     * @throws IOException also for malformed input, with the line number
+     */
+    public PdnGame next() throws IOException {
+        Map<String, String> tags = new LinkedHashMap<>();
+        List<PdnGame.Move> moves = new ArrayList<>();
+
+        while (true) {
+            int c = skipWhitespace();
+            if (c < 0) {
+                if (tags.isEmpty() && moves.isEmpty()) {
+                    return null;
+                }
+                return new PdnGame(tags, moves, tags.getOrDefault("Result", "*"));
+            }
+
+            if (c == '[') {
+                if (!moves.isEmpty()) {
+                    // A new header without a result: the previous game ended unfinished
+                    return new PdnGame(tags, moves, "*");
+                }
+                read();
+                readTag(tags);
+            } else if (c == '{') {
+                skipUntil('}');
+            } else if (c == ';') {
+                skipUntil('\n');
+            } else if (c == '(') {
+                skipVariation();
+            } else {
+                String token = readToken();
+                if (RESULTS.contains(token)) {
+                    return new PdnGame(tags, moves, token);
+                }
+                PdnGame.Move move = parseMove(token);
+                if (move != null) {
+                    moves.add(move);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void readTag(Map<String, String> tags) throws IOException {
+        skipWhitespace();
+        StringBuilder name = new StringBuilder();
+        int c;
+        while ((c = peek()) >= 0 && !Character.isWhitespace(c) && c != '"' && c != ']') {
+            name.append((char) read());
+        }
+        if (skipWhitespace() != '"') {
+            throw error("Expected a quoted tag value");
+        }
+        read();
+        StringBuilder value = new StringBuilder();
+        while ((c = read()) != '"') {
+            if (c < 0) {
+                throw error("Unterminated tag value");
+            }
+            if (c == '\\') {
+                c = read();
+            }
+            value.append((char) c);
+        }
+        if (skipWhitespace() != ']') {
+            throw error("Expected ] after tag " + name);
+        }
+        read();
+        tags.put(name.toString(), value.toString());
+    }
+
+    private String readToken() throws IOException {
+        StringBuilder token = new StringBuilder();
+        int c;
+        while ((c = peek()) >= 0 && !Character.isWhitespace(c) && c != '{' && c != '(' && c != '[' && c != ';') {
+            token.append((char) read());
+        }
+        if (token.length() == 0) {
+            throw error("Unexpected character '" + (char) read() + "'");
+        }
+        return token.toString();
+    }
+
+    /**
+     * @return null for move numbers such as "12." or "12..."
+     */
+    private PdnGame.Move parseMove(String token) throws IOException {
+        String text = token;
+        int dot = text.lastIndexOf('.');
+        if (dot >= 0) {
+            text = text.substring(dot + 1);
+            if (text.isEmpty()) {
+                return null;
+            }
+        }
+        while (!text.isEmpty() && (text.endsWith("!") || text.endsWith("?"))) {
+            text = text.substring(0, text.length() - 1);
+        }
+
+        boolean capture = text.indexOf('x') >= 0 || text.indexOf(':') >= 0;
+        String[] parts = text.split("[-x:]");
+        if (parts.length < 2) {
+            throw error("Invalid move '" + token + "'");
+        }
+        List<Integer> squares = new ArrayList<>(parts.length);
+        try {
+            for (String part : parts) {
+                squares.add(Integer.parseInt(part));
+            }
+            return new PdnGame.Move(squares, capture ? MoveType.KILL : MoveType.NORMAL);
+        } catch (IllegalArgumentException e) {
+            throw error("Invalid move '" + token + "'");
+        }
+    }
+
+    private void skipVariation() throws IOException {
+        int depth = 0;
+        int c;
+        while ((c = read()) >= 0) {
+            if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return;
+            } else if (c == '{') {
+                skipUntil('}');
+            }
+        }
+        throw error("Unterminated variation");
+    }
+
+    private void skipUntil(int end) throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c >= 0 && c != end);
+    }
+
+    private int skipWhitespace() throws IOException {
+        int c;
+        while ((c = peek()) >= 0 && Character.isWhitespace(c)) {
+            read();
+        }
+        return c;
+    }
+
+    private int peek() throws IOException {
+        if (peeked == -2) {
+            peeked = in.read();
+        }
+        return peeked;
+    }
+
+    private int read() throws IOException {
+        int c = peek();
+        peeked = -2;
+        if (c == '\n') {
+            line++;
+        }
+        return c;
+    }
+
+    private IOException error(String message) {
+        return new IOException("PDN line " + line + ": " + message);
+    }
+}
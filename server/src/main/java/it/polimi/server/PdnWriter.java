@@ -0,0 +1,80 @@
+package it.polimi.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes games as PDN text, one at a time, without holding more than the current game.
+ */
+public class PdnWriter implements Closeable {
+    private static final int LINE_WIDTH = 80;
+
+    private final Writer out;
+    private int written = 0;
+
+    public PdnWriter(Writer out) {
+        this.out = out;
+    }
+
+    public void write(GameRecord record) throws IOException {
+        write(PdnGame.fromRecord(record));
+    }
+
+    public void write(PdnGame game) throws IOException {
+        if (written > 0) {
+            out.write('\n');
+        }
+        for (Map.Entry<String, String> tag : game.tags().entrySet()) {
+            out.write('[');
+            out.write(tag.getKey());
+            out.write(" \"");
+            out.write(tag.getValue().replace("\\", "\\\\").replace("\"", "\\\""));
+            out.write("\"]\n");
+        }
+        out.write('\n');
+
+        StringBuilder line = new StringBuilder(LINE_WIDTH + 16);
+        List<PdnGame.Move> moves = game.moves();
+        for (int i = 0; i < moves.size(); i++) {
+            if (i % 2 == 0) {
+                appendToken(line, (i / 2 + 1) + ".");
+            }
+            appendToken(line, moves.get(i).toString());
+        }
+        appendToken(line, game.result());
+        out.write(line.toString());
+        out.write('\n');
+        written++;
+    }
+
+    /**
+     * Number of games written so far.
+     */
+    public int getWritten() {
+        return written;
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void appendToken(StringBuilder line, String token) throws IOException {
+        if (line.length() > 0 && line.length() + 1 + token.length() > LINE_WIDTH) {
+            out.write(line.toString());
+            out.write('\n');
+            line.setLength(0);
+        }
+        if (line.length() > 0) {
+            line.append(' ');
+        }
+        line.append(token);
+    }
+}
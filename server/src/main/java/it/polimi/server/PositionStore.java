@@ -0,0 +1,192 @@
+package it.polimi.server;
+
+import it.polimi.common.Log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Read-only table of positions keyed by {@link it.polimi.model.Position#key()}, for opening books
+ * and endgame tablebases. The file is memory-mapped, so the data lives outside the heap, is paged
+ * in on demand and is shared through the page cache by every server JVM on the host.
+ * <p>
+ * The file is a 16-byte header, "DAMABOOK" and the record count, followed by 16-byte records
+ * sorted by key: key (long), move (short, as {@link it.polimi.model.Position} packs it),
+ * depth (short), score (int). Lookups are a binary search over absolute reads of the mapping:
+ * bounds-checked and allocation-free. Files above 2 GB are mapped in 1 GB chunks.
+ * A store is safe to share between threads.
+ */
+public final class PositionStore {
+    private static final Log LOG = Log.getLogger(PositionStore.class);
+
+    private static final long MAGIC = 0x44414D41424F4F4BL; // "DAMABOOK"
+    private static final int HEADER_BYTES = 16;
+    private static final int RECORD_BYTES = 16;
+    private static final int CHUNK_SHIFT = 26;
+    private static final long CHUNK_RECORDS = 1L << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = (int) CHUNK_RECORDS - 1;
+    private static final PositionStore CONFIGURED = openConfigured();
+
+    private final MappedByteBuffer[] chunks;
+    private final long size;
+
+    /**
+     * A move, the depth it was searched to and its score, for the side to move of one position.
+     */
+    public record Entry(long key, int move, int depth, int score) {
+    }
+
+    private PositionStore(MappedByteBuffer[] chunks, long size) {
+        this.chunks = chunks;
+        this.size = size;
+    }
+
+    /**
+     * Maps a store file; the mapping outlives the channel and is released with the store.
+     * @throws IOException if the file cannot be read or is not a well-formed store
+     */
+    public static PositionStore open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_BYTES) {
+                throw new IOException("Not a position store: " + file);
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            channel.read(header, 0);
+            header.flip();
+            long count = header.getLong(8);
+            if (header.getLong(0) != MAGIC || count < 0 || fileSize != HEADER_BYTES + count * RECORD_BYTES) {
+                throw new IOException("Not a position store, or truncated: " + file);
+            }
+            MappedByteBuffer[] chunks = new MappedByteBuffer[(int) ((count + CHUNK_RECORDS - 1) >>> CHUNK_SHIFT)];
+            for (int chunk = 0; chunk < chunks.length; chunk++) {
+                long first = (long) chunk << CHUNK_SHIFT;
+                long records = Math.min(CHUNK_RECORDS, count - first);
+                chunks[chunk] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + first * RECORD_BYTES,
+                        records * RECORD_BYTES);
+            }
+            return new PositionStore(chunks, count);
+        }
+    }
+
+    /**
+     * The store named by the dama.book.file system property, or null when it is not set
+     * or cannot be opened.
+     */
+    public static PositionStore configured() {
+        return CONFIGURED;
+    }
+
+    private static PositionStore openConfigured() {
+        String file = System.getProperty("dama.book.file");
+        if (file == null) {
+            return null;
+        }
+        try {
+            PositionStore store = open(Path.of(file));
+            LOG.info("Opened book {} with {} positions", file, store.size());
+            return store;
+        } catch (IOException e) {
+            LOG.warn("Cannot open book {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes the entries as a store file, replacing it atomically.
+     * @throws IllegalArgumentException if two entries have the same key
+     */
+    public static void write(Path file, List<Entry> entries) throws IOException {
+        List<Entry> sorted = new ArrayList<>(entries);
+        sorted.sort(Comparator.comparingLong(Entry::key));
+        for (int i = 1; i < sorted.size(); i++) {
+            if (sorted.get(i).key() == sorted.get(i - 1).key()) {
+                throw new IllegalArgumentException("Duplicate position key " + sorted.get(i).key());
+            }
+        }
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            buffer.putLong(MAGIC).putLong(sorted.size());
+            for (Entry entry : sorted) {
+                if (buffer.remaining() < RECORD_BYTES) {
+                    writeFully(channel, buffer);
+                }
+                buffer.putLong(entry.key()).putShort((short) entry.move()).putShort((short) entry.depth())
+                        .putInt(entry.score());
+            }
+            writeFully(channel, buffer);
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * The index of the record for the key, or -1 when the store does not have the position.
+     */
+    public long find(long key) {
+        long low = 0;
+        long high = size - 1;
+        while (low <= high) {
+            long middle = (low + high) >>> 1;
+            long found = key(middle);
+            if (found < key) {
+                low = middle + 1;
+            } else if (found > key) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    public long key(long index) {
+        return chunk(index).getLong(offset(index));
+    }
+
+    public int move(long index) {
+        return chunk(index).getShort(offset(index) + 8) & 0xFFFF;
+    }
+
+    public int depth(long index) {
+        return chunk(index).getShort(offset(index) + 10);
+    }
+
+    public int score(long index) {
+        return chunk(index).getInt(offset(index) + 12);
+    }
+
+    private MappedByteBuffer chunk(long index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Record " + index + " of " + size);
+        }
+        return chunks[(int) (index >>> CHUNK_SHIFT)];
+    }
+
+    private static int offset(long index) {
+        return ((int) index & CHUNK_MASK) * RECORD_BYTES;
+    }
+}
@@ -0,0 +1,18 @@
+package it.polimi.server;
+
+/**
+ * A player's Glicko-2 rating on the usual Glicko scale (new players start at 1500 ± 350).
+ *
+ * @param deviation  rating deviation: how uncertain the rating still is
+ * @param volatility expected fluctuation of the rating
+ * @param games      rated games played
+ */
+public record Rating(double rating, double deviation, double volatility, int games) {
+
+    public static final Rating INITIAL = new Rating(1500, 350, 0.06, 0);
+
+    @Override
+    public String toString() {
+        return Math.round(rating) + " ± " + Math.round(deviation);
+    }
+}
@@ -0,0 +1,270 @@
+package it.polimi.server;
+
+import it.polimi.common.Log;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+/**
+ * Glicko-2 ratings of identified players, updated at the end of every decided game.
+ * Each player's rating sits in its own AtomicReference and is replaced with a CAS, so
+ * games ending at the same time only retry when they share a player (typically CPU)
+ * and never wait on a common lock.
+ * Every game is treated as its own rating period. Ratings can be snapshotted to a
+ * tab-separated file, periodically and on close.
+ */
+public class RatingService implements Closeable {
+    private static final Log LOG = Log.getLogger(RatingService.class);
+
+    public static final String ANONYMOUS = "anonymous";
+    public static final String CPU = "CPU";
+    private static final Pattern PLAYER_ID = Pattern.compile("[A-Za-z0-9_.-]{1,32}");
+
+    private static final double SCALE = 173.7178;
+    private static final double TAU = 0.5;
+    private static final double EPSILON = 0.000001;
+    private static final double MAX_DEVIATION = 350;
+
+    private final Map<String, AtomicReference<Rating>> ratings = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+    private final Path file;
+    private final ScheduledExecutorService snapshots;
+
+    /**
+     * Ratings kept in memory only.
+     */
+    public RatingService() {
+        this.file = null;
+        this.snapshots = null;
+    }
+
+    private RatingService(Path file, Duration snapshotEvery) throws IOException {
+        this.file = file;
+        if (Files.exists(file)) {
+            load();
+        }
+        snapshots = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rating-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = snapshotEvery.toMillis();
+        snapshots.scheduleWithFixedDelay(this::snapshotIfChanged, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Loads the ratings saved in the file, if any, and writes them back every {@code snapshotEvery}
+     * when something changed.
+     */
+    public static RatingService open(Path file, Duration snapshotEvery) throws IOException {
+        return new RatingService(file, snapshotEvery);
+    }
+
+    /**
+     * Player id sent after the mode in the hello ("wait alice"); missing, malformed or
+     * reserved ids play as anonymous and are not rated.
+     */
+    public static String playerId(String hello) {
+        String[] parts = hello.trim().split("\\s+");
+        if (parts.length < 2 || !PLAYER_ID.matcher(parts[1]).matches()
+                || parts[1].equals(ANONYMOUS) || parts[1].equals(CPU)) {
+            return ANONYMOUS;
+        }
+        return parts[1];
+    }
+
+    public Rating get(String player) {
+        AtomicReference<Rating> rating = ratings.get(player);
+        return rating == null ? Rating.INITIAL : rating.get();
+    }
+
+    public int size() {
+        return ratings.size();
+    }
+
+    /**
+     * Updates both players after a game; aborted games, anonymous players and games
+     * against oneself are ignored.
+     * @param result END1 (gray won), END2 (white won) or DRAW
+     */
+    public void recordGame(String grayPlayer, String whitePlayer, String result) {
+        double grayScore;
+        if ("END1".equals(result)) {
+            grayScore = 1;
+        } else if ("END2".equals(result)) {
+            grayScore = 0;
+        } else if ("DRAW".equals(result)) {
+            grayScore = 0.5;
+        } else {
+            return;
+        }
+        if (grayPlayer.equals(ANONYMOUS) || whitePlayer.equals(ANONYMOUS) || grayPlayer.equals(whitePlayer)) {
+            return;
+        }
+
+        // Both sides are rated against the opponent's rating from before the game
+        AtomicReference<Rating> gray = entry(grayPlayer);
+        AtomicReference<Rating> white = entry(whitePlayer);
+        Rating grayBefore = gray.get();
+        Rating whiteBefore = white.get();
+        gray.updateAndGet(current -> rate(current, new Rating[]{whiteBefore}, new double[]{grayScore}));
+        white.updateAndGet(current -> rate(current, new Rating[]{grayBefore}, new double[]{1 - grayScore}));
+        dirty.set(true);
+    }
+
+    /**
+     * One Glicko-2 rating period (Glickman, "Example of the Glicko-2 system").
+     * @param scores 1 for a win, 0.5 for a draw, 0 for a loss against the opponent at the same index
+     */
+    public static Rating rate(Rating player, Rating[] opponents, double[] scores) {
+        double mu = (player.rating() - 1500) / SCALE;
+        double phi = player.deviation() / SCALE;
+        double sigma = player.volatility();
+        if (opponents.length == 0) {
+            double deviation = Math.min(Math.sqrt(phi * phi + sigma * sigma) * SCALE, MAX_DEVIATION);
+            return new Rating(player.rating(), deviation, sigma, player.games());
+        }
+
+        double inverseV = 0;
+        double improvement = 0;
+        for (int j = 0; j < opponents.length; j++) {
+            double muJ = (opponents[j].rating() - 1500) / SCALE;
+            double g = g(opponents[j].deviation() / SCALE);
+            double expected = 1 / (1 + Math.exp(-g * (mu - muJ)));
+            inverseV += g * g * expected * (1 - expected);
+            improvement += g * (scores[j] - expected);
+        }
+        double v = 1 / inverseV;
+        double delta = v * improvement;
+
+        double newSigma = volatility(phi, sigma, v, delta);
+        double phiStar = Math.sqrt(phi * phi + newSigma * newSigma);
+        double newPhi = 1 / Math.sqrt(1 / (phiStar * phiStar) + 1 / v);
+        double newMu = mu + newPhi * newPhi * improvement;
+        return new Rating(SCALE * newMu + 1500, Math.min(SCALE * newPhi, MAX_DEVIATION), newSigma,
+                player.games() + opponents.length);
+    }
+
+    /**
+     * Writes the current ratings to the file, replacing it atomically.
+     */
+    public void save() throws IOException {
+        if (file == null) {
+            return;
+        }
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, AtomicReference<Rating>> entry : ratings.entrySet()) {
+                Rating rating = entry.getValue().get();
+                out.write(entry.getKey() + "\t" + rating.rating() + "\t" + rating.deviation() + "\t"
+                        + rating.volatility() + "\t" + rating.games());
+                out.newLine();
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Stops the periodic snapshots and saves one last time.
+     */
+    @Override
+    public void close() throws IOException {
+        if (snapshots != null) {
+            snapshots.shutdown();
+            save();
+        }
+    }
+
+    private void snapshotIfChanged() {
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+        try {
+            save();
+        } catch (IOException e) {
+            dirty.set(true);
+            LOG.error("Cannot save the ratings", e);
+        }
+    }
+
+    private void load() throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] fields = line.split("\t");
+                try {
+                    ratings.put(fields[0], new AtomicReference<>(new Rating(Double.parseDouble(fields[1]),
+                            Double.parseDouble(fields[2]), Double.parseDouble(fields[3]), Integer.parseInt(fields[4]))));
+                } catch (RuntimeException e) {
+                    LOG.warn("Skipping malformed rating line: {}", line);
+                }
+            }
+        }
+    }
+
+    private AtomicReference<Rating> entry(String player) {
+        return ratings.computeIfAbsent(player, id -> new AtomicReference<>(Rating.INITIAL));
+    }
+
+    private static double g(double phi) {
+        return 1 / Math.sqrt(1 + 3 * phi * phi / (Math.PI * Math.PI));
+    }
+
+    /**
+     * New volatility, found with the Illinois algorithm as in step 5 of the Glicko-2 paper.
+     */
+    private static double volatility(double phi, double sigma, double v, double delta) {
+        double a = Math.log(sigma * sigma);
+        double deltaSquared = delta * delta;
+        double phiSquared = phi * phi;
+
+        double lower = a;
+        double upper;
+        if (deltaSquared > phiSquared + v) {
+            upper = Math.log(deltaSquared - phiSquared - v);
+        } else {
+            int k = 1;
+            while (f(a - k * TAU, a, deltaSquared, phiSquared, v) < 0) {
+                k++;
+            }
+            upper = a - k * TAU;
+        }
+
+        double fLower = f(lower, a, deltaSquared, phiSquared, v);
+        double fUpper = f(upper, a, deltaSquared, phiSquared, v);
+        while (Math.abs(upper - lower) > EPSILON) {
+            double c = lower + (lower - upper) * fLower / (fUpper - fLower);
+            double fC = f(c, a, deltaSquared, phiSquared, v);
+            if (fC * fUpper <= 0) {
+                lower = upper;
+                fLower = fUpper;
+            } else {
+                fLower /= 2;
+            }
+            upper = c;
+            fUpper = fC;
+        }
+        return Math.exp(lower / 2);
+    }
+
+    private static double f(double x, double a, double deltaSquared, double phiSquared, double v) {
+        double ex = Math.exp(x);
+        double denominator = phiSquared + v + ex;
+        return ex * (deltaSquared - phiSquared - v - ex) / (2 * denominator * denominator) - (x - a) / (TAU * TAU);
+    }
+}
@@ -0,0 +1,420 @@
+package it.polimi.server;
+
+import it.polimi.common.GameConfig;
+import it.polimi.common.Log;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Front door for several game-server JVMs ("backends"). Clients connect to the router as they
+ * would to a single Server; the router picks a backend from the hello line and then relays
+ * bytes both ways.
+ * <ul>
+ *   <li>cpu: the least loaded backend (active matches plus CPU matches, plus connections sent
+ *   there since its last report)</li>
+ *   <li>wait: the two players of a pair go to the same backend, so its matchmaker can pair them</li>
+ *   <li>resume: the backend that issued the session token or, if that one has gone away
+ *   (typically drained for a deploy), one fixed successor, so both players of a handed-off
+ *   match reach the process that took it over</li>
+ *   <li>watch: the backend running the match</li>
+ * </ul>
+ * Match ids are made unique across backends: the router rewrites the MATCH and WATCHING lines
+ * with its own ids and translates them back for watch requests.
+ * Backends announce themselves through {@link HealthReporter} on the control port; one that
+ * closes its control connection or stays silent for three report periods gets no new clients.
+ */
+public class Router implements Closeable {
+    private static final Log LOG = Log.getLogger(Router.class);
+
+    private static final long STALE_MILLIS = 3L * GameConfig.HEALTH_REPORT_MILLIS;
+    private static final long ROUTE_TTL_MILLIS = TimeUnit.HOURS.toMillis(6);
+    private static final int MAX_LINE = 1024;
+    // Seat, SESSION and MATCH: the lines the router needs to look at
+    private static final int SNIFFED_LINES = 3;
+
+    private final ServerSocket clients;
+    private final ServerSocket control;
+    private final Map<String, Backend> backends = new ConcurrentHashMap<>();
+    private final Map<String, Route> sessions = new ConcurrentHashMap<>();
+    private final Map<Integer, Route> matches = new ConcurrentHashMap<>();
+    private final Map<String, Integer> matchIds = new ConcurrentHashMap<>();
+    private final AtomicInteger nextMatchId = new AtomicInteger(1);
+    // Gone backend id -> backend that receives its resumes
+    private final Map<String, String> successors = new HashMap<>();
+    private final ScheduledExecutorService maintenance;
+
+    // Backend holding the first player of a pair still waiting for an opponent
+    private final Object lobbyLock = new Object();
+    private Backend lobby;
+
+    private static final class Backend {
+        private final String id;
+        private final AtomicInteger assigned = new AtomicInteger();
+        private volatile InetSocketAddress address;
+        private volatile int activeMatches;
+        private volatile int cpuMatches;
+        private volatile long lastReport;
+        private volatile Socket control;
+
+        private Backend(String id) {
+            this.id = id;
+        }
+
+        private int load() {
+            return activeMatches + cpuMatches + assigned.get();
+        }
+
+        private boolean isUp(long now) {
+            return control != null && now - lastReport <= STALE_MILLIS;
+        }
+    }
+
+    /**
+     * @param localMatchId the backend's own match id, -1 for session routes
+     */
+    private record Route(String backendId, int localMatchId, long created) {
+    }
+
+    public Router(ServerSocket clients, ServerSocket control) {
+        this.clients = clients;
+        this.control = control;
+        maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "router-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        maintenance.scheduleWithFixedDelay(this::pruneRoutes, 1, 1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Starts a router on dama.port (default 1234) with backends reporting on
+     * dama.router.control.port (default 1300, loopback only).
+     */
+    public static void main(String[] args) throws IOException {
+        ServerSocket clients = new ServerSocket(Integer.getInteger("dama.port", GameConfig.DEFAULT_PORT));
+        ServerSocket control = new ServerSocket(Integer.getInteger("dama.router.control.port", GameConfig.ROUTER_CONTROL_PORT),
+                50, InetAddress.getLoopbackAddress());
+        new Router(clients, control).startRouter();
+    }
+
+    /**
+     * Accepts clients until the client socket is closed; backends are accepted on a separate thread.
+     */
+    public void startRouter() {
+        Thread controlThread = new Thread(this::acceptBackends, "router-control");
+        controlThread.setDaemon(true);
+        controlThread.start();
+        LOG.info("Router listening on port {}, control port {}", clients.getLocalPort(), control.getLocalPort());
+
+        while (!clients.isClosed()) {
+            try {
+                Socket client = clients.accept();
+                Thread thread = new Thread(() -> relay(client), "router-client");
+                thread.start();
+            } catch (IOException e) {
+                if (!clients.isClosed()) {
+                    LOG.error("Cannot accept clients", e);
+                }
+                close();
+            }
+        }
+    }
+
+    /**
+     * Number of backends currently eligible for new clients.
+     */
+    public int backendCount() {
+        long now = System.currentTimeMillis();
+        return (int) backends.values().stream().filter(backend -> backend.isUp(now)).count();
+    }
+
+    /**
+     * Backend running the match with the given router id, or null if unknown.
+     */
+    public String backendOf(int matchId) {
+        Route route = matches.get(matchId);
+        return route == null ? null : route.backendId();
+    }
+
+    @Override
+    public void close() {
+        maintenance.shutdownNow();
+        closeQuietly(clients);
+        closeQuietly(control);
+        for (Backend backend : backends.values()) {
+            closeQuietly(backend.control);
+        }
+    }
+
+    private void relay(Socket client) {
+        try (client) {
+            String hello = readLine(client.getInputStream());
+            if (hello == null) {
+                return;
+            }
+
+            Backend backend;
+            String forward = hello;
+            if (hello.startsWith("resume ")) {
+                Route route = sessions.get(hello.substring("resume ".length()).trim());
+                backend = route == null ? null : backends.get(route.backendId());
+                if (backend != null && !backend.isUp(System.currentTimeMillis())) {
+                    backend = successor(backend);
+                }
+                if (backend == null) {
+                    reply(client, "EXPIRED");
+                    return;
+                }
+            } else if (hello.startsWith("watch ")) {
+                Route route = null;
+                try {
+                    route = matches.get(Integer.parseInt(hello.substring("watch ".length()).trim()));
+                } catch (NumberFormatException ignored) {
+                    // Not a number: same as an unknown match
+                }
+                backend = route == null ? null : backends.get(route.backendId());
+                if (backend == null) {
+                    reply(client, "NOMATCH");
+                    return;
+                }
+                forward = "watch " + route.localMatchId();
+            } else if (hello.startsWith("wait")) {
+                backend = lobbyBackend();
+            } else {
+                backend = leastLoaded();
+            }
+            if (backend == null) {
+                LOG.warn("No backend available for a {} client", hello.split(" ", 2)[0]);
+                return;
+            }
+            backend.assigned.incrementAndGet();
+
+            try (Socket upstream = new Socket()) {
+                upstream.connect(backend.address, GameConfig.CONNECTION_TIMEOUT);
+                OutputStream toBackend = upstream.getOutputStream();
+                toBackend.write((forward + "\n").getBytes(StandardCharsets.UTF_8));
+                toBackend.flush();
+
+                Thread pump = new Thread(() -> pump(client, upstream), "router-pump");
+                pump.setDaemon(true);
+                pump.start();
+                relayFromBackend(backend, upstream, client);
+            }
+        } catch (IOException e) {
+            LOG.debug("Relay closed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Copies what the client sends to the backend; either side closing ends the relay.
+     */
+    private static void pump(Socket client, Socket upstream) {
+        try {
+            client.getInputStream().transferTo(upstream.getOutputStream());
+        } catch (IOException ignored) {
+            // One of the two sides closed
+        } finally {
+            closeQuietly(upstream);
+            closeQuietly(client);
+        }
+    }
+
+    /**
+     * Copies what the backend sends to the client, learning the session token and the match
+     * id from the first lines.
+     */
+    private void relayFromBackend(Backend backend, Socket upstream, Socket client) throws IOException {
+        InputStream in = upstream.getInputStream();
+        OutputStream out = client.getOutputStream();
+        try {
+            for (int i = 0; i < SNIFFED_LINES; i++) {
+                String line = readLine(in);
+                if (line == null) {
+                    return;
+                }
+                boolean matchLine = false;
+                if (line.startsWith("SESSION ")) {
+                    sessions.put(line.substring("SESSION ".length()), new Route(backend.id, -1, System.currentTimeMillis()));
+                } else if (line.startsWith("MATCH ") || line.startsWith("WATCHING ")) {
+                    int space = line.indexOf(' ');
+                    line = line.substring(0, space + 1) + routerMatchId(backend, Integer.parseInt(line.substring(space + 1).trim()));
+                    matchLine = true;
+                }
+                out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                if (matchLine) {
+                    break;
+                }
+            }
+            in.transferTo(out);
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed match id from backend " + backend.id, e);
+        } finally {
+            closeQuietly(client);
+        }
+    }
+
+    private int routerMatchId(Backend backend, int localMatchId) {
+        return matchIds.computeIfAbsent(backend.id + ":" + localMatchId, key -> {
+            int id = nextMatchId.getAndIncrement();
+            matches.put(id, new Route(backend.id, localMatchId, System.currentTimeMillis()));
+            return id;
+        });
+    }
+
+    /**
+     * The first player of a pair opens the lobby on the least loaded backend, the second follows.
+     */
+    private Backend lobbyBackend() {
+        synchronized (lobbyLock) {
+            if (lobby != null && lobby.isUp(System.currentTimeMillis())) {
+                Backend backend = lobby;
+                lobby = null;
+                return backend;
+            }
+            lobby = leastLoaded();
+            return lobby;
+        }
+    }
+
+    /**
+     * Backend that takes the resumes of one that has gone away; chosen once and kept while it
+     * stays up.
+     */
+    private Backend successor(Backend gone) {
+        synchronized (successors) {
+            String id = successors.get(gone.id);
+            Backend next = id == null ? null : backends.get(id);
+            if (next == null || !next.isUp(System.currentTimeMillis())) {
+                next = leastLoaded();
+                if (next != null) {
+                    successors.put(gone.id, next.id);
+                }
+            }
+            return next;
+        }
+    }
+
+    private Backend leastLoaded() {
+        long now = System.currentTimeMillis();
+        return backends.values().stream()
+                .filter(backend -> backend.isUp(now))
+                .min(Comparator.comparingInt(Backend::load).thenComparing(backend -> backend.id))
+                .orElse(null);
+    }
+
+    private void acceptBackends() {
+        while (!control.isClosed()) {
+            try {
+                Socket socket = control.accept();
+                Thread thread = new Thread(() -> readHealth(socket), "router-health");
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                if (!control.isClosed()) {
+                    LOG.error("Cannot accept backends", e);
+                }
+            }
+        }
+    }
+
+    private void readHealth(Socket socket) {
+        Backend backend = null;
+        try (socket; BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] fields = line.split(" ");
+                if (fields.length != 5 || !fields[0].equals("HEALTH")) {
+                    LOG.warn("Unexpected control message: {}", line);
+                    continue;
+                }
+                backend = backends.computeIfAbsent(fields[1], Backend::new);
+                backend.address = new InetSocketAddress(socket.getInetAddress(), Integer.parseInt(fields[2]));
+                backend.activeMatches = Integer.parseInt(fields[3]);
+                backend.cpuMatches = Integer.parseInt(fields[4]);
+                backend.assigned.set(0);
+                backend.lastReport = System.currentTimeMillis();
+                if (backend.control != socket) {
+                    backend.control = socket;
+                    LOG.info("Backend {} up at {}", backend.id, backend.address);
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            LOG.warn("Control connection lost: {}", e.getMessage());
+        } finally {
+            if (backend != null && backend.control == socket) {
+                backend.control = null;
+                LOG.warn("Backend {} down", backend.id);
+            }
+        }
+    }
+
+    private void pruneRoutes() {
+        long oldest = System.currentTimeMillis() - ROUTE_TTL_MILLIS;
+        sessions.values().removeIf(route -> route.created() < oldest);
+        matches.entrySet().removeIf(entry -> {
+            Route route = entry.getValue();
+            if (route.created() < oldest) {
+                matchIds.remove(route.backendId() + ":" + route.localMatchId());
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private static void reply(Socket client, String message) throws IOException {
+        OutputStream out = client.getOutputStream();
+        out.write((message + "\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    /**
+     * Reads one line without buffering, so that nothing after it is consumed.
+     * @return null at end of stream
+     */
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                return line.size() == 0 ? null : line.toString(StandardCharsets.UTF_8);
+            }
+            if (line.size() == MAX_LINE) {
+                throw new IOException("Line too long");
+            }
+            line.write(b);
+        }
+        String text = line.toString(StandardCharsets.UTF_8);
+        return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+            // Closing anyway
+        }
+    }
+}
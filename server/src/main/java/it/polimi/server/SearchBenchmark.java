@@ -0,0 +1,93 @@
+package it.polimi.server;
+
+import it.polimi.common.GameConfig;
+import it.polimi.model.Position;
+
+import com.sun.management.ThreadMXBean;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Fixed-depth benchmark of CheckersAI's search on a set of reference positions, each searched
+ * with and without killer/history ordering:
+ * <pre>
+ *   SearchBenchmark [depth]
+ * </pre>
+ * For every position it prints the nodes (and how many of them were spent in the quiescence search),
+ * the time, the heap allocated by the search, the share of transposition table probes that hit, the
+ * beta cutoffs and how many of them the first move tried produced; fewer nodes and a higher
+ * first-move rate mean better ordering. Every search starts from an empty table.
+ * Positions are in the Position text format, squares 0 to 31 then the side to move.
+ */
+public final class SearchBenchmark {
+    private static final String[][] POSITIONS = {
+            {"opening", "gggggggggggg........wwwwwwwwwwww w"},
+            {"middlegame", "gggggg.....w..g...g.....www.wwww w"},
+            {"unbalanced", "..gggwgg...g.....g..w...www.wwww g"},
+            {"endgame", "g..gg......g....gww...w.....w..w g"},
+            {"kings", ".Wggg........wg..........w..w.w. w"},
+    };
+    private static final int WARMUP_ROUNDS = 3;
+    private static final ThreadMXBean THREADS = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static final TranspositionTable TABLE = new TranspositionTable(GameConfig.TRANSPOSITION_TABLE_MB);
+
+    private SearchBenchmark() {
+        throw new UnsupportedOperationException("SearchBenchmark is a utility class and cannot be instantiated");
+    }
+
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : GameConfig.AI_SEARCH_DEPTH;
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            for (String[] position : POSITIONS) {
+                TABLE.clear();
+                create(position[1], depth, true).generateBestMove();
+                TABLE.clear();
+                create(position[1], depth, false).generateBestMove();
+            }
+        }
+
+        System.out.printf("%-11s %-8s %12s %12s %9s %9s %9s %7s %10s %9s%n", "position", "ordering", "nodes",
+                "quiescence", "ms", "knodes/s", "KB alloc", "tt hits", "cutoffs", "first");
+        long[] totals = new long[8];
+        for (String[] position : POSITIONS) {
+            for (boolean ordering : new boolean[]{true, false}) {
+                TABLE.clear();
+                // The searcher's tables are allocated once per AI, outside the measurement
+                CheckersAI ai = create(position[1], depth, ordering);
+                long allocatedBefore = THREADS.getCurrentThreadAllocatedBytes();
+                long start = System.nanoTime();
+                ai.generateBestMove();
+                long nanos = System.nanoTime() - start;
+                long allocated = THREADS.getCurrentThreadAllocatedBytes() - allocatedBefore;
+                print(position[0], ordering, ai.getNodes(), ai.getQuiescenceNodes(), nanos, allocated,
+                        ai.getTableProbes(), ai.getTableHits(), ai.getBetaCutoffs(), ai.getFirstMoveCutoffs());
+                if (ordering) {
+                    totals[0] += ai.getNodes();
+                    totals[1] += ai.getQuiescenceNodes();
+                    totals[2] += nanos;
+                    totals[3] += allocated;
+                    totals[4] += ai.getTableProbes();
+                    totals[5] += ai.getTableHits();
+                    totals[6] += ai.getBetaCutoffs();
+                    totals[7] += ai.getFirstMoveCutoffs();
+                }
+            }
+        }
+        print("total", true, totals[0], totals[1], totals[2], totals[3], totals[4], totals[5], totals[6], totals[7]);
+    }
+
+    private static CheckersAI create(String text, int depth, boolean ordering) {
+        Position position = Position.parse(text);
+        CheckersAI ai = new CheckersAI(position.toBoard(), position.isWhiteToMove(), depth, TABLE);
+        ai.setMoveOrdering(ordering);
+        return ai;
+    }
+
+    private static void print(String name, boolean ordering, long nodes, long quiescenceNodes, long nanos,
+                              long allocated, long probes, long hits, long cutoffs, long firstMove) {
+        System.out.printf("%-11s %-8s %12d %12d %9.1f %9.0f %9d %6.1f%% %10d %8.1f%%%n", name, ordering ? "on" : "off",
+                nodes, quiescenceNodes, nanos / 1e6, nodes * 1e6 / nanos, allocated / 1024,
+                probes == 0 ? 0 : 100.0 * hits / probes, cutoffs,
+                cutoffs == 0 ? 0 : 100.0 * firstMove / cutoffs);
+    }
+}
@@ -0,0 +1,58 @@
+package it.polimi.server;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What a CheckersAI search found and what it cost.
+ * Moves are in protocol form, "fromX fromY toX toY", one per jump.
+ *
+ * @param move the move to play, or null when the side to move has none
+ * @param score value of the move for the side that searched, a man being worth 100;
+ *              a won or lost game is scored close to WIN_SCORE or -WIN_SCORE
+ * @param depth nominal depth of the deepest completed iteration, in plies
+ * @param nodes positions visited, quiescence included
+ * @param elapsedNanos wall-clock time of the search
+ * @param principalVariation the line both sides are expected to play, starting with the move
+ * @param tableProbes transposition table lookups
+ * @param tableHits lookups that found an entry for the position
+ * @param tableCollisions lookups that found the slot taken by another position, or torn
+ */
+public record SearchResult(String move, int score, int depth, long nodes, long elapsedNanos,
+                           List<String> principalVariation, long tableProbes, long tableHits, long tableCollisions) {
+    public static final int WIN_SCORE = 100_000;
+
+    public SearchResult {
+        principalVariation = List.copyOf(principalVariation);
+    }
+
+    public double nodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1e9 / elapsedNanos;
+    }
+
+    public double tableHitRate() {
+        return tableProbes == 0 ? 0 : (double) tableHits / tableProbes;
+    }
+
+    public long elapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    /**
+     * True when the score announces a forced win or loss rather than an evaluation.
+     */
+    public boolean isDecisive() {
+        return Math.abs(score) > WIN_SCORE / 2;
+    }
+
+    @Override
+    public String toString() {
+        if (move == null) {
+            return "no legal move";
+        }
+        return "move " + move + " score " + (score > 0 ? "+" : "") + score + " depth " + depth + " nodes " + nodes
+                + " (" + Math.round(nodesPerSecond()) + "/s) in " + elapsedMillis() + " ms, tt hits "
+                + Math.round(100 * tableHitRate()) + "%, pv "
+                + String.join(" | ", principalVariation);
+    }
+}
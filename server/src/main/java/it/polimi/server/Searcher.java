@@ -0,0 +1,369 @@
+package it.polimi.server;
+
+import it.polimi.common.BoardSnapshot;
+import it.polimi.common.GameConfig;
+import it.polimi.model.Position;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The tree search behind CheckersAI: fail-hard alpha-beta with killer and history move ordering,
+ * a quiescence search over pending captures and a triangular principal variation table.
+ * A Searcher keeps its tables between searches and is confined to one thread; parallel searches
+ * each use their own, on their own copy of the position.
+ * Move lists live in a stack preallocated per ply, Position.MAX_MOVES slots each, next to their
+ * ordering scores, so a search allocates nothing per node.
+ * <p>
+ * Results are kept in a {@link TranspositionTable} that other searchers may share. An entry cuts
+ * the search off only when it was stored at the same depth and its bound falls outside the window.
+ * The fixed-depth score of a position depends only on what {@link Position#key()} covers: the
+ * pieces, the side to move, the multi-jump square and the draw counter. Win scores are stored
+ * relative to the position. So an entry is valid for any path to the position, in any search,
+ * as long as the root was built with the referee's counter (CheckersAI passes it in). The scores
+ * are then the same as without the table, whatever other threads or earlier searches stored; the
+ * MAX_PLY cap is the only path-dependent cutoff left. Only the choice among equally scored moves
+ * may change, since the table's move is tried first.
+ */
+final class Searcher {
+    static final int MAX_PLY = 64;
+    static final int INFINITY = 1_000_000;
+    private static final int WIN_SCORE = SearchResult.WIN_SCORE;
+    private static final int MAN_VALUE = 100;
+    private static final int KING_VALUE = 160;
+    private static final int ADVANCE_BONUS = 3;
+    private static final int NO_MOVE = 0;
+    // Nodes a single quiescence search may visit before it settles for the static evaluation
+    private static final int QUIESCENCE_NODE_LIMIT = 1024;
+    // Ordering scores: the table's move, then captures, then killers, then the history scores
+    private static final int TABLE_ORDER = 4 << 28;
+    private static final int CAPTURE_ORDER = 3 << 28;
+    private static final int KILLER_ORDER = 2 << 28;
+
+    private final TranspositionTable table;
+    private final int[][] killers = new int[MAX_PLY][2];
+    private final int[][] history = new int[BoardSnapshot.SQUARES][BoardSnapshot.SQUARES];
+    // Triangular principal variation table: row ply holds the best line found from that ply on
+    private final int[][] pv = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+    // Per-ply move lists: ply p uses [p * Position.MAX_MOVES, (p + 1) * Position.MAX_MOVES)
+    private final int[] moveStack = new int[(MAX_PLY + 1) * Position.MAX_MOVES];
+    private final int[] orderStack = new int[(MAX_PLY + 1) * Position.MAX_MOVES];
+    private boolean moveOrdering = true;
+    private long nodes;
+    private long quiescenceNodes;
+    private int quiescenceBudget;
+    private long betaCutoffs;
+    private long firstMoveCutoffs;
+    private long tableProbes;
+    private long tableHits;
+    private long tableCollisions;
+
+    Searcher(TranspositionTable table) {
+        this.table = table;
+    }
+
+    void setMoveOrdering(boolean moveOrdering) {
+        this.moveOrdering = moveOrdering;
+    }
+
+    /**
+     * Prepares for a new search from a new position: forgets the killers, halves the history
+     * and zeroes the counters.
+     */
+    void reset() {
+        for (int[] plyKillers : killers) {
+            plyKillers[0] = NO_MOVE;
+            plyKillers[1] = NO_MOVE;
+        }
+        // Old history still orders well, but should not outweigh what this search learns
+        for (int[] row : history) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] >>= 1;
+            }
+        }
+        nodes = 0;
+        quiescenceNodes = 0;
+        betaCutoffs = 0;
+        firstMoveCutoffs = 0;
+        tableProbes = 0;
+        tableHits = 0;
+        tableCollisions = 0;
+    }
+
+    /**
+     * Scores a root move by searching depth plies below it, from the point of view of the side
+     * that plays it; the score is exact when it falls inside (alpha, beta).
+     */
+    int searchMove(Position position, int move, int depth, int alpha, int beta) {
+        return searchChild(position, move, depth, alpha, beta, 1);
+    }
+
+    long getNodes() {
+        return nodes;
+    }
+
+    long getQuiescenceNodes() {
+        return quiescenceNodes;
+    }
+
+    long getBetaCutoffs() {
+        return betaCutoffs;
+    }
+
+    long getFirstMoveCutoffs() {
+        return firstMoveCutoffs;
+    }
+
+    long getTableProbes() {
+        return tableProbes;
+    }
+
+    long getTableHits() {
+        return tableHits;
+    }
+
+    /**
+     * Probes that found the slot taken by another position, or torn by a concurrent write.
+     */
+    long getTableCollisions() {
+        return tableCollisions;
+    }
+
+    /**
+     * The root move followed by the principal variation its search left at ply 1.
+     */
+    List<String> line(int rootMove) {
+        List<String> line = new ArrayList<>(pvLength[1]);
+        line.add(Position.toProtocol(rootMove));
+        for (int ply = 1; ply < pvLength[1]; ply++) {
+            line.add(Position.toProtocol(pv[1][ply]));
+        }
+        return line;
+    }
+
+    /**
+     * Copies the root move and the principal variation its search left at ply 1 into line,
+     * which needs MAX_PLY + 1 slots, without allocating.
+     * @return the length of the line
+     */
+    int copyLine(int rootMove, int[] line) {
+        line[0] = rootMove;
+        int length = Math.max(pvLength[1], 1);
+        System.arraycopy(pv[1], 1, line, 1, length - 1);
+        return length;
+    }
+
+    /**
+     * The first length moves of line as the protocol sends them.
+     */
+    static List<String> toProtocol(int[] line, int length) {
+        List<String> moves = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            moves.add(Position.toProtocol(line[i]));
+        }
+        return moves;
+    }
+
+    private void updatePv(int ply, int move) {
+        pv[ply][ply] = move;
+        int length = pvLength[ply + 1];
+        System.arraycopy(pv[ply + 1], ply + 1, pv[ply], ply + 1, length - ply - 1);
+        pvLength[ply] = length;
+    }
+
+    /**
+     * Plays the move and searches the resulting position from the mover's point of view:
+     * the score is negated only when the turn passes, not between the jumps of a multi-jump.
+     */
+    private int searchChild(Position position, int move, int depth, int alpha, int beta, int ply) {
+        boolean white = position.isWhiteToMove();
+        position.make(move);
+        int score = position.isWhiteToMove() == white
+                ? alphaBeta(position, depth, alpha, beta, ply)
+                : -alphaBeta(position, depth, -beta, -alpha, ply);
+        position.unmake();
+        return score;
+    }
+
+    /**
+     * Fail-hard alpha-beta: the score of the position for the side to move, clamped to [alpha, beta].
+     */
+    private int alphaBeta(Position position, int depth, int alpha, int beta, int ply) {
+        if (depth == 0) {
+            quiescenceBudget = QUIESCENCE_NODE_LIMIT;
+            return quiescence(position, alpha, beta, ply);
+        }
+        nodes++;
+        pvLength[ply] = ply;
+        if (position.isDraw()) {
+            return 0;
+        }
+        if (ply >= MAX_PLY) {
+            return evaluate(position);
+        }
+        long key = position.key();
+        long entry = table.probe(key);
+        tableProbes++;
+        int tableMove = NO_MOVE;
+        if (entry == TranspositionTable.COLLISION) {
+            tableCollisions++;
+        } else if (entry != TranspositionTable.MISS) {
+            tableHits++;
+            tableMove = TranspositionTable.move(entry);
+            if (TranspositionTable.depth(entry) == depth) {
+                int bound = TranspositionTable.bound(entry);
+                int score = fromTable(TranspositionTable.score(entry), ply);
+                if (score >= beta && bound != TranspositionTable.UPPER) {
+                    return beta;
+                }
+                if (score <= alpha && bound != TranspositionTable.LOWER) {
+                    return alpha;
+                }
+            }
+        }
+        int first = ply * Position.MAX_MOVES;
+        int end = first + position.generateMoves(moveStack, first);
+        if (end == first) {
+            // No piece left or no way to move: prefer the longest loss and the shortest win
+            return -WIN_SCORE + ply;
+        }
+        if (moveOrdering) {
+            orderScores(first, end, ply, tableMove);
+        }
+
+        int alphaBefore = alpha;
+        int bestMove = NO_MOVE;
+        for (int i = first; i < end; i++) {
+            if (moveOrdering) {
+                selectNext(i, end);
+            }
+            int move = moveStack[i];
+            int score = searchChild(position, move, depth - 1, alpha, beta, ply + 1);
+            if (score >= beta) {
+                betaCutoffs++;
+                if (i == first) {
+                    firstMoveCutoffs++;
+                }
+                if (!Position.isCapture(move)) {
+                    if (killers[ply][0] != move) {
+                        killers[ply][1] = killers[ply][0];
+                        killers[ply][0] = move;
+                    }
+                    history[Position.from(move)][Position.to(move)] += depth * depth;
+                }
+                table.store(key, move, toTable(beta, ply), depth, TranspositionTable.LOWER);
+                return beta;
+            }
+            if (score > alpha) {
+                alpha = score;
+                bestMove = move;
+                updatePv(ply, move);
+            }
+        }
+        table.store(key, bestMove, toTable(alpha, ply), depth,
+                alpha > alphaBefore ? TranspositionTable.EXACT : TranspositionTable.UPPER);
+        return alpha;
+    }
+
+    // Win scores count plies from the root; the table keeps them relative to the stored position
+    private static int toTable(int score, int ply) {
+        return score > WIN_SCORE / 2 ? score + ply : score < -WIN_SCORE / 2 ? score - ply : score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        return score > WIN_SCORE / 2 ? score - ply : score < -WIN_SCORE / 2 ? score + ply : score;
+    }
+
+    /**
+     * Plays out the captures pending at the horizon: a side that can capture must, so there is no
+     * standing pat until the exchange is over. Bounded by QUIESCENCE_NODE_LIMIT per horizon node.
+     */
+    private int quiescence(Position position, int alpha, int beta, int ply) {
+        nodes++;
+        quiescenceNodes++;
+        pvLength[ply] = ply;
+        if (position.isDraw()) {
+            return 0;
+        }
+        int first = ply * Position.MAX_MOVES;
+        int end = first + position.generateCaptures(moveStack, first);
+        if (end == first || ply >= MAX_PLY || --quiescenceBudget < 0) {
+            // A side that is merely blocked is left to the static evaluation here
+            return position.pieces(position.isWhiteToMove()) == 0 ? -WIN_SCORE + ply : evaluate(position);
+        }
+
+        for (int i = first; i < end; i++) {
+            int move = moveStack[i];
+            boolean white = position.isWhiteToMove();
+            position.make(move);
+            int score = position.isWhiteToMove() == white
+                    ? quiescence(position, alpha, beta, ply + 1)
+                    : -quiescence(position, -beta, -alpha, ply + 1);
+            position.unmake();
+            if (score >= beta) {
+                return beta;
+            }
+            if (score > alpha) {
+                alpha = score;
+                updatePv(ply, move);
+            }
+        }
+        return alpha;
+    }
+
+    private void orderScores(int first, int end, int ply, int tableMove) {
+        for (int i = first; i < end; i++) {
+            int move = moveStack[i];
+            if (move == tableMove) {
+                orderStack[i] = TABLE_ORDER;
+            } else if (Position.isCapture(move)) {
+                orderStack[i] = CAPTURE_ORDER;
+            } else if (move == killers[ply][0] || move == killers[ply][1]) {
+                orderStack[i] = KILLER_ORDER;
+            } else {
+                orderStack[i] = Math.min(history[Position.from(move)][Position.to(move)], KILLER_ORDER - 1);
+            }
+        }
+    }
+
+    /**
+     * Swaps the best ordered move of [index, end) into index: a selection sort done lazily,
+     * since after a cutoff the remaining moves are never looked at.
+     */
+    private void selectNext(int index, int end) {
+        int best = index;
+        for (int i = index + 1; i < end; i++) {
+            if (orderStack[i] > orderStack[best]) {
+                best = i;
+            }
+        }
+        if (best != index) {
+            int move = moveStack[best];
+            moveStack[best] = moveStack[index];
+            moveStack[index] = move;
+            int score = orderStack[best];
+            orderStack[best] = orderStack[index];
+            orderStack[index] = score;
+        }
+    }
+
+    /**
+     * Material plus a small bonus for each row a man has advanced, from the side to move's point of view.
+     */
+    private static int evaluate(Position position) {
+        int score = material(position, true) - material(position, false);
+        return position.isWhiteToMove() ? score : -score;
+    }
+
+    private static int material(Position position, boolean white) {
+        int pieces = position.pieces(white);
+        int men = pieces & ~position.kings();
+        int score = Integer.bitCount(men) * MAN_VALUE + Integer.bitCount(pieces & position.kings()) * KING_VALUE;
+        for (; men != 0; men &= men - 1) {
+            int y = BoardSnapshot.squareY(Integer.numberOfTrailingZeros(men));
+            score += ADVANCE_BONUS * (white ? GameConfig.BOARD_HEIGHT - 1 - y : y);
+        }
+        return score;
+    }
+}
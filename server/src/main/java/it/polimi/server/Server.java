@@ -0,0 +1,407 @@
+package it.polimi.server;
+
+import it.polimi.common.GameConfig;
+import it.polimi.common.Log;
+
+import javax.management.JMException;
+import jdk.net.ExtendedSocketOptions;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.StandardSocketOptions;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+    public record Server(ServerSocket serverSocket, ServerContext context) {
+        private static final Log LOG = Log.getLogger(Server.class);
+        private static final long DRAIN_POLL_MILLIS = 200;
+        private static final long HANDOFF_WAIT_MILLIS = 5000;
+        private static final int KEEPALIVE_IDLE_SECONDS = 30;
+        private static final int KEEPALIVE_INTERVAL_SECONDS = 10;
+        private static final int KEEPALIVE_PROBES = 3;
+        // Il numero di saluti letti insieme è limitato da AdmissionControl
+        private static final ExecutorService HELLO_READERS = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "hello-reader");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        public Server(ServerSocket serverSocket) {
+            this(serverSocket, ServerContext.inMemory());
+        }
+
+        public static void main(String[] args) throws IOException {
+            ServerSocket serverSocket = bind(Integer.getInteger("dama.port", GameConfig.DEFAULT_PORT));
+            GameRecordStore records = GameRecordStore.open(
+                    Path.of(System.getProperty("dama.records.dir", GameConfig.RECORDS_DIR)));
+            RatingService ratings = RatingService.open(
+                    Path.of(System.getProperty("dama.ratings.file", GameConfig.RATINGS_FILE)),
+                    Duration.ofSeconds(GameConfig.RATINGS_SNAPSHOT_SECONDS));
+            Server server = new Server(serverSocket, new ServerContext(new SessionRegistry(), new MatchRegistry(),
+                    records, ratings, Path.of(System.getProperty("dama.handoff.dir", GameConfig.HANDOFF_DIR)),
+                    AdmissionControl.fromSystemProperties()));
+            HealthReporter healthReporter = startHealthReports(serverSocket.getLocalPort());
+            // SIGTERM durante un deploy: le partite in corso finiscono qui o passano al nuovo processo
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                if (healthReporter != null) {
+                    healthReporter.close();
+                }
+                try {
+                    server.drain(Duration.ofSeconds(Integer.getInteger("dama.drain.seconds", GameConfig.DRAIN_SECONDS)));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                try {
+                    records.close();
+                } catch (IOException e) {
+                    LOG.error("Cannot close the game records", e);
+                }
+                try {
+                    ratings.close();
+                } catch (IOException e) {
+                    LOG.error("Cannot save the ratings", e);
+                }
+            }, "server-drain"));
+            startMetrics();
+            server.restoreHandoffs();
+            server.startServer();
+        }
+
+        /**
+         * Apre la porta di ascolto con SO_REUSEPORT dove il sistema lo consente, così il processo
+         * che sostituisce questo durante un deploy può mettersi in ascolto sulla stessa porta
+         * prima che questo smetta di accettare connessioni.
+         */
+        public static ServerSocket bind(int port) throws IOException {
+            ServerSocket serverSocket = new ServerSocket();
+            if (serverSocket.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT)) {
+                serverSocket.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+            }
+            serverSocket.bind(new InetSocketAddress(port));
+            return serverSocket;
+        }
+
+        /**
+         * Con -Ddama.router=host:porta il server si registra come backend del Router.
+         */
+        private static HealthReporter startHealthReports(int port) {
+            String router = System.getProperty("dama.router");
+            if (router == null) {
+                return null;
+            }
+            int colon = router.lastIndexOf(':');
+            InetSocketAddress address = colon < 0
+                    ? new InetSocketAddress(router, GameConfig.ROUTER_CONTROL_PORT)
+                    : new InetSocketAddress(router.substring(0, colon), Integer.parseInt(router.substring(colon + 1)));
+            HealthReporter reporter = new HealthReporter(System.getProperty("dama.backend.id", "backend-" + port), port,
+                    address, ServerMetrics.global());
+            reporter.start();
+            return reporter;
+        }
+
+        /**
+         * Espone le metriche via JMX e su http://localhost:METRICS_PORT/metrics.
+         * Un errore qui non impedisce al server di partire.
+         */
+        private static void startMetrics() {
+            ServerMetrics metrics = ServerMetrics.global();
+            try {
+                metrics.registerMBean();
+                MetricsEndpoint endpoint = new MetricsEndpoint(metrics,
+                        Integer.getInteger("dama.metrics.port", GameConfig.METRICS_PORT));
+                endpoint.start();
+                LOG.info("Metrics available on port {}", endpoint.getPort());
+            } catch (IOException | JMException e) {
+                LOG.error("Cannot start the metrics endpoint", e);
+            }
+        }
+
+        public void startServer() {
+            try (Matchmaker matchmaker = new Matchmaker(context.ratings(), this::startMatch)) {
+                while (! serverSocket.isClosed()) {
+                    try {
+                        acceptConnection(matchmaker);
+                    } catch (IOException e) {
+                        closeServerSocket();
+                    }
+                }
+            }
+        }
+
+        private void acceptConnection(Matchmaker matchmaker) throws IOException {
+            Socket socket = serverSocket.accept();
+            keepAlive(socket);
+            // Il saluto si legge su un altro thread, così un client lento non ferma le accept;
+            // se troppi client non hanno ancora salutato, il nuovo riceve subito BUSY
+            if (!context.admission().startHandshake()) {
+                reject(socket);
+                return;
+            }
+            HELLO_READERS.execute(() -> {
+                try {
+                    handshake(socket, matchmaker);
+                } finally {
+                    context.admission().handshakeFinished();
+                }
+            });
+        }
+
+        /**
+         * Legge la prima riga del client e lo smista: coda dei giocatori, partita contro la CPU,
+         * ripresa di una sessione o spettatore.
+         */
+        private void handshake(Socket socket, Matchmaker matchmaker) {
+            String hello;
+            try {
+                // Un client che non saluta libera il suo posto entro CONNECTION_TIMEOUT
+                socket.setSoTimeout(GameConfig.CONNECTION_TIMEOUT);
+                hello = new BufferedReader(new InputStreamReader(socket.getInputStream())).readLine();
+                socket.setSoTimeout(0);
+            } catch (IOException e) {
+                closeQuietly(socket);
+                return;
+            }
+            ServerEvents.ConnectionAccepted accepted = new ServerEvents.ConnectionAccepted();
+            if (accepted.shouldCommit()) {
+                accepted.hello = hello == null ? null : hello.split(" ", 2)[0];
+                accepted.commit();
+            }
+            if (hello == null || serverSocket.isClosed()) {
+                // Il server ha smesso di accettare mentre il client salutava
+                closeQuietly(socket);
+            } else if (hello.startsWith("wait")) {
+                // Il primo arrivato della coppia gioca con il posto 1
+                if (context.admission().lobbyHasRoom(matchmaker.waitingCount())) {
+                    matchmaker.offer(socket, RatingService.playerId(hello));
+                } else {
+                    reject(socket);
+                }
+            } else if (hello.startsWith("resume ")) {
+                resumeSession(socket, hello.substring("resume ".length()).trim());
+            } else if (hello.startsWith("watch ")) {
+                watchMatch(socket, hello.substring("watch ".length()).trim());
+            } else {
+                String player = RatingService.playerId(hello);
+                context.admission().submit(true, () -> startCpuMatch(socket, player), () -> reject(socket));
+            }
+        }
+
+        /**
+         * Avvia una partita contro la CPU ammessa da AdmissionControl.
+         */
+        private void startCpuMatch(Socket socket, String player) {
+            try {
+                ClientHandler clientHandler = new ClientHandler(socket, player, null, RatingService.CPU, context);
+                paired(clientHandler, true);
+                launch(clientHandler, true);
+            } catch (IOException e) {
+                context.admission().finished(true);
+                LOG.warn("Cannot start a CPU match: {}", e.getMessage());
+            }
+        }
+
+        /**
+         * Avvia la partita di due giocatori abbinati dal matchmaker.
+         */
+        private void startMatch(Matchmaker.Waiting first, Matchmaker.Waiting second) {
+            ServerMetrics.global().pairingWaited(System.nanoTime() - first.since());
+            context.admission().submit(false, () -> {
+                try {
+                    ClientHandler clientHandler = new ClientHandler(first.socket(), first.player(),
+                            second.socket(), second.player(), context);
+                    paired(clientHandler, false);
+                    launch(clientHandler, false);
+                } catch (IOException e) {
+                    context.admission().finished(false);
+                    LOG.warn("Cannot start a match: {}", e.getMessage());
+                }
+            }, () -> {
+                reject(first.socket());
+                reject(second.socket());
+            });
+        }
+
+        /**
+         * Un thread per partita; lo slot di AdmissionControl si libera quando la partita finisce.
+         */
+        private void launch(ClientHandler clientHandler, boolean cpu) {
+            Thread thread = new Thread(() -> {
+                try {
+                    clientHandler.run();
+                } finally {
+                    context.admission().finished(cpu);
+                }
+            });
+            thread.start();
+        }
+
+        /**
+         * Risponde "BUSY &lt;secondi&gt;" a un client che il server non può ospitare ora.
+         */
+        private void reject(Socket socket) {
+            try {
+                BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream()));
+                writer.write(context.admission().busyReply());
+                writer.newLine();
+                writer.flush();
+            } catch (IOException ignored) {
+                // Il client se n'è già andato
+            }
+            closeQuietly(socket);
+        }
+
+        /**
+         * Attiva il keepalive TCP con tempi brevi, così un peer sparito senza chiudere
+         * (Wi-Fi caduto, NAT scaduto) viene scoperto in circa un minuto invece che in ore.
+         */
+        static void keepAlive(Socket socket) {
+            try {
+                socket.setKeepAlive(true);
+                if (socket.supportedOptions().contains(ExtendedSocketOptions.TCP_KEEPIDLE)) {
+                    socket.setOption(ExtendedSocketOptions.TCP_KEEPIDLE, KEEPALIVE_IDLE_SECONDS);
+                    socket.setOption(ExtendedSocketOptions.TCP_KEEPINTERVAL, KEEPALIVE_INTERVAL_SECONDS);
+                    socket.setOption(ExtendedSocketOptions.TCP_KEEPCOUNT, KEEPALIVE_PROBES);
+                }
+            } catch (IOException ignored) {
+                // Il socket è già inutilizzabile: la lettura del saluto fallirà
+            }
+        }
+
+        private static void closeQuietly(Socket socket) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Il socket è già inutilizzabile
+            }
+        }
+
+        private static void paired(ClientHandler clientHandler, boolean cpu) {
+            ServerEvents.MatchPaired event = new ServerEvents.MatchPaired();
+            if (event.shouldCommit()) {
+                event.matchId = clientHandler.getMatchId();
+                event.cpu = cpu;
+                event.commit();
+            }
+        }
+
+        /**
+         * Smette di accettare connessioni e lascia finire le partite in corso fino a timeout;
+         * quelle ancora aperte vengono consegnate alla cartella di handoff, dove il processo
+         * che sostituisce questo le riprende quando i giocatori si ricollegano.
+         * Senza cartella di handoff le partite rimaste terminano con il processo.
+         * @return il numero di partite consegnate
+         */
+        public int drain(Duration timeout) throws InterruptedException {
+            LOG.info("Draining: {} matches in progress", context.matches().size());
+            closeServerSocket();
+            // Chi è in coda riprova e trova il processo che sostituisce questo
+            context.admission().rejectPending();
+            long deadline = System.nanoTime() + timeout.toNanos();
+            while (context.matches().size() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(DRAIN_POLL_MILLIS);
+            }
+            if (context.handoffs() == null || context.matches().size() == 0) {
+                return 0;
+            }
+
+            int handedOff = 0;
+            for (ClientHandler match : context.matches().all()) {
+                if (match.suspend(context.handoffs())) {
+                    handedOff++;
+                }
+            }
+            // Ogni partita scrive il proprio stato al prossimo inizio turno
+            long handoffDeadline = System.nanoTime() + HANDOFF_WAIT_MILLIS * 1_000_000L;
+            while (context.matches().size() > 0 && System.nanoTime() < handoffDeadline) {
+                Thread.sleep(DRAIN_POLL_MILLIS);
+            }
+            LOG.info("Drain complete: {} matches handed off to {}", handedOff, context.handoffs());
+            return handedOff;
+        }
+
+        /**
+         * Riprende le partite lasciate nella cartella di handoff da un server in drain.
+         * @return il numero di partite riprese
+         */
+        public int restoreHandoffs() {
+            if (context.handoffs() == null) {
+                return 0;
+            }
+            List<MatchHandoff> handoffs = MatchHandoff.claimAll(context.handoffs());
+            for (MatchHandoff handoff : handoffs) {
+                ClientHandler clientHandler = new ClientHandler(handoff, context);
+                LOG.info("Match {} taken over from a drained server", clientHandler.getMatchId());
+                // Partita già iniziata: entra anche oltre i limiti
+                context.admission().admit(handoff.isCpuMatch());
+                launch(clientHandler, handoff.isCpuMatch());
+            }
+            return handoffs.size();
+        }
+
+        /**
+         * Riassegna il socket di un giocatore riconnesso alla sua partita.
+         * Un token sconosciuto può appartenere a una partita appena consegnata da un server in drain.
+         */
+        private void resumeSession(Socket socket, String token) {
+            try {
+                boolean resumed = context.sessions().resume(token, socket);
+                if (!resumed && restoreHandoffs() > 0) {
+                    resumed = context.sessions().resume(token, socket);
+                }
+                if (!resumed) {
+                    BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream()));
+                    writer.write("EXPIRED");
+                    writer.newLine();
+                    writer.flush();
+                    socket.close();
+                }
+            } catch (IOException e) {
+                try {
+                    socket.close();
+                } catch (IOException ignored) {
+                    // Il socket è già inutilizzabile
+                }
+            }
+        }
+
+        /**
+         * Iscrive uno spettatore alla partita richiesta.
+         */
+        private void watchMatch(Socket socket, String matchId) {
+            try {
+                ClientHandler match = null;
+                try {
+                    match = context.matches().find(Integer.parseInt(matchId));
+                } catch (NumberFormatException ignored) {
+                    // Id non valido: trattato come partita inesistente
+                }
+                if (match == null || !match.addSpectator(socket)) {
+                    BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream()));
+                    writer.write("NOMATCH");
+                    writer.newLine();
+                    writer.flush();
+                    socket.close();
+                }
+            } catch (IOException e) {
+                try {
+                    socket.close();
+                } catch (IOException ignored) {
+                    // Il socket è già inutilizzabile
+                }
+            }
+        }
+
+        public void closeServerSocket() {
+            try {
+                if (serverSocket != null) {
+                    serverSocket.close();
+                }
+            } catch (IOException e) {
+                LOG.error("Cannot close the server socket", e);
+            }
+        }
+    }
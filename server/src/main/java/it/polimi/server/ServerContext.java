@@ -0,0 +1,24 @@
+package it.polimi.server;
+
+import java.nio.file.Path;
+
+/**
+ * Services shared by all the matches of a server.
+ *
+ * @param records   where finished games are stored, or null to keep them only in memory
+ * @param ratings   ratings of the identified players, updated when a game ends
+ * @param handoffs  directory where a draining server leaves its unfinished matches for the
+ *                  process replacing it, or null to let them end with the process
+ * @param admission limits on the matches running and waiting to start
+ */
+public record ServerContext(SessionRegistry sessions, MatchRegistry matches, GameRecordStore records,
+                            RatingService ratings, Path handoffs, AdmissionControl admission) {
+
+    /**
+     * Context without persistence, used by tests and by the convenience constructors.
+     */
+    public static ServerContext inMemory() {
+        return new ServerContext(new SessionRegistry(), new MatchRegistry(), null, new RatingService(), null,
+                AdmissionControl.fromSystemProperties());
+    }
+}
@@ -0,0 +1,129 @@
+package it.polimi.server;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events for the match lifecycle and the CPU player.
+ * They are disabled unless a recording enables them (e.g. with a .jfc listing "it.polimi.dama.*"),
+ * and callers check isEnabled()/shouldCommit() first so a disabled event costs next to nothing.
+ */
+public final class ServerEvents {
+
+    private ServerEvents() {
+        throw new UnsupportedOperationException("ServerEvents is a utility class and cannot be instantiated");
+    }
+
+    @Name("it.polimi.dama.ConnectionAccepted")
+    @Label("Connection Accepted")
+    @Category({"Dama", "Server"})
+    @StackTrace(false)
+    public static class ConnectionAccepted extends Event {
+        @Label("Hello")
+        @Description("First word sent by the client: wait, cpu, resume or watch")
+        public String hello;
+    }
+
+    @Name("it.polimi.dama.MatchPaired")
+    @Label("Match Paired")
+    @Category({"Dama", "Server"})
+    @StackTrace(false)
+    public static class MatchPaired extends Event {
+        @Label("Match Id")
+        public int matchId;
+
+        @Label("CPU Opponent")
+        public boolean cpu;
+    }
+
+    @Name("it.polimi.dama.Turn")
+    @Label("Turn")
+    @Description("From the start of a turn until its move is applied or dropped")
+    @Category({"Dama", "Match"})
+    @StackTrace(false)
+    public static class Turn extends Event {
+        @Label("Match Id")
+        public int matchId;
+
+        @Label("Turn")
+        public int turn;
+
+        @Label("Player")
+        public String player;
+
+        @Label("Multi-jump")
+        public boolean multiJump;
+
+        @Label("Move Applied")
+        public boolean applied;
+    }
+
+    @Name("it.polimi.dama.MoveRejected")
+    @Label("Move Rejected")
+    @Category({"Dama", "Match"})
+    @StackTrace(false)
+    public static class MoveRejected extends Event {
+        @Label("Match Id")
+        public int matchId;
+
+        @Label("Turn")
+        public int turn;
+
+        @Label("Reason")
+        public String reason;
+    }
+
+    @Name("it.polimi.dama.MultiJump")
+    @Label("Multi-jump")
+    @Description("A capture left the same piece with another capture to make")
+    @Category({"Dama", "Match"})
+    @StackTrace(false)
+    public static class MultiJump extends Event {
+        @Label("Match Id")
+        public int matchId;
+
+        @Label("Turn")
+        public int turn;
+    }
+
+    @Name("it.polimi.dama.GameEnd")
+    @Label("Game End")
+    @Category({"Dama", "Match"})
+    @StackTrace(false)
+    public static class GameEnd extends Event {
+        @Label("Match Id")
+        public int matchId;
+
+        @Label("Result")
+        @Description("END1, END2, DRAW, ABORTED, or HANDED_OFF when a drain passed the match to another server")
+        public String result;
+
+        @Label("Turns")
+        public int turns;
+    }
+
+    @Name("it.polimi.dama.AiSearch")
+    @Label("AI Search")
+    @Category({"Dama", "AI"})
+    @StackTrace(false)
+    public static class AiSearch extends Event {
+        @Label("Iteration")
+        public int iteration;
+
+        @Label("Depth")
+        public int depth;
+
+        @Label("Nodes")
+        public long nodes;
+
+        @Label("Table Hits")
+        public long tableHits;
+
+        @Label("Table Collisions")
+        public long tableCollisions;
+    }
+}
@@ -0,0 +1,286 @@
+package it.polimi.server;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide counters and latency histograms of the game server.
+ * Latencies are recorded in nanoseconds and reported in microseconds.
+ */
+public class ServerMetrics implements ServerMetricsMXBean {
+    private static final ServerMetrics GLOBAL = new ServerMetrics();
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final LongAdder matchesStarted = new LongAdder();
+    private final AtomicInteger activeMatches = new AtomicInteger();
+    private final AtomicInteger activeCpuMatches = new AtomicInteger();
+    private final AtomicInteger pendingMatches = new AtomicInteger();
+    private final LongAdder matchesRejected = new LongAdder();
+    private final LongAdder movesProcessed = new LongAdder();
+    private final LongAdder movesRejected = new LongAdder();
+    private final LongAdder socketErrors = new LongAdder();
+    private final LongAdder aiNodes = new LongAdder();
+    private final LongAdder aiTableProbes = new LongAdder();
+    private final LongAdder aiTableHits = new LongAdder();
+    private final LongAdder aiTableCollisions = new LongAdder();
+
+    private final LatencyHistogram moveProcess = new LatencyHistogram();
+    private final LatencyHistogram moveValidation = new LatencyHistogram();
+    private final LatencyHistogram aiSearch = new LatencyHistogram();
+    private final LatencyHistogram aiSearchNodes = new LatencyHistogram();
+    private final LatencyHistogram aiSearchDepth = new LatencyHistogram();
+    private final LatencyHistogram pairingWait = new LatencyHistogram();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+
+    /**
+     * The instance shared by every match of this server.
+     */
+    public static ServerMetrics global() {
+        return GLOBAL;
+    }
+
+    public void matchStarted() {
+        matchesStarted.increment();
+        activeMatches.incrementAndGet();
+    }
+
+    public void matchEnded() {
+        activeMatches.decrementAndGet();
+    }
+
+    /**
+     * A match against CheckersAI started; counted on top of matchStarted, since these
+     * matches also spend server CPU on the searches.
+     */
+    public void cpuMatchStarted() {
+        activeCpuMatches.incrementAndGet();
+    }
+
+    public void cpuMatchEnded() {
+        activeCpuMatches.decrementAndGet();
+    }
+
+    /**
+     * Matches waiting for a free slot in {@link AdmissionControl}.
+     */
+    public void pendingMatches(int count) {
+        pendingMatches.set(count);
+    }
+
+    /**
+     * A match turned away with "BUSY" because the server and its queue were full.
+     */
+    public void matchRejected() {
+        matchesRejected.increment();
+    }
+
+    /**
+     * A move went through validation and was applied; elapsed time excludes the player's thinking.
+     */
+    public void moveProcessed(long nanos) {
+        movesProcessed.increment();
+        moveProcess.record(nanos);
+    }
+
+    public void moveRejected() {
+        movesRejected.increment();
+    }
+
+    public void moveValidated(long nanos) {
+        moveValidation.record(nanos);
+    }
+
+    public void socketError() {
+        socketErrors.increment();
+    }
+
+    public void aiSearched(long nanos, long nodes) {
+        aiSearch.record(nanos);
+        aiSearchNodes.record(nodes);
+        aiNodes.add(nodes);
+    }
+
+    /**
+     * A CPU move was searched; besides time and nodes, records the depth reached and how the
+     * transposition table fared.
+     */
+    public void aiSearched(SearchResult result) {
+        aiSearched(result.elapsedNanos(), result.nodes());
+        aiSearchDepth.record(result.depth());
+        aiTableProbes.add(result.tableProbes());
+        aiTableHits.add(result.tableHits());
+        aiTableCollisions.add(result.tableCollisions());
+    }
+
+    /**
+     * Time a player spent in the lobby before being paired.
+     */
+    public void pairingWaited(long nanos) {
+        pairingWait.record(nanos);
+    }
+
+    /**
+     * Time a paired match spent queued for a free slot before it started.
+     */
+    public void queueWaited(long nanos) {
+        queueWait.record(nanos);
+    }
+
+    /**
+     * Registers this instance with the platform MBean server; calling it twice is harmless.
+     */
+    public void registerMBean() throws JMException {
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                    .registerMBean(this, new ObjectName("it.polimi.server:type=ServerMetrics"));
+        } catch (InstanceAlreadyExistsException ignored) {
+            // Already exposed by a previous start
+        }
+    }
+
+    /**
+     * Plain-text exposition, one "name value" pair per line.
+     */
+    public String render() {
+        StringBuilder out = new StringBuilder(2048);
+        line(out, "dama_matches_started_total", getMatchesStarted());
+        line(out, "dama_matches_active", getActiveMatches());
+        line(out, "dama_cpu_matches_active", getActiveCpuMatches());
+        line(out, "dama_matches_pending", getPendingMatches());
+        line(out, "dama_matches_rejected_total", getMatchesRejected());
+        line(out, "dama_moves_processed_total", getMovesProcessed());
+        line(out, "dama_moves_rejected_total", getMovesRejected());
+        line(out, "dama_socket_errors_total", getSocketErrors());
+        line(out, "dama_ai_nodes_total", getAiNodesSearched());
+        out.append("dama_ai_nodes_per_second ").append(String.format("%.1f", getAiNodesPerSecond())).append('\n');
+        line(out, "dama_ai_tt_probes_total", aiTableProbes.sum());
+        line(out, "dama_ai_tt_hits_total", aiTableHits.sum());
+        line(out, "dama_ai_tt_collisions_total", getAiTableCollisions());
+        latency(out, "dama_move_process_micros", moveProcess);
+        latency(out, "dama_move_validation_micros", moveValidation);
+        latency(out, "dama_ai_search_micros", aiSearch);
+        latency(out, "dama_pairing_wait_micros", pairingWait);
+        latency(out, "dama_queue_wait_micros", queueWait);
+        distribution(out, "dama_ai_search_nodes", aiSearchNodes);
+        distribution(out, "dama_ai_search_depth", aiSearchDepth);
+        return out.toString();
+    }
+
+    private static void line(StringBuilder out, String name, long value) {
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void latency(StringBuilder out, String name, LatencyHistogram histogram) {
+        line(out, name + "_count", histogram.count());
+        for (double quantile : QUANTILES) {
+            out.append(name).append("{quantile=\"").append(quantile).append("\"} ")
+                    .append(micros(histogram.percentile(quantile))).append('\n');
+        }
+        line(out, name + "_max", micros(histogram.max()));
+    }
+
+    private static void distribution(StringBuilder out, String name, LatencyHistogram histogram) {
+        line(out, name + "_count", histogram.count());
+        for (double quantile : QUANTILES) {
+            out.append(name).append("{quantile=\"").append(quantile).append("\"} ")
+                    .append(histogram.percentile(quantile)).append('\n');
+        }
+        line(out, name + "_max", histogram.max());
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    @Override
+    public long getMatchesStarted() {
+        return matchesStarted.sum();
+    }
+
+    @Override
+    public int getActiveMatches() {
+        return activeMatches.get();
+    }
+
+    @Override
+    public int getActiveCpuMatches() {
+        return activeCpuMatches.get();
+    }
+
+    @Override
+    public int getPendingMatches() {
+        return pendingMatches.get();
+    }
+
+    @Override
+    public long getMatchesRejected() {
+        return matchesRejected.sum();
+    }
+
+    @Override
+    public long getMovesProcessed() {
+        return movesProcessed.sum();
+    }
+
+    @Override
+    public long getMovesRejected() {
+        return movesRejected.sum();
+    }
+
+    @Override
+    public long getSocketErrors() {
+        return socketErrors.sum();
+    }
+
+    @Override
+    public long getMoveProcessP99Micros() {
+        return micros(moveProcess.percentile(0.99));
+    }
+
+    @Override
+    public long getMoveValidationP99Micros() {
+        return micros(moveValidation.percentile(0.99));
+    }
+
+    @Override
+    public long getAiSearchP99Micros() {
+        return micros(aiSearch.percentile(0.99));
+    }
+
+    @Override
+    public long getAiNodesSearched() {
+        return aiNodes.sum();
+    }
+
+    @Override
+    public double getAiNodesPerSecond() {
+        long nanos = aiSearch.sum();
+        return nanos == 0 ? 0 : aiNodes.sum() * 1e9 / nanos;
+    }
+
+    @Override
+    public double getAiTableHitRate() {
+        long probes = aiTableProbes.sum();
+        return probes == 0 ? 0 : (double) aiTableHits.sum() / probes;
+    }
+
+    @Override
+    public long getAiTableCollisions() {
+        return aiTableCollisions.sum();
+    }
+
+    @Override
+    public long getPairingWaitP99Micros() {
+        return micros(pairingWait.percentile(0.99));
+    }
+
+    @Override
+    public long getQueueWaitP99Micros() {
+        return micros(queueWait.percentile(0.99));
+    }
+}
@@ -0,0 +1,41 @@
+package it.polimi.server;
+
+/**
+ * Management view of {@link ServerMetrics}, registered as it.polimi.server:type=ServerMetrics.
+ * Latencies are in microseconds.
+ */
+public interface ServerMetricsMXBean {
+    long getMatchesStarted();
+
+    int getActiveMatches();
+
+    int getActiveCpuMatches();
+
+    int getPendingMatches();
+
+    long getMatchesRejected();
+
+    long getMovesProcessed();
+
+    long getMovesRejected();
+
+    long getSocketErrors();
+
+    long getMoveProcessP99Micros();
+
+    long getMoveValidationP99Micros();
+
+    long getAiSearchP99Micros();
+
+    long getAiNodesSearched();
+
+    double getAiNodesPerSecond();
+
+    double getAiTableHitRate();
+
+    long getAiTableCollisions();
+
+    long getPairingWaitP99Micros();
+
+    long getQueueWaitP99Micros();
+}
@@ -0,0 +1,67 @@
+package it.polimi.server;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps track of the session tokens handed out at the "1"/"2" handshake,
+ * so that a player who lost the connection can take back their seat.
+ */
+public class SessionRegistry {
+    private static final int TOKEN_BYTES = 16;
+
+    private final Map<String, Seat> seats = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * Issues a new token bound to the given seat of a match.
+     */
+    public String register(ClientHandler handler, int seat) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        seats.put(token, new Seat(handler, seat));
+        return token;
+    }
+
+    /**
+     * Binds a token issued by another process to a seat here, for a match handed over
+     * during a drain.
+     */
+    public String adopt(String token, ClientHandler handler, int seat) {
+        seats.put(token, new Seat(handler, seat));
+        return token;
+    }
+
+    /**
+     * Hands the socket over to the match owning the token.
+     * @return false if the token is unknown or the match is no longer waiting for the player
+     */
+    public boolean resume(String token, Socket socket) throws IOException {
+        Seat seat = seats.get(token);
+        if (seat == null) {
+            return false;
+        }
+        return seat.handler().resumeSeat(seat.seat(), socket);
+    }
+
+    /**
+     * Invalidates a token, typically when the match is over.
+     */
+    public void remove(String token) {
+        if (token != null) {
+            seats.remove(token);
+        }
+    }
+
+    public int size() {
+        return seats.size();
+    }
+
+    private record Seat(ClientHandler handler, int seat) {
+    }
+}
@@ -0,0 +1,190 @@
+package it.polimi.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Broadcasts the events of one match to its spectators.
+ * Every message is encoded once and the same buffer is queued for all subscribers;
+ * the writes happen on a small shared pool, so the match thread never blocks on a viewer.
+ * A subscriber whose queue overflows loses the queued events and gets a fresh snapshot instead;
+ * one that cannot take a write within the write timeout is disconnected, so stalled viewers
+ * cannot hold on to the writer threads.
+ */
+public class SpectatorHub {
+    static final int QUEUE_CAPACITY = 64;
+    static final long WRITE_TIMEOUT_MILLIS = Long.getLong("dama.spectator.write.timeout.ms", 5000);
+
+    private static final ExecutorService WRITERS = Executors.newFixedThreadPool(
+            Math.max(2, Runtime.getRuntime().availableProcessors() / 2), runnable -> {
+                Thread thread = new Thread(runnable, "spectator-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+    private static final ScheduledExecutorService DEADLINES = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "spectator-deadline");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final Supplier<String> snapshotSupplier;
+    private final long writeTimeoutMillis;
+    private volatile boolean closed = false;
+
+    /**
+     * @param snapshotSupplier gives the current state of the match as a protocol line
+     */
+    public SpectatorHub(Supplier<String> snapshotSupplier) {
+        this(snapshotSupplier, WRITE_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param writeTimeoutMillis how long one drain of a subscriber's queue may block before it is disconnected
+     */
+    public SpectatorHub(Supplier<String> snapshotSupplier, long writeTimeoutMillis) {
+        this.snapshotSupplier = snapshotSupplier;
+        this.writeTimeoutMillis = writeTimeoutMillis;
+    }
+
+    /**
+     * Adds a spectator; the first thing it receives is a snapshot of the match.
+     * Callers serialise this with their own publish calls so no event falls between the two.
+     */
+    public void subscribe(OutputStream out, Closeable connection) {
+        Subscriber subscriber = new Subscriber(out, connection);
+        subscribers.add(subscriber);
+        subscriber.resync(encode(snapshotSupplier.get()));
+    }
+
+    /**
+     * Queues a line for every spectator without waiting for the writes.
+     */
+    public void publish(String message) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        byte[] frame = encode(message);
+        // Built at most once per message and shared by every subscriber that overflowed
+        byte[] snapshot = null;
+        for (Subscriber subscriber : subscribers) {
+            if (!subscriber.offer(frame)) {
+                if (snapshot == null) {
+                    snapshot = encode(snapshotSupplier.get());
+                }
+                subscriber.resync(snapshot);
+            }
+        }
+    }
+
+    /**
+     * Disconnects every spectator once its queue has been written out.
+     */
+    public void close() {
+        closed = true;
+        for (Subscriber subscriber : subscribers) {
+            subscriber.schedule();
+        }
+    }
+
+    public int size() {
+        return subscribers.size();
+    }
+
+    private static byte[] encode(String message) {
+        return (message + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private final class Subscriber implements Runnable {
+        private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final OutputStream out;
+        private final Closeable connection;
+        private volatile boolean disconnected = false;
+
+        private Subscriber(OutputStream out, Closeable connection) {
+            this.out = out;
+            this.connection = connection;
+        }
+
+        /**
+         * @return false when the queue is full and the subscriber needs a snapshot instead
+         */
+        private boolean offer(byte[] frame) {
+            if (!queue.offer(frame)) {
+                return false;
+            }
+            schedule();
+            return true;
+        }
+
+        /**
+         * Too slow: drops what is queued and catches up with a snapshot, which already includes the dropped frames.
+         */
+        private void resync(byte[] snapshot) {
+            queue.clear();
+            queue.offer(snapshot);
+            schedule();
+        }
+
+        private void schedule() {
+            if (!disconnected && scheduled.compareAndSet(false, true)) {
+                WRITERS.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            // Closing the connection unblocks a write stuck on a spectator that stopped reading
+            ScheduledFuture<?> deadline = DEADLINES.schedule(this::disconnect, writeTimeoutMillis, TimeUnit.MILLISECONDS);
+            try {
+                byte[] frame;
+                while ((frame = queue.poll()) != null) {
+                    out.write(frame);
+                }
+                out.flush();
+            } catch (IOException e) {
+                disconnect();
+                return;
+            } finally {
+                deadline.cancel(false);
+            }
+            if (disconnected) {
+                return;
+            }
+
+            // Decided while still owning the flag, so no other drain can be writing
+            if (closed && queue.isEmpty()) {
+                disconnect();
+                return;
+            }
+            scheduled.set(false);
+            if (!queue.isEmpty() || closed) {
+                schedule();
+            }
+        }
+
+        private void disconnect() {
+            disconnected = true;
+            subscribers.remove(this);
+            try {
+                connection.close();
+            } catch (IOException ignored) {
+                // The spectator is already gone
+            }
+        }
+    }
+}
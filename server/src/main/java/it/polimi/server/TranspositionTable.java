@@ -0,0 +1,121 @@
+package it.polimi.server;
+
+import it.polimi.common.GameConfig;
+
+import java.util.Arrays;
+
+/**
+ * Transposition table shared, without locks, by every search of the server.
+ * Each entry is two longs: the packed data and the position key XORed with that data.
+ * Writers store both words with plain writes, so two threads writing the same slot can leave
+ * one's data next to the other's check word; a reader only accepts an entry whose check word
+ * XORed with its data gives back the key it probed for, which a torn pair fails except by
+ * a 2^-64 chance. A lost or rejected entry only costs a re-search.
+ * <p>
+ * The slot is chosen by the low bits of the key and overwritten unless it holds a deeper result
+ * for another position, so entries of the current search win over stale ones.
+ */
+public final class TranspositionTable {
+    /** What {@link #probe(long)} returns when the slot is empty. */
+    public static final long MISS = 0;
+    /** What {@link #probe(long)} returns when the slot belongs to another position or was torn. */
+    public static final long COLLISION = -1;
+
+    /** The stored score is exact. */
+    public static final int EXACT = 1;
+    /** The stored score is a lower bound: the search failed high. */
+    public static final int LOWER = 2;
+    /** The stored score is an upper bound: the search failed low. */
+    public static final int UPPER = 3;
+
+    private static final TranspositionTable SHARED =
+            new TranspositionTable(Integer.getInteger("dama.tt.mb", GameConfig.TRANSPOSITION_TABLE_MB));
+    private static final int ENTRY_BYTES = 2 * Long.BYTES;
+
+    // Data layout: move (16 bits) | score + SCORE_BIAS (22 bits) | depth (7 bits) | bound (2 bits)
+    private static final int SCORE_SHIFT = 16;
+    private static final int SCORE_BIAS = 1 << 21;
+    private static final int DEPTH_SHIFT = 38;
+    private static final int BOUND_SHIFT = 45;
+
+    private final long[] table;
+    private final int mask;
+
+    /**
+     * A table of at most sizeMb megabytes, rounded down to a power of two entries of 16 bytes.
+     */
+    public TranspositionTable(int sizeMb) {
+        if (sizeMb < 1 || sizeMb > 1024) {
+            throw new IllegalArgumentException("Transposition table size must be between 1 and 1024 MB: " + sizeMb);
+        }
+        int entries = Integer.highestOneBit((int) ((long) sizeMb * 1024 * 1024 / ENTRY_BYTES));
+        table = new long[2 * entries];
+        mask = entries - 1;
+    }
+
+    /**
+     * The table every CheckersAI of this server uses unless given its own; sized by the
+     * dama.tt.mb system property.
+     */
+    public static TranspositionTable shared() {
+        return SHARED;
+    }
+
+    /**
+     * The packed entry stored for the key, or {@link #MISS} or {@link #COLLISION}.
+     */
+    public long probe(long key) {
+        int index = index(key);
+        long data = table[index];
+        if (data == MISS) {
+            return MISS;
+        }
+        return (table[index + 1] ^ data) == key ? data : COLLISION;
+    }
+
+    /**
+     * Stores a search result; score must be within 2^21 of zero and depth below 128.
+     */
+    public void store(long key, int move, int score, int depth, int bound) {
+        int index = index(key);
+        long old = table[index];
+        if (old != MISS && depth(old) > depth && (table[index + 1] ^ old) != key) {
+            return;
+        }
+        long data = (move & 0xFFFFL) | (long) (score + SCORE_BIAS) << SCORE_SHIFT
+                | (long) depth << DEPTH_SHIFT | (long) bound << BOUND_SHIFT;
+        table[index] = data;
+        table[index + 1] = key ^ data;
+    }
+
+    /**
+     * Empties the table, e.g. between games; searches running meanwhile just miss more.
+     */
+    public void clear() {
+        Arrays.fill(table, 0);
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    public static int move(long entry) {
+        return (int) (entry & 0xFFFF);
+    }
+
+    public static int score(long entry) {
+        return (int) (entry >>> SCORE_SHIFT & (2 * SCORE_BIAS - 1)) - SCORE_BIAS;
+    }
+
+    public static int depth(long entry) {
+        return (int) (entry >>> DEPTH_SHIFT & 0x7F);
+    }
+
+    public static int bound(long entry) {
+        return (int) (entry >>> BOUND_SHIFT & 0x3);
+    }
+
+    private int index(long key) {
+        return ((int) key & mask) << 1;
+    }
+}
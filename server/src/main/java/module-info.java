@@ -0,0 +1,11 @@
+module DamaServer {
+    requires transitive DamaEngine;
+    requires java.management;
+    requires jdk.management;
+    requires jdk.net;
+    requires jdk.httpserver;
+    requires jdk.jfr;
+
+    opens it.polimi.server;
+    exports it.polimi.server;
+}
@@ -0,0 +1,147 @@
+package server;
+
+import it.polimi.server.AdmissionControl;
+import it.polimi.server.AdmissionControl.Decision;
+import it.polimi.server.MatchRegistry;
+import it.polimi.server.RatingService;
+import it.polimi.server.Server;
+import it.polimi.server.ServerContext;
+import it.polimi.server.ServerMetrics;
+import it.polimi.server.SessionRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per i limiti sulle partite contemporanee e la coda di attesa del server.
+ */
+class AdmissionControlTest {
+
+    private final ServerMetrics metrics = new ServerMetrics();
+    private final List<String> log = new ArrayList<>();
+
+    @Test
+    @DisplayName("Test partite avviate, accodate e respinte")
+    void testStartQueueReject() {
+        AdmissionControl admission = new AdmissionControl(2, 2, 1, 10, metrics);
+
+        assertEquals(Decision.STARTED, submit(admission, false, "a"));
+        assertEquals(Decision.STARTED, submit(admission, false, "b"));
+        assertEquals(Decision.QUEUED, submit(admission, false, "c"));
+        assertEquals(Decision.REJECTED, submit(admission, false, "d"));
+        assertEquals(List.of("start a", "start b", "reject d"), log);
+        assertEquals(1, metrics.getPendingMatches());
+        assertEquals(1, metrics.getMatchesRejected());
+        assertTrue(metrics.render().contains("dama_queue_wait_micros_count 0\n"));
+
+        admission.finished(false);
+        assertEquals(List.of("start a", "start b", "reject d", "start c"), log);
+        // Solo la partita rimasta in coda registra l'attesa
+        assertTrue(metrics.render().contains("dama_queue_wait_micros_count 1\n"));
+        assertEquals(2, admission.runningMatches());
+        assertEquals(0, admission.pendingMatches());
+    }
+
+    @Test
+    @DisplayName("Test limite separato per le partite contro la CPU")
+    void testCpuLimit() {
+        AdmissionControl admission = new AdmissionControl(3, 1, 5, 10, metrics);
+
+        assertEquals(Decision.STARTED, submit(admission, true, "cpu1"));
+        assertEquals(Decision.QUEUED, submit(admission, true, "cpu2"));
+        // La CPU in coda non blocca una partita tra persone
+        assertEquals(Decision.STARTED, submit(admission, false, "pvp"));
+
+        admission.finished(false);
+        assertEquals(1, admission.pendingMatches());
+        admission.finished(true);
+        assertEquals(List.of("start cpu1", "start pvp", "start cpu2"), log);
+    }
+
+    @Test
+    @DisplayName("Test coda svuotata durante il drain")
+    void testRejectPending() {
+        AdmissionControl admission = new AdmissionControl(1, 1, 5, 10, metrics);
+        submit(admission, false, "a");
+        submit(admission, false, "b");
+
+        assertEquals(1, admission.rejectPending());
+        assertEquals(Decision.REJECTED, submit(admission, false, "c"));
+        admission.finished(false);
+        assertEquals(List.of("start a", "reject b", "reject c"), log);
+    }
+
+    @Test
+    @DisplayName("Test risposta BUSY del server pieno")
+    void testServerReplyBusy() throws Exception {
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            Server server = new Server(serverSocket, new ServerContext(new SessionRegistry(), new MatchRegistry(),
+                    null, new RatingService(), null, new AdmissionControl(1, 1, 0, 7, metrics)));
+            new Thread(server::startServer).start();
+
+            try (Socket first = connect(serverSocket, "cpu")) {
+                // I saluti si leggono in parallelo: il secondo client arriva dopo che il primo ha il posto
+                assertEquals("1", reader(first).readLine());
+                try (Socket second = connect(serverSocket, "cpu")) {
+                    BufferedReader busy = reader(second);
+                    assertEquals("BUSY 7", busy.readLine());
+                    assertNull(busy.readLine());
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Test limite sulle connessioni che non hanno ancora salutato")
+    void testHandshakeLimit() throws Exception {
+        AdmissionControl admission = new AdmissionControl(10, 10, 10, 7, 1, metrics);
+        assertTrue(admission.startHandshake());
+        assertFalse(admission.startHandshake());
+        admission.handshakeFinished();
+        assertTrue(admission.startHandshake());
+        admission.handshakeFinished();
+
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            Server server = new Server(serverSocket, new ServerContext(new SessionRegistry(), new MatchRegistry(),
+                    null, new RatingService(), null, admission));
+            new Thread(server::startServer).start();
+
+            // Un client muto occupa l'unico posto; chi arriva dopo riceve BUSY senza aspettare il timeout del saluto
+            try (Socket silent = new Socket("localhost", serverSocket.getLocalPort());
+                 Socket second = connect(serverSocket, "cpu")) {
+                long start = System.nanoTime();
+                assertEquals("BUSY 7", reader(second).readLine());
+                assertTrue(System.nanoTime() - start < 2_000_000_000L);
+            }
+        }
+    }
+
+    private Decision submit(AdmissionControl admission, boolean cpu, String name) {
+        return admission.submit(cpu, () -> log.add("start " + name), () -> log.add("reject " + name));
+    }
+
+    private static Socket connect(ServerSocket serverSocket, String hello) throws IOException {
+        Socket socket = new Socket("localhost", serverSocket.getLocalPort());
+        socket.setSoTimeout(5000);
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream()));
+        writer.write(hello);
+        writer.newLine();
+        writer.flush();
+        return socket;
+    }
+
+    private static BufferedReader reader(Socket socket) throws IOException {
+        return new BufferedReader(new InputStreamReader(socket.getInputStream()));
+    }
+}
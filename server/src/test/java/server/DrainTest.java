@@ -0,0 +1,148 @@
+package server;
+
+import it.polimi.common.BoardSnapshot;
+import it.polimi.server.AdmissionControl;
+import it.polimi.server.GameRecord;
+import it.polimi.server.GameReplay;
+import it.polimi.server.MatchHandoff;
+import it.polimi.server.MatchRegistry;
+import it.polimi.server.RatingService;
+import it.polimi.server.Server;
+import it.polimi.server.ServerContext;
+import it.polimi.server.SessionRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.StandardSocketOptions;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Test per il drain del server e il passaggio delle partite in corso a un nuovo processo.
+ */
+class DrainTest {
+
+    @TempDir
+    Path handoffs;
+
+    private final List<AutoCloseable> resources = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (AutoCloseable resource : resources) {
+            resource.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Test partita contro la CPU ripresa dal nuovo server dopo il drain")
+    void testCpuMatchHandedOff() throws Exception {
+        Server old = start();
+        Server replacement = start();
+
+        String token;
+        try (Client client = new Client(old, "cpu anna")) {
+            assertEquals("1", client.read());
+            token = client.read().substring("SESSION ".length());
+            assertTrue(client.read().startsWith("MATCH "));
+
+            assertEquals(1, old.drain(Duration.ZERO));
+            assertEquals(0, old.context().matches().size());
+            assertTrue(old.serverSocket().isClosed());
+        }
+
+        try (Client resumed = new Client(replacement, "resume " + token)) {
+            assertEquals("1", resumed.read());
+            String snapshot = resumed.read();
+            assertTrue(snapshot.startsWith(BoardSnapshot.MESSAGE_PREFIX));
+            assertEquals(12, BoardSnapshot.fromMessage(snapshot).countPieces(true));
+            assertEquals(1, replacement.context().matches().size());
+        }
+    }
+
+    @Test
+    @DisplayName("Test drain senza partite in corso")
+    void testDrainWithoutMatches() throws Exception {
+        Server server = start();
+        assertEquals(0, server.drain(Duration.ofSeconds(5)));
+        assertTrue(server.serverSocket().isClosed());
+        assertTrue(MatchHandoff.claimAll(handoffs).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Test lettura e scrittura dello stato consegnato")
+    void testHandoffRoundTrip() throws IOException {
+        BoardSnapshot position = new BoardSnapshot(GameReplay.initialSquares(), true, 3, BoardSnapshot.NO_SQUARE,
+                5, 120, 80);
+        GameRecord game = new GameRecord(0, 1_700_000_000_000L, GameRecord.ABORTED, "anna", RatingService.CPU,
+                120, 80, List.of(new GameRecord.Ply(21, 17, 40), new GameRecord.Ply(10, 14, 3)));
+        MatchHandoff handoff = new MatchHandoff(position, "gray-token", null, game);
+
+        assertEquals(handoff, MatchHandoff.decode(new ByteArrayInputStream(handoff.encode())));
+
+        handoff.write(handoffs);
+        List<MatchHandoff> claimed = MatchHandoff.claimAll(handoffs);
+        assertEquals(List.of(handoff), claimed);
+        assertTrue(claimed.get(0).isCpuMatch());
+        assertTrue(MatchHandoff.claimAll(handoffs).isEmpty(), "each handoff is claimed once");
+    }
+
+    @Test
+    @DisplayName("Test due processi in ascolto sulla stessa porta durante il deploy")
+    void testPortSharedDuringDeploy() throws IOException {
+        try (ServerSocket probe = new ServerSocket()) {
+            assumeTrue(probe.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT));
+        }
+        try (ServerSocket old = Server.bind(0); ServerSocket replacement = Server.bind(old.getLocalPort())) {
+            assertEquals(old.getLocalPort(), replacement.getLocalPort());
+        }
+    }
+
+    private Server start() throws IOException {
+        ServerSocket socket = Server.bind(0);
+        resources.add(socket);
+        Server server = new Server(socket, new ServerContext(new SessionRegistry(), new MatchRegistry(), null,
+                new RatingService(), handoffs, AdmissionControl.fromSystemProperties()));
+        new Thread(server::startServer).start();
+        return server;
+    }
+
+    private static final class Client implements AutoCloseable {
+        private final Socket socket;
+        private final BufferedReader reader;
+
+        Client(Server server, String hello) throws IOException {
+            socket = new Socket("localhost", server.serverSocket().getLocalPort());
+            socket.setSoTimeout(5000);
+            reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream()));
+            writer.write(hello);
+            writer.newLine();
+            writer.flush();
+        }
+
+        String read() throws IOException {
+            return reader.readLine();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package server;
+
+import it.polimi.common.BoardSnapshot;
+import it.polimi.model.PieceType;
+import it.polimi.server.GameAnalyzer;
+import it.polimi.server.GameRecord;
+import it.polimi.server.GameRecordStore;
+import it.polimi.server.GameReplay;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per la ricostruzione delle posizioni e l'analisi delle partite registrate.
+ */
+class GameAnalyzerTest {
+
+    private static final long DAY = LocalDate.of(2024, 3, 1).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+
+    @TempDir
+    Path directory;
+
+    // Indici BoardSnapshot: 21 = (2,5), 17 = (3,4), 10 = (5,2), 14 = (4,3), 22 = (4,5), 18 = (5,4)
+    // Al terzo ply il bianco ignora la presa 17x10 e lascia catturare la pedina in 17
+    private static GameRecord gameWithCapture(long gameId, long startedAt) {
+        return new GameRecord(gameId, startedAt, "END1", "anna", "bruno", 0, 0, List.of(
+                new GameRecord.Ply(21, 17, 0),
+                new GameRecord.Ply(10, 14, 0),
+                new GameRecord.Ply(22, 18, 0),
+                new GameRecord.Ply(14, 21, 0)));
+    }
+
+    // Partita secondo le regole del server: al terzo ply il bianco gioca 21-17 e perde una pedina
+    private static GameRecord gameWithBlunder(long gameId, long startedAt) {
+        return new GameRecord(gameId, startedAt, "END1", "anna", "bruno", 0, 0, List.of(
+                new GameRecord.Ply(22, 18, 0),
+                new GameRecord.Ply(9, 13, 0),
+                new GameRecord.Ply(20, 16, 0)));
+    }
+
+    @Test
+    @DisplayName("Test posizione ricostruita al ply N")
+    void testPositionAt() {
+        GameReplay replay = new GameReplay(gameWithCapture(1, DAY));
+
+        BoardSnapshot start = replay.positionAt(0);
+        assertEquals(12, start.countPieces(true));
+        assertEquals(12, start.countPieces(false));
+        assertTrue(start.isWhiteToMove());
+
+        BoardSnapshot beforeCapture = replay.positionAt(3);
+        assertFalse(beforeCapture.isWhiteToMove());
+        assertEquals(3, beforeCapture.getMovesWithoutCapture());
+        assertEquals(PieceType.WHITE, beforeCapture.getPieceType(17));
+
+        BoardSnapshot end = replay.positionAt(4);
+        assertNull(end.getPieceType(17));
+        assertNull(end.getPieceType(14));
+        assertEquals(PieceType.GRAY, end.getPieceType(21));
+        assertEquals(11, end.countPieces(false));
+        assertEquals(0, end.getMovesWithoutCapture());
+        assertTrue(end.isWhiteToMove());
+    }
+
+    @Test
+    @DisplayName("Test snapshot periodici equivalenti alla ricostruzione completa")
+    void testCheckpointsMatchFullReplay() {
+        GameRecord record = gameWithCapture(1, DAY);
+        GameReplay everyPly = new GameReplay(record, 1);
+        GameReplay sparse = new GameReplay(record, 3);
+        for (int ply = 0; ply <= record.moves().size(); ply++) {
+            assertEquals(everyPly.positionAt(ply), sparse.positionAt(ply), "ply " + ply);
+        }
+        assertThrows(IllegalArgumentException.class, () -> sparse.positionAt(5));
+    }
+
+    @Test
+    @DisplayName("Test partita con mossa da casella vuota")
+    void testInvalidPly() {
+        GameRecord record = new GameRecord(2, DAY, "DRAW", "anna", "bruno", 0, 0, List.of(
+                new GameRecord.Ply(16, 12, 0)));
+        assertThrows(IllegalArgumentException.class, () -> new GameReplay(record));
+    }
+
+    @Test
+    @DisplayName("Test segnalazione di un errore grave")
+    void testBlunderFlagged() {
+        GameAnalyzer.Analysis analysis = new GameAnalyzer().analyze(gameWithBlunder(1, DAY));
+
+        assertEquals(3, analysis.plies());
+        GameAnalyzer.Blunder blunder = analysis.blunders().stream()
+                .filter(b -> b.ply() == 2).findFirst().orElseThrow();
+        assertTrue(blunder.white());
+        assertEquals("21-17", blunder.played());
+        assertEquals("26-23", blunder.suggested());
+        assertTrue(blunder.scoreLost() >= GameAnalyzer.BLUNDER_THRESHOLD);
+        assertEquals("26-23", blunder.bestLine().get(0));
+        assertTrue(blunder.bestLine().size() > 1);
+    }
+
+    @Test
+    @DisplayName("Test analisi ripetibile della stessa partita")
+    void testAnalysisReproducible() {
+        GameRecord record = gameWithBlunder(1, DAY);
+        assertEquals(new GameAnalyzer().analyze(record), new GameAnalyzer().analyze(record));
+    }
+
+    @Test
+    @DisplayName("Test analisi in parallelo delle partite di un giorno")
+    void testAnalyzeDay() throws Exception {
+        try (GameRecordStore store = GameRecordStore.open(directory)) {
+            for (int i = 0; i < 6; i++) {
+                store.append(gameWithBlunder(store.nextGameId(), DAY + i * 60_000L));
+            }
+            store.append(gameWithBlunder(store.nextGameId(), DAY - 1));
+            store.append(new GameRecord(store.nextGameId(), DAY + 1, "DRAW", "anna", "bruno", 0, 0,
+                    List.of(new GameRecord.Ply(16, 12, 0)))).join();
+
+            List<GameAnalyzer.Analysis> analyses = GameAnalyzer.analyzeDay(store, LocalDate.of(2024, 3, 1), ZoneOffset.UTC, 4);
+
+            // La partita del giorno prima è esclusa, quella non ricostruibile viene saltata
+            assertEquals(6, analyses.size());
+            for (GameAnalyzer.Analysis analysis : analyses) {
+                assertTrue(analysis.blunders().stream().anyMatch(b -> b.ply() == 2));
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package server;
+
+import it.polimi.server.GameRecord;
+import it.polimi.server.GameRecordStore;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per l'archivio append-only delle partite.
+ */
+class GameRecordStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private static GameRecord game(long id, String gray, String white) {
+        return new GameRecord(id, 1_700_000_000_000L, "END1", gray, white, 1234, 987,
+                List.of(new GameRecord.Ply(21, 17, 35), new GameRecord.Ply(9, 13, 12), new GameRecord.Ply(17, 10, 0)));
+    }
+
+    @Test
+    @DisplayName("Test codifica compatta di una partita")
+    void testEncodeDecode() {
+        GameRecord record = game(42, "anna", "CPU");
+        byte[] encoded = record.encode();
+
+        assertEquals(record, GameRecord.decode(ByteBuffer.wrap(encoded)));
+        assertTrue(encoded.length < 50, "Codifica troppo lunga: " + encoded.length);
+        assertThrows(IllegalArgumentException.class, () -> GameRecord.decode(ByteBuffer.wrap(encoded, 0, 20)));
+    }
+
+    @Test
+    @DisplayName("Test scrittura e ricerca per id e giocatore")
+    void testAppendAndFind() throws Exception {
+        try (GameRecordStore store = GameRecordStore.open(directory)) {
+            long first = store.nextGameId();
+            long second = store.nextGameId();
+            CompletableFuture<Void> a = store.append(game(first, "anna", "bruno"));
+            CompletableFuture<Void> b = store.append(game(second, "bruno", "CPU"));
+            CompletableFuture.allOf(a, b).get();
+
+            assertEquals(game(first, "anna", "bruno"), store.find(first).orElseThrow());
+            assertEquals(List.of(first, second), store.gamesOf("bruno"));
+            // I nomi condivisi non vengono indicizzati
+            assertEquals(List.of(), store.gamesOf("CPU"));
+            assertTrue(store.find(999).isEmpty());
+        }
+    }
+
+    @Test
+    @DisplayName("Test ricostruzione dell'indice alla riapertura")
+    void testReopenRebuildsIndex() throws Exception {
+        long id;
+        try (GameRecordStore store = GameRecordStore.open(directory, 200)) {
+            for (int i = 0; i < 10; i++) {
+                store.append(game(store.nextGameId(), "anna", "player" + i));
+            }
+            id = store.nextGameId();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertTrue(files.count() > 1, "I segmenti dovrebbero essere più di uno");
+        }
+
+        try (GameRecordStore store = GameRecordStore.open(directory, 200)) {
+            assertEquals(10, store.size());
+            assertEquals(10, store.gamesOf("anna").size());
+            assertEquals("player4", store.find(5).orElseThrow().whitePlayer());
+            assertEquals(id, store.nextGameId());
+        }
+    }
+
+    @Test
+    @DisplayName("Test scarto di una scrittura interrotta")
+    void testTornTailIsTruncated() throws Exception {
+        try (GameRecordStore store = GameRecordStore.open(directory)) {
+            store.append(game(store.nextGameId(), "anna", "bruno")).get();
+        }
+        Path segment = directory.resolve("games-000001.log");
+        long validSize = Files.size(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 40, 1, 2, 3}));
+        }
+
+        try (GameRecordStore store = GameRecordStore.open(directory)) {
+            assertEquals(1, store.size());
+            assertEquals(validSize, Files.size(segment));
+            store.append(game(store.nextGameId(), "carla", "bruno")).get();
+            assertEquals(List.of(2L), store.gamesOf("carla"));
+        }
+    }
+
+    @Test
+    @DisplayName("Test append dopo la chiusura")
+    void testAppendAfterClose() throws IOException {
+        GameRecordStore store = GameRecordStore.open(directory);
+        store.close();
+        assertThrows(IllegalStateException.class, () -> store.append(game(1, "anna", "bruno")));
+    }
+}
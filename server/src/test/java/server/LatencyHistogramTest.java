@@ -0,0 +1,66 @@
+package server;
+
+import it.polimi.server.LatencyHistogram;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per l'istogramma delle latenze.
+ */
+class LatencyHistogramTest {
+
+    @Test
+    @DisplayName("Test istogramma vuoto")
+    void testEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.percentile(0.99));
+        assertEquals(0.0, histogram.mean());
+    }
+
+    @Test
+    @DisplayName("Test percentili con errore relativo limitato")
+    void testPercentilesWithinPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value);
+        }
+
+        assertEquals(100_000, histogram.count());
+        assertEquals(100_000, histogram.max());
+        assertEquals(50_000.5, histogram.mean(), 0.001);
+        assertRelativeError(50_000, histogram.percentile(0.5));
+        assertRelativeError(99_000, histogram.percentile(0.99));
+        assertEquals(100_000, histogram.percentile(1.0));
+    }
+
+    @Test
+    @DisplayName("Test valori piccoli esatti e negativi")
+    void testSmallAndNegativeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(3);
+        histogram.record(3);
+        histogram.record(7);
+
+        assertEquals(4, histogram.count());
+        assertEquals(0, histogram.percentile(0.25));
+        assertEquals(3, histogram.percentile(0.5));
+        assertEquals(7, histogram.percentile(1.0));
+    }
+
+    @Test
+    @DisplayName("Test valori molto grandi")
+    void testLargeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, histogram.percentile(0.5));
+    }
+
+    private static void assertRelativeError(long expected, long actual) {
+        assertTrue(Math.abs(actual - expected) <= expected * 0.07,
+                "Atteso circa " + expected + " ma era " + actual);
+    }
+}
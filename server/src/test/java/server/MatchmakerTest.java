@@ -0,0 +1,90 @@
+package server;
+
+import it.polimi.server.Matchmaker;
+import it.polimi.server.Rating;
+import it.polimi.server.RatingService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per l'abbinamento dei giocatori in base al punteggio.
+ */
+class MatchmakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final List<String> pairs = new ArrayList<>();
+
+    private RatingService ratingsWith(String strong, int wins) {
+        RatingService ratings = new RatingService();
+        for (int i = 0; i < wins; i++) {
+            ratings.recordGame(strong, "rival" + i, "END1");
+        }
+        return ratings;
+    }
+
+    private Matchmaker matchmaker(RatingService ratings) {
+        return new Matchmaker(ratings, (first, second) -> pairs.add(first.player() + "-" + second.player()),
+                now::get, false);
+    }
+
+    @Test
+    @DisplayName("Test abbinamento immediato tra giocatori vicini")
+    void testPairsCloseRatings() {
+        try (Matchmaker matchmaker = matchmaker(new RatingService())) {
+            matchmaker.offer(new Socket(), "anna");
+            assertEquals(1, matchmaker.waitingCount());
+            matchmaker.offer(new Socket(), "bruno");
+
+            assertEquals(List.of("anna-bruno"), pairs);
+            assertEquals(0, matchmaker.waitingCount());
+        }
+    }
+
+    @Test
+    @DisplayName("Test giocatori lontani abbinati quando la finestra si allarga")
+    void testWindowWidensWithWaiting() {
+        RatingService ratings = ratingsWith("anna", 6);
+        Rating anna = ratings.get("anna");
+        assertTrue(anna.rating() - 1500 > Matchmaker.BASE_WINDOW);
+
+        try (Matchmaker matchmaker = matchmaker(ratings)) {
+            matchmaker.offer(new Socket(), "anna");
+            matchmaker.offer(new Socket(), "bruno");
+            assertTrue(pairs.isEmpty());
+
+            matchmaker.sweep();
+            assertTrue(pairs.isEmpty());
+
+            long seconds = (long) Math.ceil((anna.rating() - 1500 - Matchmaker.BASE_WINDOW) / Matchmaker.WINDOW_GROWTH);
+            now.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+            matchmaker.sweep();
+            assertEquals(List.of("anna-bruno"), pairs);
+        }
+    }
+
+    @Test
+    @DisplayName("Test scelta dell'avversario più vicino")
+    void testPrefersClosestRating() {
+        // rival0 ha appena perso contro anna: resta fuori dalla finestra iniziale di bruno
+        RatingService ratings = ratingsWith("anna", 1);
+        try (Matchmaker matchmaker = matchmaker(ratings)) {
+            matchmaker.offer(new Socket(), "rival0");
+            matchmaker.offer(new Socket(), "bruno");
+            assertTrue(pairs.isEmpty());
+
+            // Dopo un secondo entrambi sono nella finestra di carla: vince il punteggio più vicino
+            now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+            matchmaker.offer(new Socket(), "carla");
+            assertEquals(List.of("bruno-carla"), pairs);
+            assertEquals(1, matchmaker.waitingCount());
+        }
+    }
+}
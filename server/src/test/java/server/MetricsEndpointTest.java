@@ -0,0 +1,71 @@
+package server;
+
+import it.polimi.server.MetricsEndpoint;
+import it.polimi.server.SearchResult;
+import it.polimi.server.ServerMetrics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per l'esposizione delle metriche del server.
+ */
+class MetricsEndpointTest {
+
+    @Test
+    @DisplayName("Test contatori e latenze nel testo esposto")
+    void testRender() {
+        ServerMetrics metrics = new ServerMetrics();
+        metrics.matchStarted();
+        metrics.moveProcessed(2_000_000);
+        metrics.moveRejected();
+        metrics.aiSearched(1_000_000, 500);
+
+        String text = metrics.render();
+        assertTrue(text.contains("dama_matches_active 1\n"));
+        assertTrue(text.contains("dama_moves_processed_total 1\n"));
+        assertTrue(text.contains("dama_moves_rejected_total 1\n"));
+        assertTrue(text.contains("dama_ai_nodes_total 500\n"));
+        assertTrue(text.contains("dama_move_process_micros_max 2000\n"));
+        assertEquals(500_000.0, metrics.getAiNodesPerSecond(), 0.1);
+
+        metrics.aiSearched(new SearchResult("5 2 4 3", 12, 8, 1500, 1_000_000, List.of("5 2 4 3"), 400, 100, 3));
+        text = metrics.render();
+        assertTrue(text.contains("dama_ai_nodes_total 2000\n"));
+        assertTrue(text.contains("dama_ai_search_depth_max 8\n"));
+        assertTrue(text.contains("dama_ai_tt_hits_total 100\n"));
+        assertTrue(text.contains("dama_ai_tt_collisions_total 3\n"));
+        assertEquals(0.25, metrics.getAiTableHitRate(), 1e-9);
+
+        metrics.matchEnded();
+        assertEquals(0, metrics.getActiveMatches());
+    }
+
+    @Test
+    @DisplayName("Test endpoint HTTP /metrics")
+    void testHttpEndpoint() throws IOException {
+        ServerMetrics metrics = new ServerMetrics();
+        metrics.socketError();
+        MetricsEndpoint endpoint = new MetricsEndpoint(metrics, 0);
+        endpoint.start();
+        try {
+            HttpURLConnection connection = (HttpURLConnection)
+                    URI.create("http://localhost:" + endpoint.getPort() + "/metrics").toURL().openConnection();
+            assertEquals(200, connection.getResponseCode());
+            try (InputStream in = connection.getInputStream()) {
+                String body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                assertTrue(body.contains("dama_socket_errors_total 1"));
+            }
+        } finally {
+            endpoint.stop();
+        }
+    }
+}
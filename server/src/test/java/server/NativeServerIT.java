@@ -0,0 +1,137 @@
+package server;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Smoke test dell'eseguibile nativo del server, eseguito da failsafe con il profilo native.
+ */
+class NativeServerIT {
+    private static final long START_TIMEOUT_MILLIS = 10_000;
+
+    @TempDir
+    Path work;
+
+    @Test
+    @DisplayName("Test avvio dell'eseguibile nativo, inizio partita e drain su SIGTERM")
+    void testNativeServer() throws Exception {
+        String image = System.getProperty("dama.native.image");
+        assumeTrue(image != null && Files.isExecutable(Path.of(image)), "native image not built");
+
+        int port = freePort();
+        int metricsPort = freePort();
+        Path handoffs = work.resolve("handoff");
+        long launched = System.nanoTime();
+        Process server = new ProcessBuilder(image,
+                "-Ddama.port=" + port,
+                "-Ddama.metrics.port=" + metricsPort,
+                "-Ddama.records.dir=" + work.resolve("games"),
+                "-Ddama.ratings.file=" + work.resolve("ratings.tsv"),
+                "-Ddama.handoff.dir=" + handoffs,
+                "-Ddama.drain.seconds=0")
+                .redirectErrorStream(true)
+                .redirectOutput(work.resolve("server.log").toFile())
+                .start();
+        try (Socket gray = connect(port); Socket white = connect(port)) {
+            send(gray, "wait");
+            send(white, "wait");
+            List<String> grayLines = read(gray, 3);
+            long startupMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - launched);
+            List<String> whiteLines = read(white, 4);
+            assertEquals("1", grayLines.get(0));
+            assertTrue(grayLines.get(1).startsWith("SESSION "));
+            assertTrue(grayLines.get(2).startsWith("MATCH "));
+            assertEquals("2", whiteLines.get(0));
+            assertEquals("PING", whiteLines.get(3), "white moves first");
+
+            String metrics;
+            try (InputStream in = URI.create("http://localhost:" + metricsPort + "/metrics").toURL().openStream()) {
+                metrics = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            assertTrue(metrics.contains("dama_matches_active 1\n"));
+            System.out.println("Native server started a match " + startupMillis + " ms after launch, "
+                    + residentSet(server) + " resident");
+
+            // SIGTERM: lo shutdown hook deve girare anche nell'eseguibile nativo
+            server.destroy();
+            assertTrue(server.waitFor(30, TimeUnit.SECONDS), "server did not exit on SIGTERM");
+        } finally {
+            server.destroyForcibly();
+        }
+        try (Stream<Path> files = Files.list(handoffs)) {
+            assertEquals(1, files.filter(file -> file.toString().endsWith(".handoff")).count(),
+                    "the match in progress is handed off");
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static Socket connect(int port) throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + START_TIMEOUT_MILLIS;
+        while (true) {
+            try {
+                Socket socket = new Socket("localhost", port);
+                socket.setSoTimeout(5000);
+                return socket;
+            } catch (ConnectException e) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(5);
+            }
+        }
+    }
+
+    private static void send(Socket socket, String line) throws IOException {
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+        writer.write(line);
+        writer.newLine();
+        writer.flush();
+    }
+
+    private static List<String> read(Socket socket, int lines) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        String[] read = new String[lines];
+        for (int i = 0; i < lines; i++) {
+            read[i] = reader.readLine();
+        }
+        return List.of(read);
+    }
+
+    private static String residentSet(Process process) throws IOException {
+        Path status = Path.of("/proc/" + process.pid() + "/status");
+        if (!Files.exists(status)) {
+            return "unknown";
+        }
+        try (Stream<String> lines = Files.lines(status)) {
+            return lines.filter(line -> line.startsWith("VmRSS:"))
+                    .map(line -> line.substring("VmRSS:".length()).trim())
+                    .findFirst().orElse("unknown");
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package server;
+
+import it.polimi.server.OutboundBatch;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per l'accodamento dei messaggi di un turno.
+ */
+class OutboundBatchTest {
+
+    /**
+     * Writer che conta le chiamate a flush.
+     */
+    private static class CountingWriter extends StringWriter {
+        int flushes = 0;
+
+        @Override
+        public void flush() {
+            flushes++;
+            super.flush();
+        }
+    }
+
+    @Test
+    @DisplayName("Test un solo flush per turno")
+    void testSingleFlushPerSeat() throws IOException {
+        OutboundBatch batch = new OutboundBatch(2);
+        CountingWriter writer = new CountingWriter();
+
+        batch.add(1, "0 5 1 4 NORMAL");
+        batch.add(1, "1 2 3 4 END1");
+        batch.add(1, "PING");
+
+        assertTrue(batch.flush(1, writer));
+        String separator = System.lineSeparator();
+        assertEquals("0 5 1 4 NORMAL" + separator + "1 2 3 4 END1" + separator + "PING" + separator, writer.toString());
+        assertEquals(1, writer.flushes);
+        assertFalse(batch.hasPending(1));
+    }
+
+    @Test
+    @DisplayName("Test posti indipendenti e coda vuota")
+    void testSeatsAreIndependent() throws IOException {
+        OutboundBatch batch = new OutboundBatch(2);
+        CountingWriter writer = new CountingWriter();
+
+        batch.add(2, "PING");
+        assertFalse(batch.flush(1, writer));
+        assertEquals(0, writer.flushes);
+        assertTrue(batch.hasPending(2));
+
+        batch.discard(2);
+        assertFalse(batch.hasPending(2));
+    }
+
+    @Test
+    @DisplayName("Test coda svuotata anche se la scrittura fallisce")
+    void testQueueClearedOnError() {
+        OutboundBatch batch = new OutboundBatch(2);
+        Writer broken = new Writer() {
+            @Override
+            public void write(char[] cbuf, int off, int len) throws IOException {
+                throw new IOException("broken pipe");
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        batch.add(1, "PING");
+        assertThrows(IOException.class, () -> batch.flush(1, broken));
+        assertFalse(batch.hasPending(1));
+    }
+}
@@ -0,0 +1,133 @@
+package server;
+
+import it.polimi.model.MoveType;
+import it.polimi.server.GameRecord;
+import it.polimi.server.GameRecordStore;
+import it.polimi.server.PdnConverter;
+import it.polimi.server.PdnGame;
+import it.polimi.server.PdnReader;
+import it.polimi.server.PdnWriter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per import/export in formato PDN.
+ */
+class PdnTest {
+
+    @TempDir
+    Path directory;
+
+    // Indici BoardSnapshot: 21 = (2,5), 17 = (3,4), 10 = (5,2), 14 = (4,3), 7 = (6,1)
+    private static GameRecord gameWithMultiJump() {
+        return gameWithMultiJump(7);
+    }
+
+    private static GameRecord gameWithMultiJump(long gameId) {
+        return new GameRecord(gameId, 1_700_000_000_000L, "END2", "anna", "bruno", 0, 0, List.of(
+                new GameRecord.Ply(21, 17, 0),
+                new GameRecord.Ply(9, 14, 0),
+                new GameRecord.Ply(17, 10, 0),
+                new GameRecord.Ply(10, 1, 0)));
+    }
+
+    @Test
+    @DisplayName("Test scrittura PDN con presa multipla")
+    void testWriteJoinsMultiJump() throws IOException {
+        StringWriter out = new StringWriter();
+        new PdnWriter(out).write(gameWithMultiJump());
+
+        String text = out.toString();
+        assertTrue(text.contains("[White \"bruno\"]"));
+        assertTrue(text.contains("[Black \"anna\"]"));
+        assertTrue(text.contains("[Result \"1-0\"]"));
+        assertTrue(text.contains("1. 22-18 10-15 2. 18x11x2 1-0"), text);
+    }
+
+    @Test
+    @DisplayName("Test andata e ritorno record -> PDN -> record")
+    void testRoundTrip() throws IOException {
+        StringWriter out = new StringWriter();
+        PdnWriter writer = new PdnWriter(out);
+        writer.write(gameWithMultiJump());
+        writer.write(gameWithMultiJump());
+
+        PdnReader reader = new PdnReader(new StringReader(out.toString()));
+        PdnGame first = reader.next();
+        assertNotNull(reader.next());
+        assertNull(reader.next());
+
+        GameRecord back = first.toRecord(7);
+        GameRecord original = gameWithMultiJump();
+        assertEquals(original.moves(), back.moves());
+        assertEquals(original.result(), back.result());
+        assertEquals(original.grayPlayer(), back.grayPlayer());
+        assertEquals(original.whitePlayer(), back.whitePlayer());
+    }
+
+    @Test
+    @DisplayName("Test lettura con commenti, varianti e annotazioni")
+    void testReaderSkipsNoise() throws IOException {
+        String pdn = """
+                [Event "Torneo"]
+                [Black "x \\"y\\""]
+                ; commento di riga
+                1. 22-18 {apertura} 10-15 (1... 9-13 2. 18-14) 2. 18x11! 7x14?
+                3. 21-17 *
+
+                1. 23-19 0-1
+                """;
+        PdnReader reader = new PdnReader(new StringReader(pdn));
+
+        PdnGame game = reader.next();
+        assertEquals("x \"y\"", game.tags().get("Black"));
+        assertEquals("*", game.result());
+        assertEquals(5, game.moves().size());
+        PdnGame.Move capture = game.moves().get(2);
+        assertEquals(MoveType.KILL, capture.type());
+        assertEquals(List.of(18, 11), capture.squares());
+        assertEquals(3, capture.x(0));
+        assertEquals(4, capture.y(0));
+
+        PdnGame second = reader.next();
+        assertEquals("0-1", second.result());
+        assertEquals(GameRecord.ABORTED, game.toRecord(1).result());
+        assertEquals("END1", second.toRecord(2).result());
+        assertNull(reader.next());
+    }
+
+    @Test
+    @DisplayName("Test errore su mossa non valida")
+    void testMalformedMove() {
+        PdnReader reader = new PdnReader(new StringReader("1. 22-40 *"));
+        IOException error = assertThrows(IOException.class, reader::next);
+        assertTrue(error.getMessage().contains("line 1"));
+    }
+
+    @Test
+    @DisplayName("Test conversione in blocco archivio <-> PDN")
+    void testBulkConversion() throws Exception {
+        StringWriter out = new StringWriter();
+        try (GameRecordStore store = GameRecordStore.open(directory.resolve("a"))) {
+            for (int i = 0; i < 5; i++) {
+                store.append(gameWithMultiJump(store.nextGameId())).get();
+            }
+            assertEquals(5, PdnConverter.exportAll(store, out));
+        }
+
+        try (GameRecordStore store = GameRecordStore.open(directory.resolve("b"))) {
+            assertEquals(5, PdnConverter.importAll(new StringReader(out.toString()), store));
+            assertEquals(5, store.size());
+            assertEquals(gameWithMultiJump().moves(), store.find(3).orElseThrow().moves());
+        }
+    }
+}
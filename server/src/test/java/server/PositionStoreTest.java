@@ -0,0 +1,94 @@
+package server;
+
+import it.polimi.common.BoardSnapshot;
+import it.polimi.model.Position;
+import it.polimi.server.BookBuilder;
+import it.polimi.server.CheckersAI;
+import it.polimi.server.PositionStore;
+import it.polimi.server.SearchResult;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per il libro delle aperture mappato in memoria.
+ */
+class PositionStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Test scrittura e ricerca per chiave")
+    void testWriteAndFind() throws IOException {
+        Path file = directory.resolve("book.dat");
+        PositionStore.write(file, List.of(
+                new PositionStore.Entry(300, 0xFFFF, 8, -120),
+                new PositionStore.Entry(-5, 17, 10, 42),
+                new PositionStore.Entry(Long.MAX_VALUE, 1, 1, 0)));
+        assertEquals(16 + 3 * 16, Files.size(file));
+
+        PositionStore store = PositionStore.open(file);
+        assertEquals(3, store.size());
+        long index = store.find(300);
+        assertEquals(0xFFFF, store.move(index));
+        assertEquals(8, store.depth(index));
+        assertEquals(-120, store.score(index));
+        assertEquals(42, store.score(store.find(-5)));
+        assertEquals(Long.MAX_VALUE, store.key(store.find(Long.MAX_VALUE)));
+        assertEquals(-1, store.find(7));
+        assertThrows(IndexOutOfBoundsException.class, () -> store.move(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> store.move(-1));
+
+        assertThrows(IllegalArgumentException.class, () -> PositionStore.write(file,
+                List.of(new PositionStore.Entry(1, 1, 1, 1), new PositionStore.Entry(1, 2, 1, 1))));
+        PositionStore.write(file, List.of());
+        assertEquals(-1, PositionStore.open(file).find(300));
+    }
+
+    @Test
+    @DisplayName("Test file troncato o non valido")
+    void testInvalidFile() throws IOException {
+        Path file = directory.resolve("book.dat");
+        PositionStore.write(file, List.of(new PositionStore.Entry(1, 1, 1, 1), new PositionStore.Entry(2, 1, 1, 1)));
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+        assertThrows(IOException.class, () -> PositionStore.open(file));
+        Files.writeString(file, "not a book at all");
+        assertThrows(IOException.class, () -> PositionStore.open(file));
+    }
+
+    @Test
+    @DisplayName("Test CheckersAI gioca dal libro senza cercare")
+    void testBookMove() throws IOException {
+        Path file = directory.resolve("book.dat");
+        List<PositionStore.Entry> entries = BookBuilder.build(2, 2);
+        PositionStore.write(file, entries);
+        PositionStore book = PositionStore.open(file);
+        assertEquals(entries.size(), book.size());
+
+        Position initial = Position.initial();
+        long index = book.find(initial.key());
+        assertTrue(index >= 0);
+        CheckersAI ai = new CheckersAI(initial.toBoard(), true, 2);
+        ai.setBook(book);
+        SearchResult result = ai.search(BoardSnapshot.NO_SQUARE);
+        assertEquals(Position.toProtocol(book.move(index)), result.move());
+        assertEquals(0, result.nodes());
+        assertEquals(2, result.depth());
+
+        // Una posizione fuori dal libro si cerca come sempre
+        Position unknown = Position.parse("g..gg......g....gww...w.....w..w g");
+        CheckersAI searching = new CheckersAI(unknown.toBoard(), false, 2);
+        searching.setBook(book);
+        assertTrue(searching.search(BoardSnapshot.NO_SQUARE).nodes() > 0);
+    }
+}
@@ -0,0 +1,112 @@
+package server;
+
+import it.polimi.server.Rating;
+import it.polimi.server.RatingService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per il calcolo e la persistenza dei punteggi Glicko-2.
+ */
+class RatingServiceTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Test esempio del documento Glicko-2")
+    void testGlickmanExample() {
+        Rating player = new Rating(1500, 200, 0.06, 0);
+        Rating[] opponents = {new Rating(1400, 30, 0.06, 0), new Rating(1550, 100, 0.06, 0), new Rating(1700, 300, 0.06, 0)};
+
+        Rating updated = RatingService.rate(player, opponents, new double[]{1, 0, 0});
+
+        assertEquals(1464.06, updated.rating(), 0.01);
+        assertEquals(151.52, updated.deviation(), 0.01);
+        assertEquals(0.05999, updated.volatility(), 0.00001);
+        assertEquals(3, updated.games());
+    }
+
+    @Test
+    @DisplayName("Test aggiornamento a fine partita")
+    void testRecordGame() {
+        RatingService ratings = new RatingService();
+
+        ratings.recordGame("anna", "bruno", "END1");
+        assertTrue(ratings.get("anna").rating() > 1500);
+        assertTrue(ratings.get("bruno").rating() < 1500);
+        assertEquals(1, ratings.get("anna").games());
+
+        // Partite annullate e giocatori anonimi non contano
+        ratings.recordGame("anna", "bruno", "ABORTED");
+        ratings.recordGame("anna", RatingService.ANONYMOUS, "END1");
+        ratings.recordGame("anna", "anna", "END1");
+        assertEquals(1, ratings.get("anna").games());
+        assertEquals(2, ratings.size());
+    }
+
+    @Test
+    @DisplayName("Test identità del giocatore nel saluto")
+    void testPlayerId() {
+        assertEquals("anna", RatingService.playerId("wait anna"));
+        assertEquals(RatingService.ANONYMOUS, RatingService.playerId("wait"));
+        assertEquals(RatingService.ANONYMOUS, RatingService.playerId("cpu CPU"));
+        assertEquals(RatingService.ANONYMOUS, RatingService.playerId("wait <script>"));
+    }
+
+    @Test
+    @DisplayName("Test aggiornamenti concorrenti sullo stesso giocatore")
+    void testConcurrentUpdates() throws InterruptedException {
+        RatingService ratings = new RatingService();
+        int games = 2000;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < games; i++) {
+            String player = "p" + i;
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                ratings.recordGame(player, RatingService.CPU, "END2");
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        // Nessun aggiornamento perso sul giocatore condiviso
+        assertEquals(games, ratings.get(RatingService.CPU).games());
+        assertEquals(games + 1, ratings.size());
+    }
+
+    @Test
+    @DisplayName("Test salvataggio e ricaricamento dei punteggi")
+    void testSnapshotRoundTrip() throws Exception {
+        Path file = directory.resolve("ratings.tsv");
+        Rating anna;
+        try (RatingService ratings = RatingService.open(file, Duration.ofHours(1))) {
+            ratings.recordGame("anna", "bruno", "DRAW");
+            ratings.recordGame("anna", "carla", "END1");
+            anna = ratings.get("anna");
+        }
+        assertTrue(Files.exists(file));
+
+        try (RatingService reopened = RatingService.open(file, Duration.ofHours(1))) {
+            assertEquals(anna, reopened.get("anna"));
+            assertEquals(3, reopened.size());
+        }
+    }
+}
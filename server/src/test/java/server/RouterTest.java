@@ -0,0 +1,175 @@
+package server;
+
+import it.polimi.server.HealthReporter;
+import it.polimi.server.Router;
+import it.polimi.server.Server;
+import it.polimi.server.ServerContext;
+import it.polimi.server.ServerMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per il router davanti a più server di gioco, tutto su localhost.
+ */
+class RouterTest {
+
+    private final List<AutoCloseable> resources = new ArrayList<>();
+    private Router router;
+    private ServerSocket routerSocket;
+    private ServerSocket controlSocket;
+    private final ServerContext[] contexts = {ServerContext.inMemory(), ServerContext.inMemory()};
+    private final ServerMetrics[] metrics = {new ServerMetrics(), new ServerMetrics()};
+
+    @BeforeEach
+    void setUp() throws Exception {
+        routerSocket = new ServerSocket(0);
+        controlSocket = new ServerSocket(0);
+        router = new Router(routerSocket, controlSocket);
+        resources.add(router);
+        new Thread(router::startRouter).start();
+
+        for (int i = 0; i < 2; i++) {
+            ServerSocket backendSocket = new ServerSocket(0);
+            resources.add(backendSocket);
+            Server backend = new Server(backendSocket, contexts[i]);
+            new Thread(backend::startServer).start();
+            HealthReporter reporter = new HealthReporter("b" + i, backendSocket.getLocalPort(),
+                    new InetSocketAddress("localhost", controlSocket.getLocalPort()), metrics[i]);
+            resources.add(reporter);
+            reporter.start();
+        }
+        waitFor(() -> router.backendCount() == 2);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (AutoCloseable resource : resources) {
+            resource.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Test coppia di giocatori sullo stesso backend")
+    void testWaitingPairSharesBackend() throws IOException {
+        try (Client first = new Client("wait anna"); Client second = new Client("wait bruno")) {
+            // I due hello viaggiano su relay diversi: l'ordine d'arrivo al backend non è garantito
+            assertEquals(3, Integer.parseInt(first.read()) + Integer.parseInt(second.read()));
+            assertTrue(first.read().startsWith("SESSION "));
+            assertTrue(second.read().startsWith("SESSION "));
+            String match = first.read();
+            assertEquals(match, second.read());
+
+            int matchId = Integer.parseInt(match.substring("MATCH ".length()));
+            assertNotNull(router.backendOf(matchId));
+        }
+    }
+
+    @Test
+    @DisplayName("Test partita contro la CPU sul backend meno carico")
+    void testCpuGoesToLeastLoaded() throws Exception {
+        metrics[0].matchStarted();
+        metrics[0].matchStarted();
+        Thread.sleep(1500);
+
+        try (Client client = new Client("cpu anna")) {
+            assertEquals("1", client.read());
+            client.read();
+            int matchId = Integer.parseInt(client.read().substring("MATCH ".length()));
+            assertEquals("b1", router.backendOf(matchId));
+            assertEquals(1, contexts[1].matches().size());
+        }
+    }
+
+    @Test
+    @DisplayName("Test riconnessione e spettatori instradati al backend giusto")
+    void testResumeAndWatch() throws Exception {
+        String token;
+        int matchId;
+        try (Client first = new Client("wait"); Client second = new Client("wait")) {
+            first.read();
+            String seat = second.read();
+            first.read();
+            token = second.read().substring("SESSION ".length());
+            matchId = Integer.parseInt(first.read().substring("MATCH ".length()));
+            second.read();
+
+            try (Client spectator = new Client("watch " + matchId)) {
+                assertEquals("WATCHING " + matchId, spectator.read());
+            }
+
+            second.close();
+            Thread.sleep(300);
+            try (Client resumed = new Client("resume " + token)) {
+                assertEquals(seat, resumed.read());
+                assertTrue(resumed.read().startsWith("SNAPSHOT "));
+            }
+        }
+
+        try (Client unknown = new Client("resume nope")) {
+            assertEquals("EXPIRED", unknown.read());
+        }
+        try (Client unknown = new Client("watch 999")) {
+            assertEquals("NOMATCH", unknown.read());
+        }
+    }
+
+    @Test
+    @DisplayName("Test backend escluso quando smette di riportare lo stato")
+    void testBackendDown() throws Exception {
+        resources.get(2).close();
+        waitFor(() -> router.backendCount() == 1);
+
+        try (Client client = new Client("cpu")) {
+            assertEquals("1", client.read());
+            client.read();
+            assertEquals("b1", router.backendOf(Integer.parseInt(client.read().substring("MATCH ".length()))));
+        }
+    }
+
+    private static void waitFor(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timeout");
+            Thread.sleep(20);
+        }
+    }
+
+    private final class Client implements AutoCloseable {
+        private final Socket socket;
+        private final BufferedReader reader;
+
+        Client(String hello) throws IOException {
+            socket = new Socket("localhost", routerSocket.getLocalPort());
+            socket.setSoTimeout(5000);
+            reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream()));
+            writer.write(hello);
+            writer.newLine();
+            writer.flush();
+        }
+
+        String read() throws IOException {
+            return reader.readLine();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
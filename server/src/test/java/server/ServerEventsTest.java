@@ -0,0 +1,63 @@
+package server;
+
+import it.polimi.model.Piece;
+import it.polimi.model.PieceType;
+import it.polimi.model.Tile;
+import it.polimi.server.CheckersAI;
+import it.polimi.server.ServerEvents;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per gli eventi JFR del server.
+ */
+class ServerEventsTest {
+
+    @Test
+    @DisplayName("Test evento di ricerca AI registrato")
+    void testAiSearchEventRecorded() throws IOException {
+        Tile[][] board = new Tile[8][8];
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 8; x++) {
+                board[x][y] = new Tile((x + y) % 2 == 0, x, y);
+            }
+        }
+        board[2][5].setPiece(new Piece(PieceType.WHITE, 2, 5));
+
+        Path file = Files.createTempFile("dama-events", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(ServerEvents.AiSearch.class).withThreshold(java.time.Duration.ZERO);
+            recording.start();
+            new CheckersAI(board, true).generateBestMove();
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            RecordedEvent search = events.stream()
+                    .filter(event -> event.getEventType().getName().equals("it.polimi.dama.AiSearch"))
+                    .findFirst()
+                    .orElseThrow();
+            assertEquals(1, search.getInt("depth"));
+            assertTrue(search.getLong("nodes") > 0);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    @DisplayName("Test eventi disabilitati senza registrazione")
+    void testDisabledByDefault() {
+        ServerEvents.MoveRejected event = new ServerEvents.MoveRejected();
+        assertFalse(event.shouldCommit());
+    }
+}
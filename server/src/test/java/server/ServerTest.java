@@ -1,7 +1,11 @@
 package server;
 
+import it.polimi.common.BoardSnapshot;
+import it.polimi.common.GameConfig;
 import it.polimi.server.CheckersAI;
+import it.polimi.server.SearchResult;
 import it.polimi.server.Server;
+import it.polimi.server.TranspositionTable;
 import it.polimi.model.Piece;
 import it.polimi.model.PieceType;
 import it.polimi.model.Tile;
@@ -11,6 +15,7 @@ import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
 import java.net.ServerSocket;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -184,6 +189,141 @@ class ServerTest {
         assertTrue(deltaX > 0 || deltaY > 0); // Movimento reale
     }
 
+    @Test
+    @DisplayName("Test CheckersAI sacrifica una pedina per prenderne due")
+    void testCheckersAIFindsShot() {
+        Tile[][] board = createTestBoard();
+        placePiece(board, PieceType.WHITE, 4, 5);
+        placePiece(board, PieceType.WHITE, 5, 6);
+        placePiece(board, PieceType.WHITE, 2, 5);
+        placePiece(board, PieceType.WHITE, 6, 7);
+        placePiece(board, PieceType.GRAY, 2, 3);
+        placePiece(board, PieceType.GRAY, 4, 3);
+        placePiece(board, PieceType.GRAY, 0, 1);
+
+        // Sacrificio, presa obbligata e presa doppia: 4 ply, mentre un solo ply eviterebbe la casella attaccata
+        assertEquals("4 5 3 4", new CheckersAI(board, true, 4).generateBestMove());
+        // La quiescenza risolve le prese obbligate oltre l'orizzonte
+        assertEquals("4 5 3 4", new CheckersAI(board, true, 1).generateBestMove());
+    }
+
+    @Test
+    @DisplayName("Test CheckersAI risultato della ricerca con variante principale")
+    void testCheckersAISearchResult() {
+        Tile[][] board = createTestBoard();
+        placePiece(board, PieceType.WHITE, 4, 5);
+        placePiece(board, PieceType.WHITE, 5, 6);
+        placePiece(board, PieceType.WHITE, 2, 5);
+        placePiece(board, PieceType.WHITE, 6, 7);
+        placePiece(board, PieceType.GRAY, 2, 3);
+        placePiece(board, PieceType.GRAY, 4, 3);
+        placePiece(board, PieceType.GRAY, 0, 1);
+
+        SearchResult result = new CheckersAI(board, true, 4).search(BoardSnapshot.NO_SQUARE);
+        assertEquals("4 5 3 4", result.move());
+        assertEquals(List.of("4 5 3 4", "2 3 4 5", "5 6 3 4", "3 4 5 2"), result.principalVariation());
+        assertEquals(4, result.depth());
+        assertTrue(result.score() > 50, "a man up: " + result.score());
+        assertFalse(result.isDecisive());
+        assertTrue(result.nodes() > 0);
+        assertTrue(result.toString().startsWith("move 4 5 3 4 score +"));
+
+        SearchResult none = new CheckersAI(createEmptyBoard(), true).search(BoardSnapshot.NO_SQUARE);
+        assertNull(none.move());
+        assertTrue(none.principalVariation().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Test CheckersAI vede la patta per mosse senza presa")
+    void testCheckersAIDrawCounter() {
+        Tile[][] board = createTestBoard();
+        placePiece(board, PieceType.WHITE, 1, 6);
+        placePiece(board, PieceType.WHITE, 3, 6);
+        placePiece(board, PieceType.GRAY, 6, 1);
+
+        assertTrue(new CheckersAI(board, true, 4).search(BoardSnapshot.NO_SQUARE, 0).score() > 50);
+        // Alla quarantesima mossa senza presa qualunque mossa tranquilla pareggia
+        SearchResult drawn = new CheckersAI(board, true, 4)
+                .search(BoardSnapshot.NO_SQUARE, GameConfig.MAX_MOVES_WITHOUT_CAPTURE - 1);
+        assertEquals(0, drawn.score());
+        assertNotNull(drawn.move());
+    }
+
+    @Test
+    @DisplayName("Test CheckersAI continua la presa multipla con la stessa pedina")
+    void testCheckersAIMultiJump() {
+        Tile[][] board = createTestBoard();
+        placePiece(board, PieceType.WHITE, 3, 4);
+        placePiece(board, PieceType.WHITE, 6, 5);
+        placePiece(board, PieceType.GRAY, 2, 3);
+        placePiece(board, PieceType.GRAY, 5, 4);
+        placePiece(board, PieceType.GRAY, 0, 1);
+
+        CheckersAI ai = new CheckersAI(board, true);
+        assertEquals("3 4 1 2", ai.generateBestMove(BoardSnapshot.squareIndex(3, 4)));
+    }
+
+    @Test
+    @DisplayName("Test CheckersAI ordinamento killer e history riduce i nodi")
+    void testCheckersAIMoveOrdering() {
+        CheckersAI ordered = new CheckersAI(createRealisticBoard(), true, 8);
+        ordered.generateBestMove();
+        CheckersAI unordered = new CheckersAI(createRealisticBoard(), true, 8);
+        unordered.setMoveOrdering(false);
+        unordered.generateBestMove();
+
+        assertTrue(ordered.getNodes() < unordered.getNodes());
+        assertTrue(ordered.getFirstMoveCutoffRate() > 0.5);
+        assertTrue(ordered.getFirstMoveCutoffs() <= ordered.getBetaCutoffs());
+        assertThrows(IllegalArgumentException.class, () -> new CheckersAI(createTestBoard(), true, 0));
+    }
+
+    @Test
+    @DisplayName("Test CheckersAI analisi delle migliori varianti in parallelo")
+    void testCheckersAIAnalyze() throws InterruptedException {
+        Tile[][] board = createTestBoard();
+        placePiece(board, PieceType.WHITE, 4, 5);
+        placePiece(board, PieceType.WHITE, 5, 6);
+        placePiece(board, PieceType.WHITE, 2, 5);
+        placePiece(board, PieceType.WHITE, 6, 7);
+        placePiece(board, PieceType.GRAY, 2, 3);
+        placePiece(board, PieceType.GRAY, 4, 3);
+        placePiece(board, PieceType.GRAY, 0, 1);
+
+        CheckersAI ai = new CheckersAI(board, true, 6);
+        List<SearchResult> lines = ai.analyze(BoardSnapshot.NO_SQUARE, 3, 4);
+        assertEquals(3, lines.size());
+        assertEquals("4 5 3 4", lines.get(0).move());
+        assertEquals(ai.search(BoardSnapshot.NO_SQUARE).score(), lines.get(0).score());
+        for (int i = 1; i < lines.size(); i++) {
+            assertTrue(lines.get(i - 1).score() >= lines.get(i).score());
+            assertEquals(lines.get(i).move(), lines.get(i).principalVariation().get(0));
+        }
+
+        // Un solo thread deve dare le stesse varianti, nello stesso ordine
+        List<SearchResult> sequential = ai.analyze(BoardSnapshot.NO_SQUARE, 3, 1);
+        for (int i = 0; i < lines.size(); i++) {
+            assertEquals(lines.get(i).move(), sequential.get(i).move());
+            assertEquals(lines.get(i).score(), sequential.get(i).score());
+        }
+        assertTrue(new CheckersAI(createEmptyBoard(), true).analyze(BoardSnapshot.NO_SQUARE, 3, 2).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Test CheckersAI la tabella delle trasposizioni non cambia il risultato")
+    void testCheckersAITranspositionTable() {
+        TranspositionTable table = new TranspositionTable(1);
+        SearchResult empty = new CheckersAI(createRealisticBoard(), true, 8, table).search(BoardSnapshot.NO_SQUARE);
+        assertTrue(empty.tableHits() > 0, "transpositions within a single search");
+        assertTrue(empty.tableHits() <= empty.tableProbes());
+
+        // Con la tabella già piena della ricerca precedente: stesso punteggio, meno nodi
+        SearchResult filled = new CheckersAI(createRealisticBoard(), true, 8, table).search(BoardSnapshot.NO_SQUARE);
+        assertEquals(empty.score(), filled.score());
+        assertTrue(filled.nodes() < empty.nodes());
+        assertTrue(filled.tableHitRate() > empty.tableHitRate());
+    }
+
     // Helper methods per creare board di test
 
     private Tile[][] createTestBoard() {
@@ -196,6 +336,10 @@ class ServerTest {
         return board;
     }
 
+    private void placePiece(Tile[][] board, PieceType type, int x, int y) {
+        board[x][y].setPiece(new Piece(type, x, y));
+    }
+
     private Tile[][] createEmptyBoard() {
         return createTestBoard(); // Board vuoto, solo tile
     }
@@ -0,0 +1,50 @@
+package server;
+
+import it.polimi.server.SessionRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per il registro delle sessioni usato nella riconnessione.
+ */
+class SessionRegistryTest {
+
+    @Test
+    @DisplayName("Test token univoci per ogni posto")
+    void testRegisterIssuesUniqueTokens() {
+        SessionRegistry registry = new SessionRegistry();
+
+        String token1 = registry.register(null, 1);
+        String token2 = registry.register(null, 2);
+
+        assertNotNull(token1);
+        assertNotNull(token2);
+        assertNotEquals(token1, token2);
+        assertFalse(token1.contains(" "));
+        assertEquals(2, registry.size());
+    }
+
+    @Test
+    @DisplayName("Test resume con token sconosciuto")
+    void testResumeUnknownToken() throws IOException {
+        SessionRegistry registry = new SessionRegistry();
+        assertFalse(registry.resume("unknown", null));
+    }
+
+    @Test
+    @DisplayName("Test rimozione token")
+    void testRemove() throws IOException {
+        SessionRegistry registry = new SessionRegistry();
+        String token = registry.register(null, 1);
+
+        registry.remove(token);
+        registry.remove(null);
+
+        assertEquals(0, registry.size());
+        assertFalse(registry.resume(token, null));
+    }
+}
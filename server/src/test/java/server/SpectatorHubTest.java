@@ -0,0 +1,162 @@
+package server;
+
+import it.polimi.server.SpectatorHub;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per la diffusione degli eventi di partita agli spettatori.
+ */
+class SpectatorHubTest {
+
+    private static void waitFor(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean(), "Condizione non raggiunta in tempo");
+    }
+
+    @Test
+    @DisplayName("Test snapshot iniziale e ordine dei messaggi")
+    void testSnapshotThenEventsInOrder() throws Exception {
+        SpectatorHub hub = new SpectatorHub(() -> "SNAPSHOT test");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AtomicInteger closed = new AtomicInteger();
+
+        hub.subscribe(out, closed::incrementAndGet);
+        hub.publish("0 5 1 4 NORMAL");
+        hub.publish("1 2 0 3 NORMAL");
+        hub.close();
+
+        waitFor(() -> closed.get() == 1);
+        assertEquals("SNAPSHOT test\n0 5 1 4 NORMAL\n1 2 0 3 NORMAL\n", out.toString(StandardCharsets.UTF_8));
+        assertEquals(0, hub.size());
+    }
+
+    @Test
+    @DisplayName("Test spettatore lento riceve uno snapshot")
+    void testSlowSubscriberIsResynced() throws Exception {
+        AtomicInteger snapshots = new AtomicInteger();
+        SpectatorHub hub = new SpectatorHub(() -> "SNAPSHOT " + snapshots.incrementAndGet());
+
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch blocked = new CountDownLatch(1);
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        OutputStream slow = new OutputStream() {
+            @Override
+            public void write(int b) {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                blocked.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                written.write(b, off, len);
+            }
+        };
+
+        hub.subscribe(slow, () -> { });
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+        // La coda trabocca mentre lo spettatore è bloccato; publish non deve bloccarsi
+        long start = System.nanoTime();
+        for (int i = 0; i < 1000; i++) {
+            hub.publish("move " + i);
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+
+        release.countDown();
+        waitFor(() -> written.toString(StandardCharsets.UTF_8).contains("move 999"));
+
+        String received = written.toString(StandardCharsets.UTF_8);
+        assertTrue(received.startsWith("SNAPSHOT 1\n"));
+        assertTrue(received.indexOf("SNAPSHOT ", 1) > 0, "Dopo l'overflow serve uno snapshot");
+        assertFalse(received.contains("move 0\n"), "I messaggi scartati non devono arrivare");
+    }
+
+    @Test
+    @DisplayName("Test spettatore disconnesso viene rimosso")
+    void testBrokenSubscriberIsRemoved() throws Exception {
+        SpectatorHub hub = new SpectatorHub(() -> "SNAPSHOT");
+        AtomicInteger closed = new AtomicInteger();
+        OutputStream broken = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("broken pipe");
+            }
+        };
+
+        hub.subscribe(broken, closed::incrementAndGet);
+        waitFor(() -> closed.get() == 1);
+        assertEquals(0, hub.size());
+    }
+
+    @Test
+    @DisplayName("Test spettatore bloccato viene disconnesso dopo il timeout")
+    void testStalledSubscriberTimesOut() throws Exception {
+        SpectatorHub hub = new SpectatorHub(() -> "SNAPSHOT", 200);
+        CountDownLatch connectionClosed = new CountDownLatch(1);
+        OutputStream stalled = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                // Come un socket pieno: si sblocca solo quando la connessione viene chiusa
+                try {
+                    connectionClosed.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IOException("socket closed");
+            }
+        };
+
+        hub.subscribe(stalled, connectionClosed::countDown);
+        assertTrue(connectionClosed.await(2, TimeUnit.SECONDS));
+        waitFor(() -> hub.size() == 0);
+    }
+
+    @Test
+    @DisplayName("Test snapshot di risincronizzazione condiviso tra gli spettatori")
+    void testResyncSnapshotIsShared() throws Exception {
+        AtomicInteger snapshots = new AtomicInteger();
+        SpectatorHub hub = new SpectatorHub(() -> "SNAPSHOT " + snapshots.incrementAndGet());
+        CountDownLatch release = new CountDownLatch(1);
+        OutputStream slow = new OutputStream() {
+            @Override
+            public void write(int b) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+
+        for (int i = 0; i < 3; i++) {
+            hub.subscribe(slow, () -> { });
+        }
+        assertEquals(3, snapshots.get());
+        // Le code traboccano tutte entro pochi messaggi: serve uno snapshot per messaggio, non uno per spettatore
+        for (int i = 0; i < 100; i++) {
+            hub.publish("move " + i);
+        }
+        release.countDown();
+        int resyncs = snapshots.get() - 3;
+        assertTrue(resyncs >= 1 && resyncs <= 2, "Snapshot di risincronizzazione: " + resyncs);
+    }
+}
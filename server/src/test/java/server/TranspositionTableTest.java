@@ -0,0 +1,96 @@
+package server;
+
+import it.polimi.server.TranspositionTable;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test per la tabella delle trasposizioni condivisa senza lock.
+ */
+class TranspositionTableTest {
+
+    @Test
+    @DisplayName("Test memorizzazione e lettura di una voce")
+    void testStoreAndProbe() {
+        TranspositionTable table = new TranspositionTable(1);
+        assertEquals(1 << 16, table.capacity());
+        long key = 0x1234_5678_9ABC_DEF0L;
+        assertEquals(TranspositionTable.MISS, table.probe(key));
+
+        table.store(key, 0xFFFF, -100_037, 12, TranspositionTable.LOWER);
+        long entry = table.probe(key);
+        assertEquals(0xFFFF, TranspositionTable.move(entry));
+        assertEquals(-100_037, TranspositionTable.score(entry));
+        assertEquals(12, TranspositionTable.depth(entry));
+        assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(entry));
+
+        table.clear();
+        assertEquals(TranspositionTable.MISS, table.probe(key));
+        assertThrows(IllegalArgumentException.class, () -> new TranspositionTable(0));
+    }
+
+    @Test
+    @DisplayName("Test collisione e sostituzione preferendo la profondità")
+    void testCollision() {
+        TranspositionTable table = new TranspositionTable(1);
+        long key = 42;
+        long other = key + ((long) table.capacity() << 8);
+        table.store(key, 1, 10, 6, TranspositionTable.EXACT);
+        assertEquals(TranspositionTable.COLLISION, table.probe(other), "same slot, another position");
+
+        table.store(other, 2, 20, 3, TranspositionTable.EXACT);
+        assertEquals(1, TranspositionTable.move(table.probe(key)), "a shallower result does not evict a deeper one");
+        table.store(key, 3, 30, 2, TranspositionTable.UPPER);
+        assertEquals(3, TranspositionTable.move(table.probe(key)), "the same position is always updated");
+        table.store(other, 2, 20, 3, TranspositionTable.EXACT);
+        assertEquals(2, TranspositionTable.move(table.probe(other)));
+    }
+
+    @Test
+    @DisplayName("Test scritture concorrenti sulla stessa voce non restituiscono dati mescolati")
+    void testConcurrentWrites() throws InterruptedException {
+        TranspositionTable table = new TranspositionTable(1);
+        int slots = 16;
+        AtomicLong hits = new AtomicLong();
+        AtomicLong wrong = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            SplittableRandom random = new SplittableRandom(t);
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 200_000; i++) {
+                    // Poche caselle e molte chiavi: i thread scrivono di continuo sulle stesse voci
+                    long key = random.nextLong() & ~0xFFFFL | random.nextInt(slots);
+                    table.store(key, move(key), score(key), 1, TranspositionTable.EXACT);
+                    long entry = table.probe(key);
+                    if (entry != TranspositionTable.MISS && entry != TranspositionTable.COLLISION) {
+                        hits.incrementAndGet();
+                        if (TranspositionTable.move(entry) != move(key) || TranspositionTable.score(entry) != score(key)) {
+                            wrong.incrementAndGet();
+                        }
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(hits.get() > 0);
+        assertEquals(0, wrong.get(), "an entry is accepted only with its own data");
+    }
+
+    private static int move(long key) {
+        return (int) (key >>> 16 & 0xFFFF);
+    }
+
+    private static int score(long key) {
+        return (int) (key >>> 32 & 0xFFFFF) - 500_000;
+    }
+}